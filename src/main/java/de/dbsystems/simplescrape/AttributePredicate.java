@@ -0,0 +1,199 @@
+package de.dbsystems.simplescrape;
+
+import java.nio.CharBuffer;
+import java.util.regex.Pattern;
+
+/**
+ * A condition on one attribute of a tag, like "class contains the word result" or
+ * "href starts with /detail/". Predicates are used with an HTMLTagPattern in searches.
+ * <p>
+ * Attribute names are never case-sensitive. Values are compared case-insensitively if
+ * ScrapeOptions.ignoreCase is set, except for regular expressions, which are compiled
+ * once with their own flags. The value is tested where it is in the source of the tag,
+ * without copying it.
+ * </p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class AttributePredicate {
+    private final static int EXISTS = 0;
+    private final static int EQUALS = 1;
+    private final static int STARTS_WITH = 2;
+    private final static int ENDS_WITH = 3;
+    private final static int CONTAINS = 4;
+    private final static int HAS_TOKEN = 5;
+    private final static int MATCHES = 6;
+
+    private final static String[] OPERATORS = { "", "=", "^=", "$=", "*=", "~=", " matches " };
+
+    private final int kind;
+    private final String name;
+    private final String value;
+    private final Pattern pattern;
+
+    private AttributePredicate(int kind, String name, String value, Pattern pattern) {
+        if (name == null || (kind != EXISTS && kind != MATCHES && value == null)) {
+            throw new IllegalArgumentException("name and value must not be null");
+        }
+        this.kind = kind;
+        this.name = name;
+        this.value = value;
+        this.pattern = pattern;
+    }
+
+    /**
+     * The attribute is present, with or without a value.
+     */
+    public static AttributePredicate exists(String name) {
+        return new AttributePredicate(EXISTS, name, null, null);
+    }
+
+    /**
+     * The value of the attribute is value.
+     */
+    public static AttributePredicate equalTo(String name, String value) {
+        return new AttributePredicate(EQUALS, name, value, null);
+    }
+
+    /**
+     * The value of the attribute starts with prefix.
+     */
+    public static AttributePredicate startsWith(String name, String prefix) {
+        return new AttributePredicate(STARTS_WITH, name, prefix, null);
+    }
+
+    /**
+     * The value of the attribute ends with suffix.
+     */
+    public static AttributePredicate endsWith(String name, String suffix) {
+        return new AttributePredicate(ENDS_WITH, name, suffix, null);
+    }
+
+    /**
+     * The value of the attribute contains part.
+     */
+    public static AttributePredicate contains(String name, String part) {
+        return new AttributePredicate(CONTAINS, name, part, null);
+    }
+
+    /**
+     * One of the whitespace-separated words of the value is token, e.g. one of the
+     * classes of a class-attribute.
+     */
+    public static AttributePredicate hasToken(String name, String token) {
+        return new AttributePredicate(HAS_TOKEN, name, token, null);
+    }
+
+    /**
+     * The complete value of the attribute matches a regular expression.
+     *
+     * @param name The name of the attribute.
+     * @param regex The regular expression. Use Pattern.compile() with flags for e.g.
+     * case-insensitive matching.
+     */
+    public static AttributePredicate matches(String name, Pattern regex) {
+        if (regex == null) {
+            throw new IllegalArgumentException("regex must not be null");
+        }
+        return new AttributePredicate(MATCHES, name, null, regex);
+    }
+
+    /**
+     * The complete value of the attribute matches a regular expression.
+     *
+     * @throws java.util.regex.PatternSyntaxException If regex is not valid.
+     */
+    public static AttributePredicate matches(String name, String regex) {
+        return matches(name, Pattern.compile(regex));
+    }
+
+    /**
+     * Returns the name of the attribute.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Tests the attributes of a tag.
+     *
+     * @param attributes The attributes, or null, if the tag has none.
+     * @param ignoreCase Whether values are compared case-insensitively.
+     */
+    public boolean test(HTMLTagAttributes attributes, boolean ignoreCase) {
+        return attributes != null && attributes.test(this, ignoreCase);
+    }
+
+    /**
+     * Tests the value of the attribute.
+     *
+     * @param source Contains the value.
+     * @param start The start of the value within source.
+     * @param end The end of the value within source.
+     */
+    boolean test(String source, int start, int end, boolean ignoreCase) {
+        int length = end - start;
+        switch (kind) {
+        case EXISTS:
+            return true;
+        case EQUALS:
+            return length == value.length() && source.regionMatches(ignoreCase, start, value, 0, length);
+        case STARTS_WITH:
+            return length >= value.length() && source.regionMatches(ignoreCase, start, value, 0, value.length());
+        case ENDS_WITH:
+            return length >= value.length()
+                    && source.regionMatches(ignoreCase, end - value.length(), value, 0, value.length());
+        case CONTAINS:
+            for (int i = start; i <= end - value.length(); i++) {
+                if (source.regionMatches(ignoreCase, i, value, 0, value.length())) {
+                    return true;
+                }
+            }
+            return false;
+        case HAS_TOKEN:
+            int i = start;
+            while (i < end) {
+                while (i < end && source.charAt(i) <= ' ') {
+                    i++;
+                }
+                int wordEnd = i;
+                while (wordEnd < end && source.charAt(wordEnd) > ' ') {
+                    wordEnd++;
+                }
+                if (wordEnd > i && wordEnd - i == value.length()
+                        && source.regionMatches(ignoreCase, i, value, 0, value.length())) {
+                    return true;
+                }
+                i = wordEnd;
+            }
+            return false;
+        default:
+            return pattern.matcher(CharBuffer.wrap(source, start, end)).matches();
+        }
+    }
+
+    public String toString() {
+        if (kind == EXISTS) {
+            return "[" + name + "]";
+        }
+        return "[" + name + OPERATORS[kind] + "\"" + (kind == MATCHES ? pattern.pattern() : value) + "\"]";
+    }
+}
@@ -0,0 +1,323 @@
+package de.dbsystems.simplescrape;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Processes many pages at once. Every page is read from its source, parsed and
+ * handed to an extractor, which returns whatever is of interest on that page.
+ * <p>
+ * Reading and parsing are done by different threads: Reading mostly waits for
+ * the network, so it runs on an executor with as many threads as needed (virtual
+ * threads, if the JVM offers them). Parsing and extracting need the CPU, so they
+ * run on a pool with one thread per core. The number of pages being read, waiting
+ * to be parsed or waiting for the caller to take their results is limited, so that a
+ * fast network can't fill up the memory with pages the CPUs (or the caller) can't
+ * keep up with.
+ * </p>
+ * <p>Example:</p>
+ * <pre>
+ * BatchScraper&lt;String&gt; batch = new BatchScraper&lt;String&gt;(new BatchScraper.Extractor&lt;String&gt;() {
+ *     public String extract(Scraper scraper) {
+ *         return scraper.getNextContent("title");
+ *     }
+ * });
+ * Iterator&lt;BatchScraper.Result&lt;String&gt;&gt; results = batch.run(sources);
+ * while (results.hasNext()) { ... }
+ * batch.shutdown();
+ * </pre>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class BatchScraper<R> {
+    /**
+     * Default for the number of pages being read, waiting for the CPU or waiting to be
+     * taken from the results at the same time.
+     */
+    public final static int DEFAULT_MAX_PENDING = 256;
+
+    /**
+     * Extracts the interesting data from one page.
+     */
+    public interface Extractor<R> {
+        /**
+         * Called once per page, on one of the parsing threads.
+         * @param scraper A Scraper for the page, positioned at the first token.
+         * @return The extracted data.
+         * @throws Exception Any problem, it will be reported in the result for that page.
+         */
+        R extract(Scraper scraper) throws Exception;
+    }
+
+    /**
+     * The outcome for one source: either a value or an error.
+     */
+    public static class Result<R> {
+        private final ScrapeSource source;
+        private final R value;
+        private final Throwable error;
+
+        Result(ScrapeSource source, R value, Throwable error) {
+            this.source = source;
+            this.value = value;
+            this.error = error;
+        }
+
+        /**
+         * The source this result belongs to.
+         */
+        public ScrapeSource getSource() {
+            return source;
+        }
+
+        /**
+         * The value returned by the extractor, or null, if there was an error.
+         */
+        public R getValue() {
+            return value;
+        }
+
+        /**
+         * The reason why the source couldn't be processed, or null, if there was no error.
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * Whether the source has been processed without an error.
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    private final Extractor<R> extractor;
+
+    private final ExecutorService readExecutor;
+
+    private final ExecutorService parseExecutor;
+
+    private final int maxPending;
+
+    private volatile boolean shutdown = false;
+
+    /**
+     * Creates a BatchScraper with default settings: reading on virtual threads (or on a
+     * cached thread pool, if the JVM has no virtual threads), parsing on one thread per
+     * core and at most DEFAULT_MAX_PENDING pages at the same time.
+     *
+     * @param extractor The extractor to be used for every page.
+     */
+    public BatchScraper(Extractor<R> extractor) {
+        this(extractor, createReadExecutor(), Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_PENDING);
+    }
+
+    /**
+     * Creates a BatchScraper.
+     *
+     * @param extractor The extractor to be used for every page.
+     * @param readExecutor The executor the sources are read on. It should not limit the
+     * number of threads, as reading mostly blocks. It is shut down by shutdown().
+     * @param parseThreads The number of threads for parsing and extracting.
+     * @param maxPending The maximum number of pages being read, waiting to be parsed or
+     * waiting to be taken from the results.
+     */
+    public BatchScraper(Extractor<R> extractor, ExecutorService readExecutor, int parseThreads, int maxPending) {
+        if (extractor == null || readExecutor == null) {
+            throw new IllegalArgumentException("extractor and readExecutor must not be null");
+        }
+        if (parseThreads < 1 || maxPending < 1) {
+            throw new IllegalArgumentException("parseThreads and maxPending must be positive");
+        }
+        this.extractor = extractor;
+        this.readExecutor = readExecutor;
+        this.parseExecutor = Executors.newFixedThreadPool(parseThreads, new DaemonThreadFactory("scrape-parse-"));
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Starts processing the given sources and returns immediately. The results are
+     * returned in the order they are completed, not in the order of the sources.
+     * The iterator blocks until the next result is available. It returns exactly one
+     * result per source.
+     *
+     * @param sources The sources to be processed.
+     * @return The results.
+     * @throws IllegalStateException If shutdown() has been called.
+     */
+    public Iterator<Result<R>> run(List<ScrapeSource> sources) {
+        if (shutdown) {
+            throw new IllegalStateException("the BatchScraper has been shut down");
+        }
+        final List<ScrapeSource> work = new ArrayList<ScrapeSource>(sources);
+        final BlockingQueue<Result<R>> results = new LinkedBlockingQueue<Result<R>>();
+        final Semaphore pending = new Semaphore(maxPending);
+        Thread feeder = new DaemonThreadFactory("scrape-feeder-").newThread(new Runnable() {
+            public void run() {
+                for (ScrapeSource source : work) {
+                    // released when the result is taken, so a slow caller slows down reading
+                    pending.acquireUninterruptibly();
+                    try {
+                        readExecutor.execute(new ReadTask(source, results));
+                    } catch (RejectedExecutionException e) {
+                        // e.g. shut down meanwhile; the iterator must not wait for this source
+                        results.add(new Result<R>(source, null, e));
+                    }
+                }
+            }
+        });
+        feeder.start();
+
+        return new Iterator<Result<R>>() {
+            private int delivered = 0;
+
+            public boolean hasNext() {
+                return delivered < work.size();
+            }
+
+            public Result<R> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    Result<R> result = results.take();
+                    delivered++;
+                    pending.release();
+                    return result;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while waiting for results", e);
+                }
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Convenience method: processes all sources and waits for all of them.
+     *
+     * @param sources The sources to be processed.
+     * @return The results, in the order they have been completed.
+     * @throws IllegalStateException If shutdown() has been called.
+     */
+    public List<Result<R>> runAndWait(List<ScrapeSource> sources) {
+        List<Result<R>> result = new ArrayList<Result<R>>(sources.size());
+        Iterator<Result<R>> iterator = run(sources);
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    /**
+     * Stops all threads. Pages currently being processed are finished, but
+     * no further work is accepted: run() fails, and sources of running batches which
+     * haven't been started yet get a RejectedExecutionException as their result.
+     */
+    public void shutdown() {
+        shutdown = true;
+        readExecutor.shutdown();
+        parseExecutor.shutdown();
+    }
+
+    /**
+     * Reads a source and hands the content over to the parsing threads.
+     */
+    private class ReadTask implements Runnable {
+        private final ScrapeSource source;
+        private final BlockingQueue<Result<R>> results;
+
+        ReadTask(ScrapeSource source, BlockingQueue<Result<R>> results) {
+            this.source = source;
+            this.results = results;
+        }
+
+        public void run() {
+            final byte[] content;
+            try {
+                content = source.read();
+            } catch (Throwable e) {
+                results.add(new Result<R>(source, null, e));
+                return;
+            }
+            try {
+                parseExecutor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            ParsedDocument document = ParsedDocument.parse(new ByteArrayInputStream(content));
+                            results.add(new Result<R>(source, extractor.extract(document.newScraper()), null));
+                        } catch (Throwable e) {
+                            results.add(new Result<R>(source, null, e));
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                results.add(new Result<R>(source, null, e));
+            }
+        }
+    }
+
+    /**
+     * Returns an executor starting a new virtual thread per task, if the JVM supports
+     * them (Java 21 and later), or a cached thread pool otherwise.
+     */
+    private static ExecutorService createReadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (Exception e) {
+            return Executors.newCachedThreadPool(new DaemonThreadFactory("scrape-read-"));
+        }
+    }
+
+    /**
+     * Creates named daemon threads, so that a forgotten shutdown() doesn't keep the JVM alive.
+     */
+    static class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private int count = 0;
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public synchronized Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + (++count));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package de.dbsystems.simplescrape;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores parsed documents in a compact binary file, so that they can be loaded
+ * again without running the Tokenizer. Loading memory-maps the file and creates
+ * the tokens directly from the stored arrays, which is much faster than parsing.
+ * <p>A file contains (all numbers big-endian):</p>
+ * <ol>
+ * <li>a header: magic number, format version, number of tokens, number of names,
+ * length of the source text</li>
+ * <li>the table of tag names, each stored once: length and UTF-16 characters</li>
+ * <li>one byte per token for its kind (text, tag or comment) and, for tags, whether it is
+ * an end tag or a unary tag</li>
+ * <li>the offsets of all tokens within the source text</li>
+ * <li>per token the index of its name (tags only) and the start and end of its content
+ * within the source text (the text, the comment or the attributes of a tag)</li>
+ * <li>the source text itself as UTF-16 characters</li>
+ * </ol>
+ * Sections are padded to multiples of four bytes. Files are read only if their version
+ * is known, so the format can change without loading old files the wrong way.
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class BinaryDocumentFormat {
+    /**
+     * The first four bytes of every file: "SSTK"
+     */
+    public final static int MAGIC = 0x5353544B;
+
+    /**
+     * The version of the format written by this class.
+     */
+    public final static int VERSION = 1;
+
+    private final static int KIND_TEXT = 0;
+
+    private final static int KIND_TAG = 1;
+
+    private final static int KIND_COMMENT = 2;
+
+    private final static int KIND_MASK = 3;
+
+    private final static int FLAG_END_TAG = 4;
+
+    private final static int FLAG_UNARY_TAG = 8;
+
+    private BinaryDocumentFormat() {
+        // only static methods
+    }
+
+    /**
+     * Writes a document to a file. If the document has no source (it has been created from
+     * a list of tokens or parsed without keeping it), the tokens' HTML-representation is
+     * stored as source.
+     *
+     * @param document The document to be stored.
+     * @param file The file to write to. It is overwritten if it exists.
+     * @throws IOException If writing fails.
+     */
+    public static void write(ParsedDocument document, File file) throws IOException {
+        int count = document.size();
+        String source = document.getSource();
+        int[] offsets = new int[count + 1];
+        int[] contentStarts = new int[count];
+        int[] contentEnds = new int[count];
+        boolean located = false;
+        if (source != null) {
+            for (int i = 0; i <= count; i++) {
+                offsets[i] = document.getOffset(i);
+            }
+            located = locateContents(document, source, offsets, contentStarts, contentEnds);
+        }
+        if (!located) {
+            source = synthesizeSource(document.getTokens(), offsets);
+            locateContents(document, source, offsets, contentStarts, contentEnds);
+        }
+
+        byte[] kinds = new byte[count];
+        int[] nameIndexes = new int[count];
+        Map<String, Integer> nameTable = new HashMap<String, Integer>();
+        String[] names = new String[16];
+        for (int i = 0; i < count; i++) {
+            AbstractHTMLToken token = document.get(i);
+            nameIndexes[i] = -1;
+            if (token instanceof HTMLTag) {
+                HTMLTag tag = (HTMLTag) token;
+                kinds[i] = (byte) (KIND_TAG | (tag.isEndTag() ? FLAG_END_TAG : 0)
+                        | (tag.isUnaryTag() ? FLAG_UNARY_TAG : 0));
+                Integer index = nameTable.get(tag.getName());
+                if (index == null) {
+                    index = nameTable.size();
+                    nameTable.put(tag.getName(), index);
+                    if (index == names.length) {
+                        String[] larger = new String[names.length * 2];
+                        System.arraycopy(names, 0, larger, 0, names.length);
+                        names = larger;
+                    }
+                    names[index] = tag.getName();
+                }
+                nameIndexes[i] = index;
+            } else if (token instanceof HTMLComment) {
+                kinds[i] = KIND_COMMENT;
+            } else {
+                kinds[i] = KIND_TEXT;
+            }
+        }
+
+        int nameBytes = 0;
+        for (int i = 0; i < nameTable.size(); i++) {
+            nameBytes += 4 + 2 * names[i].length();
+        }
+        long size = 20L + padded(nameBytes) + padded(count) + 4L * (4 * count + 1) + 2L * source.length();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("document too large to be stored");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(count);
+        buffer.putInt(nameTable.size());
+        buffer.putInt(source.length());
+        for (int i = 0; i < nameTable.size(); i++) {
+            buffer.putInt(names[i].length());
+            putChars(buffer, names[i]);
+        }
+        buffer.position(buffer.position() + padded(nameBytes) - nameBytes);
+        buffer.put(kinds);
+        buffer.position(buffer.position() + padded(count) - count);
+        putInts(buffer, offsets);
+        putInts(buffer, nameIndexes);
+        putInts(buffer, contentStarts);
+        putInts(buffer, contentEnds);
+        putChars(buffer, source);
+        buffer.flip();
+
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Loads a document written by write(ParsedDocument, File).
+     *
+     * @param file The file to read from.
+     * @return The document, including its source.
+     * @throws IOException If reading fails or the file is not in a known format.
+     */
+    public static ParsedDocument read(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer, file.getPath());
+        } finally {
+            input.close();
+        }
+    }
+
+    private static ParsedDocument read(ByteBuffer buffer, String name) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a stored document: " + name);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported version " + version + ": " + name);
+            }
+            int count = buffer.getInt();
+            int nameCount = buffer.getInt();
+            int sourceLength = buffer.getInt();
+            if (count < 0 || nameCount < 0 || sourceLength < 0) {
+                throw new IOException("corrupt header: " + name);
+            }
+
+            String[] names = new String[nameCount];
+            int nameBytes = 0;
+            for (int i = 0; i < nameCount; i++) {
+                char[] chars = new char[buffer.getInt()];
+                buffer.asCharBuffer().get(chars);
+                buffer.position(buffer.position() + 2 * chars.length);
+                names[i] = new String(chars);
+                nameBytes += 4 + 2 * chars.length;
+            }
+            skipPadding(buffer, nameBytes);
+            byte[] kinds = new byte[count];
+            buffer.get(kinds);
+            skipPadding(buffer, count);
+            int[] offsets = readInts(buffer, count + 1);
+            int[] nameIndexes = readInts(buffer, count);
+            int[] contentStarts = readInts(buffer, count);
+            int[] contentEnds = readInts(buffer, count);
+            char[] chars = new char[sourceLength];
+            buffer.asCharBuffer().get(chars);
+            String source = new String(chars);
+
+            AbstractHTMLToken[] tokens = new AbstractHTMLToken[count];
+            for (int i = 0; i < count; i++) {
+                switch (kinds[i] & KIND_MASK) {
+                case KIND_TAG:
+                    // the attributes share the source
+                    tokens[i] = new HTMLTag(names[nameIndexes[i]], source, contentStarts[i], contentEnds[i],
+                            (kinds[i] & FLAG_END_TAG) != 0, (kinds[i] & FLAG_UNARY_TAG) != 0);
+                    break;
+                case KIND_COMMENT:
+                    tokens[i] = new HTMLComment(source.substring(contentStarts[i], contentEnds[i]));
+                    break;
+                default:
+                    tokens[i] = new TextToken(source.substring(contentStarts[i], contentEnds[i]));
+                    break;
+                }
+            }
+            return new ParsedDocument(tokens, source, offsets);
+        } catch (RuntimeException e) {
+            // BufferUnderflowException, IndexOutOfBoundsException, ...
+            IOException failure = new IOException("corrupt document file: " + name);
+            failure.initCause(e);
+            throw failure;
+        }
+    }
+
+    /**
+     * Finds the content of every token within the source.
+     *
+     * @return false, if the tokens don't match the source.
+     */
+    private static boolean locateContents(ParsedDocument document, String source, int[] offsets,
+            int[] contentStarts, int[] contentEnds) {
+        for (int i = 0; i < document.size(); i++) {
+            AbstractHTMLToken token = document.get(i);
+            int start = offsets[i];
+            int end = offsets[i + 1];
+            String content;
+            if (token instanceof HTMLTag) {
+                HTMLTagAttributes attributes = ((HTMLTag) token).getAttributes();
+                if (attributes == null) {
+                    contentStarts[i] = -1;
+                    contentEnds[i] = -1;
+                    continue;
+                }
+                content = attributes.toString();
+                // any occurrence will do, as only the characters are needed
+                start = source.indexOf(content, start);
+            } else if (token instanceof HTMLComment) {
+                content = ((HTMLComment) token).getComment();
+                start += 4; // "<!--"
+            } else {
+                content = ((TextToken) token).getText();
+            }
+            if (start < 0 || start + content.length() > end
+                    || !source.regionMatches(start, content, 0, content.length())) {
+                return false;
+            }
+            contentStarts[i] = start;
+            contentEnds[i] = start + content.length();
+        }
+        return true;
+    }
+
+    /**
+     * Creates a source for a list of tokens by concatenating their HTML-representations.
+     *
+     * @param offsets Receives the offsets of the tokens in the result.
+     */
+    private static String synthesizeSource(List<AbstractHTMLToken> tokens, int[] offsets) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) {
+            offsets[i] = buf.length();
+            buf.append(tokens.get(i).toString());
+        }
+        offsets[tokens.size()] = buf.length();
+        return buf.toString();
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + 4 * values.length);
+    }
+
+    private static void putChars(ByteBuffer buffer, String chars) {
+        buffer.asCharBuffer().put(chars);
+        buffer.position(buffer.position() + 2 * chars.length());
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] result = new int[count];
+        buffer.asIntBuffer().get(result);
+        buffer.position(buffer.position() + 4 * count);
+        return result;
+    }
+
+    /**
+     * Rounds up to the next multiple of four.
+     */
+    private static int padded(int length) {
+        return (length + 3) & ~3;
+    }
+
+    private static void skipPadding(ByteBuffer buffer, int length) {
+        buffer.position(buffer.position() + padded(length) - length);
+    }
+}
@@ -0,0 +1,119 @@
+package de.dbsystems.simplescrape;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decompresses HTTP responses and files as streams, so that they can be tokenized while
+ * they are read, without holding the complete compressed or decompressed content.
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+final class Compression {
+    /**
+     * The value of the Accept-Encoding header of requests.
+     */
+    final static String ACCEPT_ENCODING = "gzip, deflate";
+
+    private final static int BUFFER_SIZE = 8192;
+
+    private Compression() {
+    }
+
+    /**
+     * Returns a stream with the decoded content of a response.
+     *
+     * @param input The body of the response.
+     * @param contentEncoding The Content-Encoding header of the response, or null.
+     * @throws IOException If the encoding is not supported or the content is corrupt.
+     */
+    static InputStream decode(InputStream input, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return input;
+        }
+        String encoding = contentEncoding.trim().toLowerCase();
+        if (encoding.length() == 0 || encoding.equals("identity")) {
+            return input;
+        }
+        if (encoding.equals("gzip") || encoding.equals("x-gzip")) {
+            return new GZIPInputStream(input, BUFFER_SIZE);
+        }
+        if (encoding.equals("deflate")) {
+            return inflate(input);
+        }
+        throw new IOException("unsupported Content-Encoding: " + contentEncoding);
+    }
+
+    /**
+     * Decodes the complete content of a response.
+     */
+    static byte[] decode(byte[] content, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return content;
+        }
+        return ScrapeSource.readFully(decode(new ByteArrayInputStream(content), contentEncoding));
+    }
+
+    /**
+     * Returns a stream with the content of a file, which is decompressed, if it is gzipped
+     * (e.g. page.html.gz). The kind of file is recognized by its first bytes, not by its
+     * name.
+     *
+     * @param input The file content.
+     */
+    static InputStream decodeIfGzipped(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if (first == 0x1f && second == 0x8b) {
+            return new GZIPInputStream(buffered, BUFFER_SIZE);
+        }
+        return buffered;
+    }
+
+    /**
+     * Returns a stream for "deflate" content. Servers send it either in the zlib format,
+     * as the standard says, or as raw deflate data; the first two bytes tell which.
+     */
+    private static InputStream inflate(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        boolean zlib = first >= 0 && second >= 0 && (first & 0x0f) == 8 && ((first << 8) | second) % 31 == 0;
+        final Inflater inflater = new Inflater(!zlib);
+        return new InflaterInputStream(buffered, inflater, BUFFER_SIZE) {
+            public void close() throws IOException {
+                super.close();
+                // a stream only ends inflaters it created itself
+                inflater.end();
+            }
+        };
+    }
+}
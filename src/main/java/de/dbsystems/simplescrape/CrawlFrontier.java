@@ -0,0 +1,382 @@
+package de.dbsystems.simplescrape;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * The URLs still to be fetched by a crawler, and those already seen. Both are kept in
+ * memory-mapped files, so that the memory needed doesn't grow with the number of URLs:
+ * <ul>
+ * <li>The queue is an append-only sequence of files ("segments"). Segments that have
+ * been read completely are deleted.</li>
+ * <li>The seen URLs are a Bloom filter of fixed size. It is sized for an expected number
+ * of URLs and a false positive rate: that fraction of new URLs is taken for seen and
+ * dropped. Beyond the expected number, the rate grows quickly.</li>
+ * </ul>
+ * checkpoint() writes the state to disk; a frontier created with the same directory
+ * later resumes from there, including the URLs added after the last checkpoint, as long
+ * as the process (not the operating system) ended. URLs are compared as they are
+ * given, so normalize them first (see LinkExtractor.normalize()).
+ * <p>
+ * The methods are synchronized; a single thread adding URLs gets the best throughput.
+ * </p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class CrawlFrontier implements Closeable {
+    /**
+     * The size of the queue segments.
+     */
+    public final static int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    /**
+     * The maximum length of a URL, in UTF-8 bytes.
+     */
+    public final static int MAX_URL_LENGTH = 65536;
+
+    private final static String CHECKPOINT = "checkpoint";
+
+    private final static String SEEN = "seen";
+
+    /** Marks the end of the records in a segment, if the next record didn't fit */
+    private final static int NEXT_SEGMENT = -1;
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final long bits;
+
+    private final int hashes;
+
+    private final MappedByteBuffer seen;
+
+    private int headSegment;
+    /** Where the next URL is read; a view of its own, if it is in the tail segment */
+    private ByteBuffer head;
+
+    private int tailSegment;
+    private MappedByteBuffer tail;
+
+    /** The number of URLs added and taken */
+    private long added;
+    private long taken;
+
+    private boolean closed = false;
+
+    /**
+     * Creates a frontier, or resumes the one in a directory.
+     *
+     * @param directory The directory for the files. It is created if it doesn't exist.
+     * @param expectedUrls The number of URLs expected to be added. It determines the size
+     * of the Bloom filter. When resuming, the size of the existing filter is kept.
+     * @param falsePositiveRate The fraction of new URLs that may be taken for seen.
+     * @throws IOException If the files can't be created or read.
+     */
+    public CrawlFrontier(File directory, long expectedUrls, double falsePositiveRate) throws IOException {
+        this(directory, expectedUrls, falsePositiveRate, DEFAULT_SEGMENT_SIZE);
+    }
+
+    CrawlFrontier(File directory, long expectedUrls, double falsePositiveRate, int segmentSize) throws IOException {
+        if (expectedUrls < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedUrls must be positive, falsePositiveRate between 0 and 1");
+        }
+        if (segmentSize < MAX_URL_LENGTH + 8) {
+            throw new IllegalArgumentException("segmentSize too small");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("can't create the frontier directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        Properties checkpoint = readCheckpoint();
+        if (checkpoint != null) {
+            bits = Long.parseLong(checkpoint.getProperty("bits"));
+            hashes = Integer.parseInt(checkpoint.getProperty("hashes"));
+            headSegment = Integer.parseInt(checkpoint.getProperty("headSegment"));
+            int headOffset = Integer.parseInt(checkpoint.getProperty("headOffset"));
+            tailSegment = Integer.parseInt(checkpoint.getProperty("tailSegment"));
+            int tailOffset = Integer.parseInt(checkpoint.getProperty("tailOffset"));
+            added = Long.parseLong(checkpoint.getProperty("added"));
+            taken = Long.parseLong(checkpoint.getProperty("taken"));
+            seen = map(new File(directory, SEEN), bits / 8);
+            head = segment(headSegment);
+            head.position(headOffset);
+            tail = segment(tailSegment);
+            tail.position(tailOffset);
+            recover();
+        } else {
+            // the optimal Bloom filter: m = -n ln p / (ln 2)^2 bits, k = m / n ln 2 hashes
+            double optimal = -expectedUrls * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+            long words = Math.max(1, (long) Math.ceil(optimal / 64));
+            if (words * 8 > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("too many URLs for one frontier");
+            }
+            bits = words * 64;
+            hashes = Math.max(1, (int) Math.round((double) bits / expectedUrls * Math.log(2)));
+            for (File file : directory.listFiles()) {
+                if (file.getName().equals(SEEN) || file.getName().startsWith("queue-")) {
+                    file.delete();
+                }
+            }
+            seen = map(new File(directory, SEEN), bits / 8);
+            headSegment = 0;
+            tailSegment = 0;
+            tail = segment(0);
+            head = tail.duplicate();
+            checkpoint();
+        }
+    }
+
+    /**
+     * Adds a URL to the queue, if it hasn't been seen before.
+     *
+     * @param url The URL. It must not be empty.
+     * @return true, if the URL is new, false, if it has (probably) been seen before.
+     * @throws IOException If the queue can't be extended.
+     */
+    public synchronized boolean add(String url) throws IOException {
+        checkOpen();
+        if (url.isEmpty()) {
+            // a length of 0 marks the end of the records written
+            throw new IllegalArgumentException("url must not be empty");
+        }
+        long h1 = Hashing.hash(url);
+        long h2 = Hashing.combine(h1, bits) | 1;
+        if (contains(h1, h2)) {
+            return false;
+        }
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_URL_LENGTH) {
+            throw new IllegalArgumentException("URL too long: " + url.substring(0, 100) + "...");
+        }
+        if (tail.remaining() < bytes.length + 8) {
+            tail.putInt(tail.position(), NEXT_SEGMENT);
+            tail.force();
+            tailSegment++;
+            tail = segment(tailSegment);
+        }
+        // the length comes last: a record with a length is complete
+        int position = tail.position();
+        tail.position(position + 4);
+        tail.put(bytes);
+        tail.putInt(position, bytes.length);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            int index = (int) (bit >>> 6) * 8;
+            seen.putLong(index, seen.getLong(index) | (1L << bit));
+        }
+        added++;
+        return true;
+    }
+
+    /**
+     * Whether a URL has (probably) been added before.
+     */
+    public synchronized boolean contains(String url) {
+        checkOpen();
+        long h1 = Hashing.hash(url);
+        return contains(h1, Hashing.combine(h1, bits) | 1);
+    }
+
+    /**
+     * Takes the next URL from the queue.
+     *
+     * @return The URL, or null, if the queue is empty.
+     * @throws IOException If the next segment can't be read.
+     */
+    public synchronized String poll() throws IOException {
+        checkOpen();
+        if (taken == added) {
+            return null;
+        }
+        int length = head.getInt(head.position());
+        if (length == NEXT_SEGMENT) {
+            File done = segmentFile(headSegment);
+            headSegment++;
+            head = headSegment == tailSegment ? tail.duplicate() : segment(headSegment);
+            head.position(0);
+            done.delete();
+            length = head.getInt(0);
+        }
+        byte[] bytes = new byte[length];
+        head.position(head.position() + 4);
+        head.get(bytes);
+        taken++;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the number of URLs in the queue.
+     */
+    public synchronized long size() {
+        return added - taken;
+    }
+
+    /**
+     * Returns the number of URLs added so far.
+     */
+    public synchronized long getAddedCount() {
+        return added;
+    }
+
+    /**
+     * Returns the number of bits of the Bloom filter.
+     */
+    public long getFilterBits() {
+        return bits;
+    }
+
+    /**
+     * Returns the false positive rate to be expected for the URLs added so far.
+     */
+    public synchronized double getFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashes * added / bits), hashes);
+    }
+
+    /**
+     * Writes all changes to disk, so that a frontier created later with the same
+     * directory resumes at this state.
+     *
+     * @throws IOException If writing fails.
+     */
+    public synchronized void checkpoint() throws IOException {
+        checkOpen();
+        seen.force();
+        tail.force();
+        Properties properties = new Properties();
+        properties.setProperty("bits", Long.toString(bits));
+        properties.setProperty("hashes", Integer.toString(hashes));
+        properties.setProperty("headSegment", Integer.toString(headSegment));
+        properties.setProperty("headOffset", Integer.toString(head.position()));
+        properties.setProperty("tailSegment", Integer.toString(tailSegment));
+        properties.setProperty("tailOffset", Integer.toString(tail.position()));
+        properties.setProperty("added", Long.toString(added));
+        properties.setProperty("taken", Long.toString(taken));
+        File temporary = new File(directory, CHECKPOINT + ".tmp");
+        OutputStream out = new FileOutputStream(temporary);
+        try {
+            properties.store(out, null);
+        } finally {
+            out.close();
+        }
+        Files.move(temporary.toPath(), new File(directory, CHECKPOINT).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes a checkpoint; the frontier can't be used afterwards.
+     */
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            checkpoint();
+            closed = true;
+        }
+    }
+
+    private boolean contains(long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((seen.getLong((int) (bit >>> 6) * 8) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes over the complete records written after the last checkpoint.
+     */
+    private void recover() throws IOException {
+        while (true) {
+            int position = tail.position();
+            int length = position + 4 <= segmentSize ? tail.getInt(position) : NEXT_SEGMENT;
+            if (length == NEXT_SEGMENT) {
+                if (!segmentFile(tailSegment + 1).isFile()) {
+                    return;
+                }
+                tailSegment++;
+                tail = segment(tailSegment);
+            } else if (length > 0 && length <= MAX_URL_LENGTH && position + 4 + length <= segmentSize) {
+                tail.position(position + 4 + length);
+                added++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private Properties readCheckpoint() throws IOException {
+        File file = new File(directory, CHECKPOINT);
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        return properties;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("the frontier has been closed");
+        }
+    }
+
+    private File segmentFile(int number) {
+        return new File(directory, String.format("queue-%06d", number));
+    }
+
+    private MappedByteBuffer segment(int number) throws IOException {
+        return map(segmentFile(number), segmentSize);
+    }
+
+    /**
+     * Maps a file, which is created or extended with zeros if necessary.
+     */
+    private static MappedByteBuffer map(File file, long size) throws IOException {
+        RandomAccessFile access = new RandomAccessFile(file, "rw");
+        try {
+            return access.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            // the mapping stays valid
+            access.close();
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package de.dbsystems.simplescrape;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares two documents token by token and describes the differences as a short list
+ * of edits: ranges of tokens that have been inserted, deleted or changed. This is useful
+ * to find out whether the relevant part of a monitored page changed.
+ * <p>
+ * Every token is reduced to a 64-bit hash first, so comparing two tokens is cheap. Two
+ * tokens are equal if their HTML is equal (the original source, if both documents have one).
+ * The edits are computed with Myers' algorithm in its linear-space variant, which needs
+ * time proportional to the size of the documents times the size of the difference, and
+ * memory proportional to the size of the documents only. If two regions differ so much
+ * that refining them would cost more than maxCost steps, the whole region is reported
+ * as one change instead.
+ * </p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class DocumentDiff {
+    /**
+     * Default for the maximum number of steps spent on refining a single region.
+     */
+    public final static int DEFAULT_MAX_COST = 4096;
+
+    /**
+     * One difference between two documents.
+     */
+    public static class Edit {
+        /** Tokens have been added to the new document. The old range is empty. */
+        public final static int INSERT = 0;
+        /** Tokens of the old document have been removed. The new range is empty. */
+        public final static int DELETE = 1;
+        /** Tokens of the old document have been replaced by other tokens. */
+        public final static int CHANGE = 2;
+
+        private final int type;
+        private final int oldStart;
+        private final int oldEnd;
+        private final int newStart;
+        private final int newEnd;
+
+        Edit(int oldStart, int oldEnd, int newStart, int newEnd) {
+            this.oldStart = oldStart;
+            this.oldEnd = oldEnd;
+            this.newStart = newStart;
+            this.newEnd = newEnd;
+            if (oldStart == oldEnd) {
+                type = INSERT;
+            } else if (newStart == newEnd) {
+                type = DELETE;
+            } else {
+                type = CHANGE;
+            }
+        }
+
+        /**
+         * Returns the kind of edit: INSERT, DELETE or CHANGE.
+         */
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * Index of the first affected token in the old document.
+         */
+        public int getOldStart() {
+            return oldStart;
+        }
+
+        /**
+         * Index after the last affected token in the old document.
+         */
+        public int getOldEnd() {
+            return oldEnd;
+        }
+
+        /**
+         * Index of the first affected token in the new document.
+         */
+        public int getNewStart() {
+            return newStart;
+        }
+
+        /**
+         * Index after the last affected token in the new document.
+         */
+        public int getNewEnd() {
+            return newEnd;
+        }
+
+        public String toString() {
+            String[] names = { "INSERT", "DELETE", "CHANGE" };
+            return names[type] + " [" + oldStart + "," + oldEnd + ") -> [" + newStart + "," + newEnd + ")";
+        }
+    }
+
+    private final long[] a;
+    private final long[] b;
+    private final int maxCost;
+
+    /** Working storage for the forward and backward searches, shared by all regions. */
+    private final int[] forward;
+    private final int[] backward;
+
+    /** Runs of equal tokens found so far, as triples (old start, new start, length). */
+    private int[] matches = new int[48];
+    private int matchCount = 0;
+
+    private DocumentDiff(long[] a, long[] b, int maxCost) {
+        this.a = a;
+        this.b = b;
+        this.maxCost = maxCost;
+        int size = 2 * Math.min(a.length + b.length, 2 * maxCost + 2) + 4;
+        this.forward = new int[size];
+        this.backward = new int[size];
+    }
+
+    /**
+     * Compares two documents.
+     *
+     * @param oldDocument The old version.
+     * @param newDocument The new version.
+     * @return The edits turning the old version into the new one, ordered by position.
+     * An empty list means that the documents are equal.
+     */
+    public static List<Edit> compare(ParsedDocument oldDocument, ParsedDocument newDocument) {
+        return compare(oldDocument, newDocument, DEFAULT_MAX_COST);
+    }
+
+    /**
+     * Compares the documents of two Scrapers. Their positions don't matter.
+     *
+     * @param oldScraper The old version.
+     * @param newScraper The new version.
+     * @return The edits turning the old version into the new one, ordered by position.
+     */
+    public static List<Edit> compare(Scraper oldScraper, Scraper newScraper) {
+        return compare(oldScraper.getDocument(), newScraper.getDocument());
+    }
+
+    /**
+     * Compares two documents with a limit on the effort.
+     *
+     * @param oldDocument The old version.
+     * @param newDocument The new version.
+     * @param maxCost The maximum number of steps spent on refining a region.
+     * @return The edits turning the old version into the new one, ordered by position.
+     */
+    public static List<Edit> compare(ParsedDocument oldDocument, ParsedDocument newDocument, int maxCost) {
+        boolean useSource = oldDocument.getSource() != null && newDocument.getSource() != null;
+        return compare(hashTokens(oldDocument, useSource), hashTokens(newDocument, useSource), maxCost);
+    }
+
+    /**
+     * Compares two sequences of token hashes.
+     */
+    static List<Edit> compare(long[] oldHashes, long[] newHashes, int maxCost) {
+        if (maxCost < 1) {
+            throw new IllegalArgumentException("maxCost must be positive");
+        }
+        DocumentDiff diff = new DocumentDiff(oldHashes, newHashes, maxCost);
+        diff.diff(0, oldHashes.length, 0, newHashes.length);
+        return diff.edits();
+    }
+
+    /**
+     * Computes one hash per token.
+     *
+     * @param useSource true: hash the original source of every token, false: hash its toString().
+     */
+    static long[] hashTokens(ParsedDocument document, boolean useSource) {
+        long[] result = new long[document.size()];
+        String source = document.getSource();
+        for (int i = 0; i < result.length; i++) {
+            AbstractHTMLToken token = document.get(i);
+            long kind = token instanceof HTMLTag ? 1 : token instanceof HTMLComment ? 2 : 3;
+            long hash = useSource
+                    ? Hashing.hash(source, document.getOffset(i), document.getOffset(i + 1))
+                    : Hashing.hash(token.toString());
+            result[i] = Hashing.combine(hash, kind);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the runs of equal tokens between a[aStart, aEnd) and b[bStart, bEnd).
+     */
+    private void diff(int aStart, int aEnd, int bStart, int bEnd) {
+        int prefix = 0;
+        while (aStart + prefix < aEnd && bStart + prefix < bEnd && a[aStart + prefix] == b[bStart + prefix]) {
+            prefix++;
+        }
+        addMatch(aStart, bStart, prefix);
+        aStart += prefix;
+        bStart += prefix;
+        int suffix = 0;
+        while (aStart < aEnd - suffix && bStart < bEnd - suffix && a[aEnd - suffix - 1] == b[bEnd - suffix - 1]) {
+            suffix++;
+        }
+        aEnd -= suffix;
+        bEnd -= suffix;
+
+        if (aStart < aEnd && bStart < bEnd) {
+            int[] snake = middleSnake(aStart, aEnd, bStart, bEnd);
+            if (snake != null) {
+                diff(aStart, snake[0], bStart, snake[1]);
+                addMatch(snake[0], snake[1], snake[2] - snake[0]);
+                diff(snake[2], aEnd, snake[3], bEnd);
+            }
+            // else: too expensive, the whole region remains one change
+        }
+        addMatch(aEnd, bEnd, suffix);
+    }
+
+    /**
+     * Finds the middle snake of an optimal edit path for a[aStart, aEnd) and b[bStart, bEnd),
+     * searching forward from the start and backward from the end at the same time until
+     * the two searches meet.
+     *
+     * @return {old start, new start, old end, new end} of the snake, or null, if
+     * more than maxCost steps would be needed.
+     */
+    private int[] middleSnake(int aStart, int aEnd, int bStart, int bEnd) {
+        int n = aEnd - aStart;
+        int m = bEnd - bStart;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int maxD = Math.min((n + m + 1) / 2, maxCost);
+        int offset = maxD + 1;
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+        for (int d = 0; d <= maxD; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1])) {
+                    x = forward[offset + k + 1];
+                } else {
+                    x = forward[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                int startX = x;
+                int startY = y;
+                while (x < n && y < m && a[aStart + x] == b[bStart + y]) {
+                    x++;
+                    y++;
+                }
+                forward[offset + k] = x;
+                int reverse = delta - k;
+                if (odd && reverse >= -(d - 1) && reverse <= d - 1
+                        && x + backward[offset + reverse] >= n) {
+                    return new int[] { aStart + startX, bStart + startY, aStart + x, bStart + y };
+                }
+            }
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && backward[offset + k - 1] < backward[offset + k + 1])) {
+                    x = backward[offset + k + 1];
+                } else {
+                    x = backward[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                int startX = x;
+                int startY = y;
+                while (x < n && y < m && a[aEnd - 1 - x] == b[bEnd - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                backward[offset + k] = x;
+                int reverse = delta - k;
+                if (!odd && reverse >= -d && reverse <= d
+                        && x + forward[offset + reverse] >= n) {
+                    return new int[] { aEnd - x, bEnd - y, aEnd - startX, bEnd - startY };
+                }
+            }
+        }
+        return null;
+    }
+
+    private void addMatch(int aStart, int bStart, int length) {
+        if (length <= 0) {
+            return;
+        }
+        if (matchCount > 0) {
+            int last = 3 * (matchCount - 1);
+            if (matches[last] + matches[last + 2] == aStart && matches[last + 1] + matches[last + 2] == bStart) {
+                matches[last + 2] += length;
+                return;
+            }
+        }
+        if (3 * matchCount + 3 > matches.length) {
+            int[] larger = new int[matches.length * 2];
+            System.arraycopy(matches, 0, larger, 0, matches.length);
+            matches = larger;
+        }
+        matches[3 * matchCount] = aStart;
+        matches[3 * matchCount + 1] = bStart;
+        matches[3 * matchCount + 2] = length;
+        matchCount++;
+    }
+
+    /**
+     * Turns the runs of equal tokens into the edits between them.
+     */
+    private List<Edit> edits() {
+        List<Edit> result = new ArrayList<Edit>();
+        int aPosition = 0;
+        int bPosition = 0;
+        for (int i = 0; i <= matchCount; i++) {
+            int aNext = i < matchCount ? matches[3 * i] : a.length;
+            int bNext = i < matchCount ? matches[3 * i + 1] : b.length;
+            if (aNext > aPosition || bNext > bPosition) {
+                result.add(new Edit(aPosition, aNext, bPosition, bNext));
+            }
+            if (i < matchCount) {
+                aPosition = aNext + matches[3 * i + 2];
+                bPosition = bNext + matches[3 * i + 2];
+            }
+        }
+        return result;
+    }
+}
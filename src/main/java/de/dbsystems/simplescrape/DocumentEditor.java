@@ -0,0 +1,307 @@
+package de.dbsystems.simplescrape;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A modifiable sequence of tokens, e.g. to rewrite a page: tokens can be removed,
+ * inserted and replaced, in bulk, and the result can be written as HTML.
+ * <p>
+ * The tokens are kept in a gap buffer: an array with a gap of unused slots at the
+ * place of the last edit. An edit moves the gap to its position, which costs as much as
+ * the distance to the previous edit, and then only fills or widens the gap. So a series
+ * of edits from the start of a page to its end costs about as much as copying the page
+ * once, no matter how many edits there are.
+ * </p>
+ * <p>
+ * The editor remembers which tokens come unchanged from the document it was created
+ * for, so that their original source can be written (see DocumentWriter).
+ * </p>
+ * <p>This class is not thread-safe. The ParsedDocument it was created from doesn't change.</p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class DocumentEditor {
+    private AbstractHTMLToken[] buffer;
+
+    /**
+     * For every slot of buffer: the index of the token within base, or -1 for inserted
+     * tokens. null, if the source of base is unknown.
+     */
+    private int[] origins;
+
+    /** The document the tokens come from, or null. */
+    private final ParsedDocument base;
+
+    /** Index of the first unused slot in buffer */
+    private int gapStart;
+
+    /** Index after the last unused slot in buffer */
+    private int gapEnd;
+
+    private final List<AbstractHTMLToken> view = new View();
+
+    /**
+     * Creates an editor for the tokens of a document.
+     *
+     * @param document The document. It doesn't change.
+     */
+    public DocumentEditor(ParsedDocument document) {
+        this(document.getTokens(), document.getSource() != null ? document : null);
+    }
+
+    /**
+     * Creates an editor for a list of tokens. The list is copied.
+     *
+     * @param tokens The tokens.
+     */
+    public DocumentEditor(List<AbstractHTMLToken> tokens) {
+        this(tokens, null);
+    }
+
+    private DocumentEditor(List<AbstractHTMLToken> tokens, ParsedDocument base) {
+        this.base = base;
+        int size = tokens.size();
+        buffer = new AbstractHTMLToken[size + Math.max(16, size / 8)];
+        for (int i = 0; i < size; i++) {
+            buffer[i] = tokens.get(i);
+        }
+        if (base != null) {
+            origins = new int[buffer.length];
+            for (int i = 0; i < size; i++) {
+                origins[i] = i;
+            }
+        }
+        gapStart = size;
+        gapEnd = buffer.length;
+    }
+
+    /**
+     * Returns the number of tokens.
+     */
+    public int size() {
+        return buffer.length - (gapEnd - gapStart);
+    }
+
+    /**
+     * Returns the token at the given index.
+     *
+     * @throws IndexOutOfBoundsException If index is out of range.
+     */
+    public AbstractHTMLToken get(int index) {
+        checkRange(index, index + 1);
+        return buffer[index < gapStart ? index : index + gapEnd - gapStart];
+    }
+
+    /**
+     * Returns the tokens as an unmodifiable list. The list is a view, which reflects
+     * all later edits.
+     */
+    public List<AbstractHTMLToken> getTokens() {
+        return view;
+    }
+
+    /**
+     * Removes tokens.
+     *
+     * @param start The index of the first token to be removed.
+     * @param end The index after the last token to be removed.
+     */
+    public void remove(int start, int end) {
+        replace(start, end, Collections.<AbstractHTMLToken>emptyList());
+    }
+
+    /**
+     * Inserts tokens.
+     *
+     * @param index The index the first inserted token will have. Tokens at and after it
+     * move back.
+     * @param tokens The tokens to insert.
+     */
+    public void insert(int index, List<AbstractHTMLToken> tokens) {
+        replace(index, index, tokens);
+    }
+
+    /**
+     * Inserts one token.
+     *
+     * @param index The index the token will have.
+     * @param token The token.
+     */
+    public void insert(int index, AbstractHTMLToken token) {
+        replace(index, index, Collections.singletonList(token));
+    }
+
+    /**
+     * Replaces a range of tokens by others. This is the general form of remove() and
+     * insert().
+     *
+     * @param start The index of the first token to be replaced.
+     * @param end The index after the last token to be replaced.
+     * @param tokens The new tokens; there may be more or fewer than those replaced.
+     * @throws IndexOutOfBoundsException If the range is not within 0 and size().
+     */
+    public void replace(int start, int end, List<AbstractHTMLToken> tokens) {
+        checkRange(start, end);
+        moveGap(end);
+        // the replaced tokens become part of the gap
+        for (int i = start; i < end; i++) {
+            buffer[i] = null;
+        }
+        gapStart = start;
+        int count = tokens.size();
+        if (count > gapEnd - gapStart) {
+            grow(count);
+        }
+        for (int i = 0; i < count; i++) {
+            AbstractHTMLToken token = tokens.get(i);
+            if (token == null) {
+                throw new IllegalArgumentException("tokens must not contain null");
+            }
+            if (origins != null) {
+                origins[gapStart] = -1;
+            }
+            buffer[gapStart++] = token;
+        }
+    }
+
+    /**
+     * Returns a document with the current tokens. Its source is unknown.
+     */
+    public ParsedDocument toDocument() {
+        int size = size();
+        AbstractHTMLToken[] tokens = new AbstractHTMLToken[size];
+        System.arraycopy(buffer, 0, tokens, 0, gapStart);
+        System.arraycopy(buffer, gapEnd, tokens, gapStart, buffer.length - gapEnd);
+        return new ParsedDocument(tokens, null, null);
+    }
+
+    /**
+     * Writes the tokens as HTML.
+     *
+     * @param writer Where to write to. It is not closed.
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(Writer writer) throws IOException {
+        writeTo(new DocumentWriter(writer));
+    }
+
+    /**
+     * Writes the tokens; runs of tokens that still are in their original order are
+     * copied from the source of the original document in one piece.
+     */
+    void writeTo(DocumentWriter writer) throws IOException {
+        int i = 0;
+        int size = size();
+        while (i < size) {
+            int slot = i < gapStart ? i : i + gapEnd - gapStart;
+            int origin = origins == null ? -1 : origins[slot];
+            if (origin < 0) {
+                writer.write(buffer[slot]);
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (end < size) {
+                int next = end < gapStart ? end : end + gapEnd - gapStart;
+                if (origins[next] != origin + (end - i)) {
+                    break;
+                }
+                end++;
+            }
+            writer.writeSource(base, origin, origin + (end - i));
+            i = end;
+        }
+    }
+
+    private void checkRange(int start, int end) {
+        if (start < 0 || end > size() || start > end) {
+            throw new IndexOutOfBoundsException("range [" + start + ", " + end + ") is not within 0 and " + size());
+        }
+    }
+
+    /**
+     * Moves the gap, so that it starts at index.
+     */
+    private void moveGap(int index) {
+        if (index < gapStart) {
+            int count = gapStart - index;
+            System.arraycopy(buffer, index, buffer, gapEnd - count, count);
+            if (origins != null) {
+                System.arraycopy(origins, index, origins, gapEnd - count, count);
+            }
+            clear(index, Math.min(gapStart, gapEnd - count));
+            gapStart = index;
+            gapEnd -= count;
+        } else if (index > gapStart) {
+            int count = index - gapStart;
+            System.arraycopy(buffer, gapEnd, buffer, gapStart, count);
+            if (origins != null) {
+                System.arraycopy(origins, gapEnd, origins, gapStart, count);
+            }
+            clear(Math.max(gapEnd, gapStart + count), gapEnd + count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    /**
+     * Drops references in unused slots, so that removed tokens can be collected.
+     */
+    private void clear(int from, int to) {
+        for (int i = from; i < to; i++) {
+            buffer[i] = null;
+        }
+    }
+
+    /**
+     * Enlarges the gap, so that it has room for at least count tokens.
+     */
+    private void grow(int count) {
+        int tail = buffer.length - gapEnd;
+        int capacity = Math.max(buffer.length + buffer.length / 2, size() + count + 16);
+        AbstractHTMLToken[] larger = new AbstractHTMLToken[capacity];
+        System.arraycopy(buffer, 0, larger, 0, gapStart);
+        System.arraycopy(buffer, gapEnd, larger, capacity - tail, tail);
+        buffer = larger;
+        if (origins != null) {
+            int[] largerOrigins = new int[capacity];
+            System.arraycopy(origins, 0, largerOrigins, 0, gapStart);
+            System.arraycopy(origins, gapEnd, largerOrigins, capacity - tail, tail);
+            origins = largerOrigins;
+        }
+        gapEnd = capacity - tail;
+    }
+
+    private class View extends AbstractList<AbstractHTMLToken> implements RandomAccess {
+        public AbstractHTMLToken get(int index) {
+            return DocumentEditor.this.get(index);
+        }
+
+        public int size() {
+            return DocumentEditor.this.size();
+        }
+    }
+}
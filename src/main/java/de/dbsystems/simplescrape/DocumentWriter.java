@@ -0,0 +1,149 @@
+package de.dbsystems.simplescrape;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Writes documents as HTML. Where the original source of the tokens is known, it is
+ * copied verbatim instead of being rebuilt from the tokens, so the output is exactly the
+ * input (including the spelling of tags, quotes and whitespace within tags) and is
+ * written in large blocks. This applies to documents parsed with their source (see
+ * ParsedDocument.parse(Tokenizer, boolean)) and to the tokens of a DocumentEditor
+ * which haven't been replaced; all other tokens are written with their toString().
+ * <p>This class is not thread-safe.</p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class DocumentWriter implements Closeable, Flushable {
+    private final static int BUFFER_SIZE = 1 << 16;
+
+    private final Writer out;
+
+    /**
+     * Creates a writer for characters.
+     *
+     * @param out Where to write to.
+     */
+    public DocumentWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Creates a writer for bytes.
+     *
+     * @param out Where to write to.
+     * @param charset The encoding of the output. To reproduce the input exactly, use
+     * the encoding the input was read with.
+     */
+    public DocumentWriter(OutputStream out, Charset charset) {
+        this(new BufferedWriter(new OutputStreamWriter(out, charset), BUFFER_SIZE));
+    }
+
+    /**
+     * Creates a writer for a channel, e.g. a FileChannel or a socket.
+     *
+     * @param channel Where to write to.
+     * @param charset The encoding of the output.
+     */
+    public DocumentWriter(WritableByteChannel channel, Charset charset) {
+        this(Channels.newWriter(channel, charset.newEncoder(), BUFFER_SIZE));
+    }
+
+    /**
+     * Writes a document. If its source is known, it is written as it is.
+     *
+     * @param document The document.
+     * @throws IOException If writing fails.
+     */
+    public void write(ParsedDocument document) throws IOException {
+        String source = document.getSource();
+        if (source != null) {
+            out.write(source);
+        } else {
+            write(document.getTokens());
+        }
+    }
+
+    /**
+     * Writes the current tokens of an editor. The tokens that came from the document the
+     * editor was created for are written as they were in its source, if known.
+     *
+     * @param editor The editor.
+     * @throws IOException If writing fails.
+     */
+    public void write(DocumentEditor editor) throws IOException {
+        editor.writeTo(this);
+    }
+
+    /**
+     * Writes tokens with their toString().
+     *
+     * @param tokens The tokens.
+     * @throws IOException If writing fails.
+     */
+    public void write(List<AbstractHTMLToken> tokens) throws IOException {
+        for (int i = 0; i < tokens.size(); i++) {
+            write(tokens.get(i));
+        }
+    }
+
+    /**
+     * Writes one token with its toString().
+     */
+    void write(AbstractHTMLToken token) throws IOException {
+        out.write(token.toString());
+    }
+
+    /**
+     * Writes the source of a range of tokens of a document.
+     *
+     * @param document The document. Its source must be known.
+     * @param start The index of the first token.
+     * @param end The index after the last token.
+     */
+    void writeSource(ParsedDocument document, int start, int end) throws IOException {
+        int from = document.getOffset(start);
+        out.write(document.getSource(), from, document.getOffset(end) - from);
+    }
+
+    /**
+     * Writes everything that is still buffered.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Flushes and closes the underlying writer, stream or channel.
+     */
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,608 @@
+package de.dbsystems.simplescrape;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Distributes many requests over many servers politely and efficiently. Each host gets
+ * its own queue, a limit for its concurrent requests and a limit for its request rate
+ * (a token bucket). Hosts take turns, so that a slow host with a long queue doesn't hold
+ * up the others, and the total number of concurrent requests is limited, too.
+ * <p>
+ * The limit for the concurrent requests of a host adapts to the host: it is halved when
+ * requests fail because the host is overloaded or unreachable (timeouts, 429, 5xx), and
+ * reduced by one when responses get much slower than the fastest seen so far. With fast
+ * responses it grows back by one per limit's worth of requests, up to the configured
+ * maximum. After consecutive failures, a host is paused for an increasing time.
+ * The adapted state of hosts without requests is kept for the most recently used
+ * ones only (see setMaxIdleHosts()), so that long crawls don't use up the memory.
+ * </p>
+ * <pre>
+ * FetchScheduler scheduler = new FetchScheduler(new HTTPHelper());
+ * scheduler.setMaxRequestsPerHost(4);
+ * scheduler.setRequestsPerSecond(2, 4);
+ * for (String url : urls) {
+ *     scheduler.getWebpageForScraping(url).thenAccept(...);
+ * }
+ * </pre>
+ * Configure the scheduler before submitting requests; changes apply to hosts seen later.
+ * Call shutdown() when the scheduler isn't needed anymore.
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class FetchScheduler {
+    /**
+     * Default for the maximum number of concurrent requests per host.
+     */
+    public final static int DEFAULT_MAX_REQUESTS_PER_HOST = 2;
+
+    /**
+     * Default for the maximum number of concurrent requests altogether.
+     */
+    public final static int DEFAULT_MAX_REQUESTS = 64;
+
+    /**
+     * Default for the number of hosts without requests whose state is kept.
+     */
+    public final static int DEFAULT_MAX_IDLE_HOSTS = 10000;
+
+    /** Responses slower than this (plus twice the fastest one) count as slow */
+    private final static long SLOW_MARGIN_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final static long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final static long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final HTTPHelper helper;
+
+    private int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+
+    private int maxRequests = DEFAULT_MAX_REQUESTS;
+
+    /** Requests per second and host, or 0 for no limit */
+    private double requestsPerSecond = 0;
+
+    private int burst = 1;
+
+    private int maxIdleHosts = DEFAULT_MAX_IDLE_HOSTS;
+
+    /** All hosts with queued or running requests, in the order of their turns. Guarded by this. */
+    private final LinkedHashMap<String, Host> hosts = new LinkedHashMap<String, Host>();
+
+    /**
+     * Hosts without requests, kept for their statistics and adapted limits, the one idle
+     * for the longest time first. At most maxIdleHosts. Guarded by this.
+     */
+    private final LinkedHashMap<String, Host> idleHosts = new LinkedHashMap<String, Host>();
+
+    /** Guarded by this */
+    private int running = 0;
+
+    /** The time of the next scheduled dispatch(), or Long.MAX_VALUE. Guarded by this. */
+    private long wakeUp = Long.MAX_VALUE;
+
+    /** Guarded by this */
+    private boolean shutdown = false;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            new BatchScraper.DaemonThreadFactory("fetch-scheduler-"));
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param helper The helper doing the requests.
+     */
+    public FetchScheduler(HTTPHelper helper) {
+        this.helper = helper;
+    }
+
+    /**
+     * Sets the maximum number of concurrent requests per host.
+     * Default: DEFAULT_MAX_REQUESTS_PER_HOST.
+     */
+    public synchronized void setMaxRequestsPerHost(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be positive");
+        }
+        this.maxRequestsPerHost = max;
+    }
+
+    /**
+     * Sets the maximum number of concurrent requests altogether. Default: DEFAULT_MAX_REQUESTS.
+     */
+    public synchronized void setMaxRequests(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be positive");
+        }
+        this.maxRequests = max;
+    }
+
+    /**
+     * Limits the rate of requests per host. Default: no limit.
+     *
+     * @param requestsPerSecond The average number of requests per second, or 0 for no limit.
+     * @param burst The number of requests that may be started at once after a pause.
+     */
+    public synchronized void setRequestsPerSecond(double requestsPerSecond, int burst) {
+        if (requestsPerSecond < 0 || burst < 1) {
+            throw new IllegalArgumentException("requestsPerSecond must not be negative, burst must be positive");
+        }
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+    }
+
+    /**
+     * Sets the number of hosts without requests whose state (adapted limits, pauses and
+     * statistics) is kept. When there are more, the host idle for the longest time is
+     * forgotten and starts with the defaults when it gets requests again.
+     * Default: DEFAULT_MAX_IDLE_HOSTS.
+     */
+    public synchronized void setMaxIdleHosts(int max) {
+        if (max < 0) {
+            throw new IllegalArgumentException("max must not be negative");
+        }
+        this.maxIdleHosts = max;
+        trimIdleHosts();
+    }
+
+    /**
+     * Acquires the content of a webpage as soon as its host's limits allow.
+     *
+     * @param urlString The URL to be retrieved from.
+     * @return The content as a tokenized Scraper; see HTTPHelper.getWebpageForScrapingAsync().
+     */
+    public CompletableFuture<Scraper> getWebpageForScraping(String urlString) {
+        return schedule(urlString, new Function<String, CompletableFuture<Scraper>>() {
+            public CompletableFuture<Scraper> apply(String url) {
+                return helper.getWebpageForScrapingAsync(url);
+            }
+        });
+    }
+
+    /**
+     * Acquires the raw content of a webpage as soon as its host's limits allow.
+     *
+     * @param urlString The URL to be retrieved from.
+     * @return The content; see HTTPHelper.getWebpageContentAsync().
+     */
+    public CompletableFuture<byte[]> getWebpageContent(String urlString) {
+        return schedule(urlString, new Function<String, CompletableFuture<byte[]>>() {
+            public CompletableFuture<byte[]> apply(String url) {
+                return helper.getWebpageContentAsync(url);
+            }
+        });
+    }
+
+    /**
+     * Runs any request for a URL as soon as its host's limits allow.
+     *
+     * @param urlString The URL; its scheme, host and port determine the host.
+     * @param request Starts the request for the URL without blocking.
+     * @return The result of the request.
+     */
+    public <T> CompletableFuture<T> schedule(String urlString, Function<String, CompletableFuture<T>> request) {
+        String hostName;
+        try {
+            hostName = hostOf(urlString);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Task<T> task = new Task<T>(urlString, request);
+        synchronized (this) {
+            if (shutdown) {
+                return CompletableFuture.failedFuture(
+                        new RejectedExecutionException("the scheduler has been shut down"));
+            }
+            Host host = hosts.get(hostName);
+            if (host == null) {
+                host = idleHosts.remove(hostName);
+                if (host == null) {
+                    host = new Host(hostName, maxRequestsPerHost, requestsPerSecond, burst);
+                }
+                hosts.put(hostName, host);
+            }
+            host.queue.add(task);
+        }
+        dispatch();
+        return task.result;
+    }
+
+    /**
+     * Returns the statistics of all hosts with requests and of the idle hosts still kept.
+     */
+    public synchronized List<HostStatistics> getStatistics() {
+        List<HostStatistics> statistics = new ArrayList<HostStatistics>();
+        for (Host host : hosts.values()) {
+            statistics.add(new HostStatistics(host));
+        }
+        for (Host host : idleHosts.values()) {
+            statistics.add(new HostStatistics(host));
+        }
+        return statistics;
+    }
+
+    /**
+     * Returns the number of requests waiting for their turn.
+     */
+    public synchronized int getQueuedCount() {
+        int count = 0;
+        for (Host host : hosts.values()) {
+            count += host.queue.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of requests currently running.
+     */
+    public synchronized int getRunningCount() {
+        return running;
+    }
+
+    /**
+     * Stops the scheduler's thread. Running requests are finished, but no further ones
+     * are started: the results of queued requests and of requests scheduled later fail
+     * with a RejectedExecutionException.
+     */
+    public void shutdown() {
+        List<Task<?>> dropped = new ArrayList<Task<?>>();
+        synchronized (this) {
+            shutdown = true;
+            for (Host host : hosts.values()) {
+                dropped.addAll(host.queue);
+                host.queue.clear();
+            }
+        }
+        timer.shutdownNow();
+        for (Task<?> task : dropped) {
+            task.result.completeExceptionally(new RejectedExecutionException("the scheduler has been shut down"));
+        }
+    }
+
+    /**
+     * Starts all requests the limits allow. The hosts take turns, one request each.
+     */
+    private void dispatch() {
+        List<Task<?>> started = new ArrayList<Task<?>>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            long next = Long.MAX_VALUE;
+            boolean progress = true;
+            while (progress && running < maxRequests) {
+                progress = false;
+                List<Host> turns = new ArrayList<Host>(hosts.values());
+                for (Host host : turns) {
+                    if (running >= maxRequests) {
+                        break;
+                    }
+                    if (host.queue.isEmpty() || host.active >= host.limit) {
+                        continue;
+                    }
+                    long ready = host.readyAt(now);
+                    if (ready > now) {
+                        next = Math.min(next, ready);
+                        continue;
+                    }
+                    host.take(now);
+                    Task<?> task = host.queue.poll();
+                    task.host = host;
+                    host.active++;
+                    running++;
+                    started.add(task);
+                    progress = true;
+                    // the host goes to the end of the line
+                    hosts.remove(host.name);
+                    hosts.put(host.name, host);
+                }
+            }
+            if (next != Long.MAX_VALUE && next < wakeUp && !shutdown) {
+                wakeUp = next;
+                timer.schedule(new Runnable() {
+                    public void run() {
+                        synchronized (FetchScheduler.this) {
+                            wakeUp = Long.MAX_VALUE;
+                        }
+                        dispatch();
+                    }
+                }, next - now, TimeUnit.NANOSECONDS);
+            }
+        }
+        for (Task<?> task : started) {
+            task.start();
+        }
+    }
+
+    /**
+     * Accounts for a finished request and starts the next ones.
+     */
+    private void finished(Host host, long nanos, Throwable error) {
+        synchronized (this) {
+            running--;
+            host.active--;
+            host.finished(System.nanoTime(), nanos, error);
+            if (host.queue.isEmpty() && host.active == 0) {
+                hosts.remove(host.name);
+                idleHosts.put(host.name, host);
+                trimIdleHosts();
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Forgets the hosts idle for the longest time, until at most maxIdleHosts are left.
+     */
+    private synchronized void trimIdleHosts() {
+        Iterator<Host> iterator = idleHosts.values().iterator();
+        while (idleHosts.size() > maxIdleHosts && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Returns the key of a URL's host: scheme, host and port.
+     */
+    private static String hostOf(String urlString) throws IOException {
+        try {
+            URI uri = new URI(urlString);
+            if (uri.getHost() == null || uri.getScheme() == null) {
+                throw new MalformedURLException("no host in " + urlString);
+            }
+            return uri.getScheme().toLowerCase() + "://" + uri.getHost().toLowerCase()
+                    + (uri.getPort() >= 0 ? ":" + uri.getPort() : "");
+        } catch (URISyntaxException e) {
+            throw new MalformedURLException(e.getMessage());
+        }
+    }
+
+    /**
+     * Whether a failure means that the host can't cope with more requests.
+     */
+    private static boolean isOverload(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof HTTPStatusException) {
+            int code = ((HTTPStatusException) error).getStatusCode();
+            return code == 429 || code >= 500;
+        }
+        return error instanceof IOException;
+    }
+
+    private class Task<T> {
+        final String url;
+        final Function<String, CompletableFuture<T>> request;
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+        Host host;
+
+        Task(String url, Function<String, CompletableFuture<T>> request) {
+            this.url = url;
+            this.request = request;
+        }
+
+        void start() {
+            final long start = System.nanoTime();
+            CompletableFuture<T> future;
+            try {
+                future = request.apply(url);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete(new BiConsumer<T, Throwable>() {
+                public void accept(T value, Throwable error) {
+                    finished(host, System.nanoTime() - start, error);
+                    if (error != null) {
+                        result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                    } else {
+                        result.complete(value);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * The queue, limits and observations of a host. Guarded by the scheduler.
+     */
+    private static class Host {
+        final String name;
+        final ArrayDeque<Task<?>> queue = new ArrayDeque<Task<?>>();
+        final int maxLimit;
+        final double requestsPerSecond;
+        final int burst;
+
+        /** The current limit for concurrent requests, between 1 and maxLimit */
+        int limit;
+        int active = 0;
+        /** Successful requests since the limit was last changed */
+        int successes = 0;
+
+        double tokens;
+        long refilled = System.nanoTime();
+
+        int consecutiveFailures = 0;
+        long pausedUntil = 0;
+
+        long completed = 0;
+        long failed = 0;
+        /** Smoothed response time */
+        double averageNanos = 0;
+        long fastestNanos = Long.MAX_VALUE;
+
+        Host(String name, int maxLimit, double requestsPerSecond, int burst) {
+            this.name = name;
+            this.maxLimit = maxLimit;
+            this.limit = maxLimit;
+            this.requestsPerSecond = requestsPerSecond;
+            this.burst = burst;
+            this.tokens = burst;
+        }
+
+        /**
+         * Returns the time from which on the host may get its next request.
+         */
+        long readyAt(long now) {
+            long ready = Math.max(now, pausedUntil);
+            if (requestsPerSecond > 0) {
+                refill(now);
+                if (tokens < 1) {
+                    ready = Math.max(ready, now + (long) Math.ceil((1 - tokens) * 1e9 / requestsPerSecond));
+                }
+            }
+            return ready;
+        }
+
+        void take(long now) {
+            if (requestsPerSecond > 0) {
+                refill(now);
+                tokens--;
+            }
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(burst, tokens + (now - refilled) * requestsPerSecond / 1e9);
+            refilled = now;
+        }
+
+        void finished(long now, long nanos, Throwable error) {
+            if (error != null) {
+                failed++;
+                if (isOverload(error)) {
+                    consecutiveFailures++;
+                    limit = Math.max(1, limit / 2);
+                    successes = 0;
+                    long backoff = MIN_BACKOFF_NANOS << Math.min(consecutiveFailures - 1, 16);
+                    pausedUntil = now + Math.min(backoff, MAX_BACKOFF_NANOS);
+                }
+                return;
+            }
+            completed++;
+            consecutiveFailures = 0;
+            fastestNanos = Math.min(fastestNanos, nanos);
+            averageNanos = averageNanos == 0 ? nanos : 0.8 * averageNanos + 0.2 * nanos;
+            if (averageNanos > 2 * fastestNanos + SLOW_MARGIN_NANOS && limit > 1) {
+                // the host gets slower under load
+                limit--;
+                successes = 0;
+                // start anew from the current speed
+                averageNanos = nanos;
+            } else if (limit < maxLimit && ++successes >= limit) {
+                limit++;
+                successes = 0;
+            }
+        }
+    }
+
+    /**
+     * A snapshot of the state of a host.
+     */
+    public static class HostStatistics {
+        private final String host;
+        private final int queued;
+        private final int active;
+        private final int limit;
+        private final long completed;
+        private final long failed;
+        private final double averageLatency;
+
+        HostStatistics(Host host) {
+            this.host = host.name;
+            this.queued = host.queue.size();
+            this.active = host.active;
+            this.limit = host.limit;
+            this.completed = host.completed;
+            this.failed = host.failed;
+            this.averageLatency = host.averageNanos / 1e6;
+        }
+
+        /**
+         * Returns the host, as scheme://host[:port].
+         */
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * Returns the number of requests waiting for their turn.
+         */
+        public int getQueuedCount() {
+            return queued;
+        }
+
+        /**
+         * Returns the number of running requests.
+         */
+        public int getActiveCount() {
+            return active;
+        }
+
+        /**
+         * Returns the current limit for concurrent requests.
+         */
+        public int getConcurrencyLimit() {
+            return limit;
+        }
+
+        /**
+         * Returns the number of successful requests.
+         */
+        public long getCompletedCount() {
+            return completed;
+        }
+
+        /**
+         * Returns the number of failed requests.
+         */
+        public long getFailedCount() {
+            return failed;
+        }
+
+        /**
+         * Returns the smoothed time of the recent successful requests, in milliseconds.
+         */
+        public double getAverageLatency() {
+            return averageLatency;
+        }
+
+        public String toString() {
+            return host + ": " + active + " active (limit " + limit + "), " + queued + " queued, "
+                    + completed + " completed, " + failed + " failed, "
+                    + String.format("%.1f ms", averageLatency);
+        }
+    }
+}
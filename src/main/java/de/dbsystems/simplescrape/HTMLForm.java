@@ -0,0 +1,274 @@
+package de.dbsystems.simplescrape;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A form of a webpage together with its fields, as returned by
+ * {@link Scraper#extractForms()}. Useful to fill in and submit login or search forms.
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class HTMLForm {
+    /**
+     * The names of all tags relevant to forms, in lower case.
+     */
+    final static String[] TAG_NAMES = { "form", "input", "select", "option", "textarea", "button" };
+
+    private final HTMLTag tag;
+    private final int position;
+    private final List<Field> fields = new ArrayList<Field>();
+
+    HTMLForm(HTMLTag tag, int position) {
+        this.tag = tag;
+        this.position = position;
+    }
+
+    /**
+     * Returns the value of an attribute of a tag, or null.
+     */
+    static String attribute(HTMLTag tag, String name) {
+        HTMLTagAttributes attributes = tag.getAttributes();
+        return attributes == null ? null : attributes.get(name);
+    }
+
+    /**
+     * Returns the form-tag.
+     */
+    public HTMLTag getTag() {
+        return tag;
+    }
+
+    /**
+     * Returns the index of the form-tag within the document.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the URL the form is submitted to, as written in the page (possibly relative).
+     *
+     * @return The URL, or an empty string, if the form is submitted to the page itself.
+     */
+    public String getAction() {
+        String action = attribute(tag, "action");
+        return action == null ? "" : action;
+    }
+
+    /**
+     * Returns the method the form is submitted with, in lower case. Default: "get".
+     */
+    public String getMethod() {
+        String method = attribute(tag, "method");
+        return method == null || method.length() == 0 ? "get" : method.toLowerCase();
+    }
+
+    /**
+     * Returns the name of the form, or null.
+     */
+    public String getName() {
+        return attribute(tag, "name");
+    }
+
+    /**
+     * Returns the id of the form, or null.
+     */
+    public String getId() {
+        return attribute(tag, "id");
+    }
+
+    /**
+     * Returns all fields of the form, in document order.
+     */
+    public List<Field> getFields() {
+        return Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * Returns the first field with a given name.
+     *
+     * @param name The name of the field (case-sensitive, like when submitting).
+     * @return The field, or null.
+     */
+    public Field getField(String name) {
+        for (Field field : fields) {
+            if (name.equals(field.getName())) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    void add(Field field) {
+        fields.add(field);
+    }
+
+    /**
+     * A field of a form: an input-, select-, textarea- or button-element.
+     */
+    public static class Field {
+        private final HTMLTag tag;
+        private final int position;
+        private final String type;
+        private String content = null;
+        private final List<Option> options = new ArrayList<Option>();
+
+        Field(HTMLTag tag, int position) {
+            this.tag = tag;
+            this.position = position;
+            String name = tag.getName().toLowerCase();
+            if (name.equals("input")) {
+                String inputType = attribute(tag, "type");
+                type = inputType == null || inputType.length() == 0 ? "text" : inputType.toLowerCase();
+            } else if (name.equals("button")) {
+                String buttonType = attribute(tag, "type");
+                type = buttonType == null || buttonType.length() == 0 ? "submit" : buttonType.toLowerCase();
+            } else {
+                type = name;
+            }
+        }
+
+        /**
+         * Returns the tag of the field.
+         */
+        public HTMLTag getTag() {
+            return tag;
+        }
+
+        /**
+         * Returns the index of the field's tag within the document.
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Returns the kind of field, in lower case: the type of input-elements (default
+         * "text") and button-elements (default "submit"), "select" or "textarea".
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Returns the name the field is submitted with, or null.
+         */
+        public String getName() {
+            return attribute(tag, "name");
+        }
+
+        /**
+         * Returns the initial value of the field: the value-attribute of input- and
+         * button-elements, the content of textarea-elements and the value of the
+         * selected (or else the first) option of select-elements.
+         *
+         * @return The value, or null, if there is none.
+         */
+        public String getValue() {
+            if (type.equals("textarea")) {
+                return content;
+            }
+            if (type.equals("select")) {
+                for (Option option : options) {
+                    if (option.isSelected()) {
+                        return option.getValue();
+                    }
+                }
+                return options.isEmpty() ? null : options.get(0).getValue();
+            }
+            return attribute(tag, "value");
+        }
+
+        /**
+         * Returns the text of a button-element, or null for other fields.
+         */
+        public String getLabel() {
+            return type.equals("textarea") ? null : content;
+        }
+
+        /**
+         * Returns whether a checkbox or radio button is checked.
+         */
+        public boolean isChecked() {
+            return attribute(tag, "checked") != null;
+        }
+
+        /**
+         * Returns whether the field is disabled.
+         */
+        public boolean isDisabled() {
+            return attribute(tag, "disabled") != null;
+        }
+
+        /**
+         * Returns the options of a select-element, or an empty list for other fields.
+         */
+        public List<Option> getOptions() {
+            return Collections.unmodifiableList(options);
+        }
+
+        void setContent(String content) {
+            this.content = content;
+        }
+
+        void add(Option option) {
+            options.add(option);
+        }
+    }
+
+    /**
+     * An option of a select-element.
+     */
+    public static class Option {
+        private final HTMLTag tag;
+        private final String label;
+
+        Option(HTMLTag tag, String label) {
+            this.tag = tag;
+            this.label = label;
+        }
+
+        /**
+         * Returns the value the option is submitted with: its value-attribute or
+         * else its text.
+         */
+        public String getValue() {
+            String value = attribute(tag, "value");
+            return value != null ? value : label;
+        }
+
+        /**
+         * Returns the text of the option, trimmed.
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Returns whether the option is selected initially.
+         */
+        public boolean isSelected() {
+            return attribute(tag, "selected") != null;
+        }
+    }
+}
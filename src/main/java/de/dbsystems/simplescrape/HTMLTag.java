@@ -1,5 +1,9 @@
 package de.dbsystems.simplescrape;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Represents tags in HTML-files. There will be one object for every opening and closing
  * tag, each (and for unary tags, too).
@@ -29,6 +33,14 @@ package de.dbsystems.simplescrape;
  */
 
 public class HTMLTag extends AbstractHTMLToken {
+    /**
+     * Names of the HTML elements that never have content and therefore never
+     * get a closing tag, even if they are not written as unary tags.
+     */
+    private final static Set<String> VOID_ELEMENTS = new HashSet<String>(Arrays.asList(
+            "area", "base", "br", "col", "embed", "hr", "img", "input",
+            "link", "meta", "param", "source", "track", "wbr"));
+
     private boolean closingTag;
     private boolean unaryTag;
 
@@ -74,7 +86,8 @@ public class HTMLTag extends AbstractHTMLToken {
             (getName().equals(b.getName()));
         return tagNameEquals &&
             isEndTag() == b.isEndTag() &&
-            attributesMatch(this, b, options);
+            attributesMatch(this, b, options) &&
+            (!(b instanceof HTMLTagPattern) || ((HTMLTagPattern)b).test(this, options));
     }
 
     private String name = "";
@@ -112,11 +125,32 @@ public class HTMLTag extends AbstractHTMLToken {
             }
             name = tagContent.substring(pos, end);
             if (end < length) {
-                attributes = new HTMLTagAttributes(tagContent.substring(end));
+                attributes = new HTMLTagAttributes(tagContent, end, length);
             }
         }
     }
 
+    /**
+     * Creates a tag from its already separated parts, without any parsing.
+     *
+     * @param name The name of the tag.
+     * @param source Contains the attributes, which are not copied.
+     * @param attributesStart The index of the attributes within source, or -1, if there
+     * are none.
+     * @param attributesEnd The index after the attributes within source.
+     * @param closingTag Whether this is an end tag.
+     * @param unaryTag Whether this is a unary tag.
+     */
+    HTMLTag(String name, String source, int attributesStart, int attributesEnd, boolean closingTag, boolean unaryTag) {
+        super();
+        this.name = name;
+        this.closingTag = closingTag;
+        this.unaryTag = unaryTag;
+        if (attributesStart >= 0) {
+            attributes = new HTMLTagAttributes(source, attributesStart, attributesEnd);
+        }
+    }
+
     /**
      * Returns the attributes of this node.
      * 
@@ -149,6 +183,22 @@ public class HTMLTag extends AbstractHTMLToken {
         return unaryTag;
     }
 
+    /**
+     * Whether or not this tag opens an element that can't have any content.
+     * This is true for unary tags, for the void elements of HTML (like br, img
+     * or input, regardless of how they were written) and for declarations
+     * like <!DOCTYPE ...> or <?xml ...?>.
+     */
+    public boolean isEmptyElement() {
+        if (unaryTag) {
+            return true;
+        }
+        if (name.length() == 0 || name.charAt(0) == '!' || name.charAt(0) == '?') {
+            return true;
+        }
+        return VOID_ELEMENTS.contains(name.toLowerCase());
+    }
+
     /**
      * Returns an HTML-representation of this tag. The attributes are returned
      * the way they were originally provided (not normalized).
@@ -32,14 +32,32 @@ import java.util.*;
 
 public class HTMLTagAttributes {
 	public final static String NO_VALUE = "";
-	private String unparsedAttributes;
 
-    private String unparsedAttributesLowerCase;
-
-    private Hashtable<String, String> attributes = null;
-    
     public final static String QUOTATION_CHARS = "'\"";
 
+    private final static int[] NO_ATTRIBUTES = new int[0];
+
+    /** The string the attributes are taken from; it may contain more than them. */
+    private final String source;
+
+    /** Index of the first character of the attributes within source */
+    private final int start;
+
+    /** Index after the last character of the attributes within source */
+    private final int end;
+
+    /** The attributes as a string, created on request */
+    private String unparsedAttributes;
+
+    /**
+     * The parsed attributes: for every attribute four offsets within source, the start
+     * and end of its name and the start and end of its value (both the same for
+     * attributes without a value). If a name occurs more than once, the last value counts.
+     * This is only assigned once it is complete, and volatile, so that tags of a
+     * ParsedDocument can be used from several threads.
+     */
+    private volatile int[] bounds = null;
+
     /**
      *  Constructs new attributes from a string.
      *  The attributes are not parsed right away. Instead, they are only parsed
@@ -50,11 +68,27 @@ public class HTMLTagAttributes {
      *  as attributesString.
      */
     public HTMLTagAttributes(String attributesString) {
-        if (attributesString == null) {
-            attributesString = "";
+        this(attributesString == null ? "" : attributesString, 0,
+                attributesString == null ? 0 : attributesString.length());
+    }
+
+    /**
+     * Constructs attributes from a part of a string, without copying it.
+     *
+     * @param source The string, e.g. the content of the tag or the source of a document.
+     * @param start The index of the first character of the attributes.
+     * @param end The index after the last character of the attributes.
+     */
+    HTMLTagAttributes(String source, int start, int end) {
+        while (start < end && source.charAt(start) <= ' ') {
+            start++;
         }
-        unparsedAttributes = attributesString.trim();
-        unparsedAttributesLowerCase = unparsedAttributes.toLowerCase();
+        while (end > start && source.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        this.source = source;
+        this.start = start;
+        this.end = end;
     }
 
     /**
@@ -63,7 +97,7 @@ public class HTMLTagAttributes {
      * @return Whether it exists or not.
      */
     public boolean exists(String name) {
-        return (get(name) != null);
+        return indexOf(getBounds(), name) >= 0;
     }
 
     /**
@@ -73,128 +107,170 @@ public class HTMLTagAttributes {
      * an empty string is returned. The result is not quoted, regardless of the quoting originally used.
      */
     public String get(String name) {
-        String nameLowerCase = name.toLowerCase();
-
-        // Delay the parsing by checking if the attribute
-        // name is in the attribute set.
+        int[] parsed = getBounds();
+        int index = indexOf(parsed, name);
+        if (index < 0) {
+            return null;
+        }
+        int valueStart = parsed[index + 2];
+        int valueEnd = parsed[index + 3];
+        return valueStart == valueEnd ? NO_VALUE : source.substring(valueStart, valueEnd);
+    }
 
-        if (attributes == null) {
-            if (unparsedAttributesLowerCase.indexOf(nameLowerCase) == -1) {
-                return null;
-            }
+    /**
+     * Tests a predicate against the value of its attribute, where it is in the source.
+     *
+     * @return false, if the attribute is not present.
+     */
+    boolean test(AttributePredicate predicate, boolean ignoreCase) {
+        int[] parsed = getBounds();
+        int index = indexOf(parsed, predicate.getName());
+        return index >= 0 && predicate.test(source, parsed[index + 2], parsed[index + 3], ignoreCase);
+    }
 
-            parse(unparsedAttributes);
+    /**
+     * Returns the offsets of the attributes, parsing them on the first call.
+     */
+    private int[] getBounds() {
+        int[] parsed = bounds;
+        if (parsed == null) {
+            // parsing twice in a race doesn't hurt
+            parsed = parse();
+            bounds = parsed;
         }
+        return parsed;
+    }
 
-        return attributes.get(nameLowerCase);
+    private int indexOf(int[] parsed, String name) {
+        return indexOf(parsed, parsed.length, name, 0, name.length());
+    }
+
+    /**
+     * Returns the index of an attribute within the offsets, or -1.
+     *
+     * @param parsed The offsets.
+     * @param count The number of offsets to search.
+     * @param string Contains the name of the attribute (in any case).
+     * @param nameStart The start of the name within string.
+     * @param nameEnd The end of the name within string.
+     */
+    private int indexOf(int[] parsed, int count, String string, int nameStart, int nameEnd) {
+        int length = nameEnd - nameStart;
+        for (int i = 0; i < count; i += 4) {
+            if (parsed[i + 1] - parsed[i] == length
+                    && source.regionMatches(true, parsed[i], string, nameStart, length)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /**
      *  Parse the attributes. Unlike XML, HTML attributes
      *  may be unary and if a value is specified, it may or may not be quoted. This algorithm
      *  respect these factors.
-     *  
+     *  <p>
+     *  The attributes are split into names, values and equal signs in one pass. A name
+     *  or value ends at a blank or an equal sign, a quoted value at the matching quotation
+     *  mark (or at the end). Surplus equal signs are ignored.
+     *  </p>
      *  Note: Parsing takes place in a lazy way. Only if details about the attributes are requested,
      *  parsing is performed.
-     *  @param input The string containing all the names and values in the way used in the HTML-code.
+     *  @return The offsets of the attributes.
      */
-    private void parse(String input) {
-        ArrayList<String> tokens = new ArrayList<String>();
-        int length = input.length();
-        // Split the attribute string into tokens
-        int i = 0;
-        while (i < length) {
-            char c = input.charAt(i);
+    private int[] parse() {
+        if (start == end) {
+            return NO_ATTRIBUTES;
+        }
+        int[] result = new int[16];
+        int count = 0;
+        // the name waiting for its value, if any
+        int keyStart = -1;
+        int keyEnd = -1;
+        boolean equals = false;
+        int i = start;
+        while (i < end) {
+            char c = source.charAt(i);
+            int tokenStart;
+            int tokenEnd;
             if (QUOTATION_CHARS.indexOf(c) >= 0) {
-                i = storeValue(input, tokens, i);
+                tokenStart = i + 1;
+                tokenEnd = source.indexOf(c, tokenStart);
+                if (tokenEnd < 0 || tokenEnd > end) {
+                    tokenEnd = end;
+                }
+                i = tokenEnd + 1;
             } else if (c == '=') {
-                // avoid leading equal signs and multiple equals signs
-                if (tokens.size() > 0 && !tokens.get(tokens.size() - 1).equals("=")) {
-                    tokens.add("=");
+                if (keyStart >= 0) {
+                    equals = true;
                 }
+                i++;
+                continue;
             } else if (c > ' ') {
-                i = storeName(input, tokens, i);
+                tokenStart = i;
+                tokenEnd = i;
+                while (tokenEnd < end && source.charAt(tokenEnd) != ' ' && source.charAt(tokenEnd) != '=') {
+                    tokenEnd++;
+                }
+                i = tokenEnd;
+            } else {
+                i++;
+                continue;
+            }
+            if (keyStart < 0) {
+                keyStart = tokenStart;
+                keyEnd = tokenEnd;
+            } else if (equals) {
+                result = append(result, count, keyStart, keyEnd, tokenStart, tokenEnd);
+                count += 4;
+                keyStart = -1;
+                equals = false;
+            } else {
+                result = append(result, count, keyStart, keyEnd, keyEnd, keyEnd);
+                count += 4;
+                keyStart = tokenStart;
+                keyEnd = tokenEnd;
             }
-            i++;
         }
-        // remove trailing equal signs
-        for (i = tokens.size() - 1; i >= 0 && tokens.get(i).equals("="); i--) {
-            tokens.remove(i);
+        if (keyStart >= 0) {
+            // a trailing equal sign is ignored
+            result = append(result, count, keyStart, keyEnd, keyEnd, keyEnd);
+            count += 4;
         }
-        
-        attributes = storeAttributes(tokens);
+        return removeDuplicates(result, count);
     }
 
-    /**
-     * Reads a value from an input string, stores it in a list of tokens
-     * and returns the position to continue from.
-     * 
-     * @param input The input string to operate upon.
-     * @param tokens The list of tokens, where the value is to be appended.
-     * @param start The index, where the value starts within input.
-     * @return The index, where the value ends. This is usually the index of the
-     * closing quotation mark, but can also be the length of input, if no further
-     * quotation mark could be found.
-     */
-    private int storeValue(String input, ArrayList<String> tokens, int start) {
-        char c = input.charAt(start);
-        int end = input.indexOf(c, start + 1);
-        if (end < 0) {
-            end = input.length();
+    private static int[] append(int[] result, int count, int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (count == result.length) {
+            result = Arrays.copyOf(result, count * 2);
         }
-        tokens.add(input.substring(start + 1, end));
-        return end;
+        result[count] = nameStart;
+        result[count + 1] = nameEnd;
+        result[count + 2] = valueStart;
+        result[count + 3] = valueEnd;
+        return result;
     }
 
     /**
-     * Reads an attribute name from an input string, stores it in a list of tokens
-     * and returns the position to continue from.
-     * 
-     * @param input The input string to operate upon.
-     * @param tokens The list of tokens, where the name is to be appended.
-     * @param start The index, where the name starts within input.
-     * @return The index, where the name ends. This is the position of the last
-     * character of the attribute name.
-     */
-    private int storeName(String input, ArrayList<String> tokens, int start) {
-        int end1 = input.indexOf(' ', start);
-        int end2 = input.indexOf('=', start);
-        int end = -1;
-        if (end1 > 0 && end2 > 0) {
-            end = Math.min(end1, end2);
-        } else if (end1 < 0 && end2 < 0){
-            end = input.length();
-        } else {
-            // This works as one of them is -1
-            end = Math.max(end1, end2);
-        }
-        tokens.add(input.substring(start, end));
-        return end - 1;
-    }
-    
-    /**
-     * Stores the attributes as name-value pairs
-     * in a hashtable. If an attribute does not have
-     * a value, the empty string is used as its value.
-     * Attribute names will be stored in lower case.
-     * 
-     * @param tokens The parsed list of tokens.
+     * Removes attributes whose names occur earlier, after copying their values to the
+     * earlier ones.
+     *
+     * @return The offsets, in an array of the exact size.
      */
-    private Hashtable<String, String> storeAttributes(ArrayList<String> tokens) {
-        int index = 0;
-        Hashtable<String, String> result = new Hashtable<String, String>();
-        int tokencount = tokens.size();
-        while (index < tokencount) {
-        	if (index < tokencount - 2 && tokens.get(index + 1).equals("=")) {
-        		// since we have normalized before, we know that there will be a value, too.
-        		result.put(tokens.get(index).toLowerCase(), tokens.get(index + 2));
-                index += 3;
-        	} else {
-        		result.put(tokens.get(index).toLowerCase(), NO_VALUE);
-                index++;
-        	}
+    private int[] removeDuplicates(int[] result, int count) {
+        int kept = 0;
+        for (int i = 0; i < count; i += 4) {
+            int index = indexOf(result, kept, source, result[i], result[i + 1]);
+            if (index < 0) {
+                index = kept;
+                kept += 4;
+                result[index] = result[i];
+                result[index + 1] = result[i + 1];
+            }
+            result[index + 2] = result[i + 2];
+            result[index + 3] = result[i + 3];
         }
-        return result;
+        return kept == result.length ? result : Arrays.copyOf(result, kept);
     }
 
     /**
@@ -202,19 +278,26 @@ public class HTMLTagAttributes {
      * not been normalized in any way. 
      */
     public String toString() {
-        return unparsedAttributes;
+        String result = unparsedAttributes;
+        if (result == null) {
+            result = source.substring(start, end);
+            unparsedAttributes = result;
+        }
+        return result;
     }
     
     /**
-     * Returns an enumeration of all the attribute names found. 
-     * @return The attribute names as an enumeration of strings. This can be null,
-     * if no attributes are present.
+     * Returns an enumeration of all the attribute names found, in lower case and in the
+     * order of their first occurrence. 
+     * @return The attribute names as an enumeration of strings.
      */
     public Enumeration<String> getAttributeNames() {
-        if (attributes == null) {
-      		parse(unparsedAttributes);
+        int[] parsed = getBounds();
+        Vector<String> names = new Vector<String>(parsed.length / 4);
+        for (int i = 0; i < parsed.length; i += 4) {
+            names.add(source.substring(parsed[i], parsed[i + 1]).toLowerCase());
         }
-   		return attributes.keys();
+        return names.elements();
     }
     
     /**
@@ -222,10 +305,7 @@ public class HTMLTagAttributes {
      * @return The number of attributes.
      */
     public int getSize() {
-    	if (attributes == null && unparsedAttributes.length() > 0) {
-    		parse(unparsedAttributes);
-    	}
-        return attributes == null ? 0 : attributes.size();
+        return getBounds().length / 4;
     }
 
     public boolean match(HTMLTagAttributes other, ScrapeOptions options) {
@@ -239,25 +319,22 @@ public class HTMLTagAttributes {
             }
         }
 
-        // Now: Check for every attribute in B if it occurs in A likewise
-        Enumeration<String> namesB = other.getAttributeNames();
-        boolean result = true;
-        while (result && namesB.hasMoreElements()) {
-            String nameB = namesB.nextElement();
-            String valueA = get(nameB);
-            String valueB = other.get(nameB);
-            if (valueA == null) {
-                if (valueB != null) {
-                    result = false;
-                }
-            } else if (valueB == null) {
-                result = false;
-            } else {
-                result = options.ignoreCase ? valueA.equalsIgnoreCase(valueB) : valueA.equals(valueB);
+        // Now: Check for every attribute in B if it occurs in A likewise,
+        // comparing the names and values where they are
+        int[] boundsA = getBounds();
+        int[] boundsB = other.getBounds();
+        for (int b = 0; b < boundsB.length; b += 4) {
+            int a = indexOf(boundsA, boundsA.length, other.source, boundsB[b], boundsB[b + 1]);
+            if (a < 0) {
+                return false;
+            }
+            int length = boundsA[a + 3] - boundsA[a + 2];
+            if (length != boundsB[b + 3] - boundsB[b + 2]
+                    || !source.regionMatches(options.ignoreCase, boundsA[a + 2], other.source, boundsB[b + 2], length)) {
+                return false;
             }
         }
-        return result;
-        
+        return true;
     }
 
 }
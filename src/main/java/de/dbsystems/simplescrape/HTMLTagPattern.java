@@ -0,0 +1,95 @@
+package de.dbsystems.simplescrape;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Basically an HTMLTag to search for, which additionally requires its attributes to meet
+ * some conditions, e.g. a "div" whose class contains the word "result":
+ * <pre>
+ * new HTMLTagPattern("div", AttributePredicate.hasToken("class", "result"))
+ * </pre>
+ * Use it like an HTMLTag with indexOf() or searchTokens(). A tag matches, if it matches
+ * the pattern as an HTMLTag (name and attributes given in the tag content) and all
+ * predicates hold. The predicates are tested in the order given, and testing stops at
+ * the first that fails. With attributesStrict, only the attributes given in the tag
+ * content are counted.
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class HTMLTagPattern extends HTMLTag {
+    private final List<AttributePredicate> predicates = new ArrayList<AttributePredicate>();
+
+    /**
+     * Creates a pattern.
+     *
+     * @param tagContent The content of the tag like for an HTMLTag, e.g. "a" or "/div".
+     * @param predicates The conditions on the attributes.
+     */
+    public HTMLTagPattern(String tagContent, AttributePredicate... predicates) {
+        super(tagContent);
+        for (AttributePredicate predicate : predicates) {
+            where(predicate);
+        }
+    }
+
+    /**
+     * Adds a condition.
+     *
+     * @return This pattern.
+     */
+    public HTMLTagPattern where(AttributePredicate predicate) {
+        if (predicate == null) {
+            throw new IllegalArgumentException("predicate must not be null");
+        }
+        predicates.add(predicate);
+        return this;
+    }
+
+    /**
+     * Returns the conditions.
+     */
+    public List<AttributePredicate> getPredicates() {
+        return Collections.unmodifiableList(predicates);
+    }
+
+    /**
+     * Tests the predicates against the attributes of a tag.
+     */
+    boolean test(HTMLTag tag, ScrapeOptions options) {
+        HTMLTagAttributes attributes = tag.getAttributes();
+        for (int i = 0; i < predicates.size(); i++) {
+            if (!predicates.get(i).test(attributes, options.ignoreCase)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String toString() {
+        StringBuilder buf = new StringBuilder(super.toString());
+        for (AttributePredicate predicate : predicates) {
+            buf.append(predicate);
+        }
+        return buf.toString();
+    }
+}
@@ -1,13 +1,35 @@
 package de.dbsystems.simplescrape;
 
 import java.io.IOException;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.net.*;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
- * Class for holding HTML-comments. These are all texts surrounded by <!-- and
- * -->
+ * Retrieves webpages with HTTP.
+ * <p>
+ * The methods returning a CompletableFuture don't block. They share one HttpClient per
+ * helper, which keeps connections open for further requests to the same server and uses
+ * HTTP/2 where the server supports it, so that many requests can run at the same time
+ * over few connections. Use one helper for a whole crawl. The other methods open a
+ * connection per request.
+ * </p>
+ * <p>
+ * With a ResponseCache, GET requests for pages fetched before only ask whether the page
+ * has changed, and unchanged pages are taken from the cache.
+ * </p>
  * 
  * @author Ronald Bieber, DB Systems GmbH
  * @since 04.04.2007
@@ -31,14 +53,81 @@ import java.net.*;
  */
 
 public class HTTPHelper {
+    private final static Metrics.Histogram FETCH_TIME = Metrics.histogram("http.fetchTime");
+
+    private final static Metrics.Counter FAILURES = Metrics.counter("http.failures");
+
+    private final static Metrics.Counter RECEIVED_BYTES = Metrics.counter("http.receivedBytes");
+
+    /** Unused response bodies up to this size are read to keep the connection */
+    private final static int MAX_DISCARDED_BYTES = 65536;
+
     private Proxy proxy = Proxy.NO_PROXY;
-    
+
+    private Duration connectTimeout = Duration.ofSeconds(30);
+
+    private Duration requestTimeout = Duration.ofSeconds(60);
+
+    /** The client for asynchronous requests, created on first use */
+    private HttpClient client = null;
+
+    private volatile ResponseCache responseCache = null;
+
+    private volatile boolean keepSource = false;
+
     public Proxy getProxy() {
         return proxy;
     }
 
-    public void setProxy(Proxy proxy) {
+    /**
+     * Sets the proxy for all requests. The asynchronous methods only support HTTP proxies.
+     */
+    public synchronized void setProxy(Proxy proxy) {
         this.proxy = proxy;
+        client = null;
+    }
+
+    /**
+     * Sets how long the asynchronous methods wait for a connection. Default: 30 seconds.
+     */
+    public synchronized void setConnectTimeout(Duration timeout) {
+        this.connectTimeout = timeout;
+        client = null;
+    }
+
+    /**
+     * Sets how long the asynchronous methods wait for the response to a request, after
+     * connecting. Default: 60 seconds.
+     */
+    public synchronized void setRequestTimeout(Duration timeout) {
+        this.requestTimeout = timeout;
+    }
+
+    /**
+     * Sets the cache for the pages retrieved with GET. Default: none.
+     *
+     * @param cache The cache, or null.
+     */
+    public void setResponseCache(ResponseCache cache) {
+        this.responseCache = cache;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Sets whether the documents of the Scrapers returned keep their source, so that
+     * they can be written verbatim and updated incrementally (see
+     * Scraper.setKeepSource()). Documents from the ResponseCache always have it.
+     * Default: false.
+     */
+    public void setKeepSource(boolean keepSource) {
+        this.keepSource = keepSource;
+    }
+
+    public boolean isKeepSource() {
+        return keepSource;
     }
 
     /**
@@ -48,20 +137,54 @@ public class HTTPHelper {
      * @return The content as a tokenized Scraper, or null, if an error occurred.
      */
     public Scraper getWebpageForScraping(String urlString) {
+        long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+        Scraper scraper = fetchForScraping(urlString);
+        if (start != 0) {
+            measured(start, scraper == null);
+        }
+        return scraper;
+    }
+
+    private Scraper fetchForScraping(String urlString) {
         try {
             URL url = new URL(urlString);
 
+            ResponseCache cache = responseCache;
+            ResponseCache.Entry cached = cache == null ? null : cache.get(urlString);
             HttpURLConnection connection = (HttpURLConnection) url.openConnection(getProxy());
+            connection.setRequestProperty("Accept-Encoding", Compression.ACCEPT_ENCODING);
+            setValidators(connection, cached);
+            if (cached != null && connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                discard(connection);
+                ParsedDocument document = cache.getDocument(cached);
+                if (document == null) {
+                    // the cached files are gone, so ask again without validators
+                    return fetchForScraping(urlString);
+                }
+                cache.hit();
+                return new Scraper(document);
+            }
             if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
                 System.err.println("GET-connection unsuccessful (Response-Code: "
                     + connection.getResponseCode() + ", should be 200 OK): "
                     + url.toString());
+                discard(connection);
                 return null;
             }
 
-            Scraper scraper = new Scraper(connection.getInputStream());
-            connection.disconnect();
-            return scraper;
+            InputStream input = openBody(connection);
+            if (cache != null) {
+                byte[] content = ScrapeSource.readFully(input);
+                ParsedDocument document = ParsedDocument.parse(new ByteArrayInputStream(content), keepSource);
+                cache.put(urlString, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"),
+                        content, document);
+                return new Scraper(document);
+            }
+            try {
+                return new Scraper(input, false, keepSource);
+            } finally {
+                input.close();
+            }
         } catch (MalformedURLException e) {
             System.err.println(e);
         } catch (IOException e) {
@@ -70,6 +193,60 @@ public class HTTPHelper {
         return null;
     }
     
+    /**
+     * Acquires the raw content of a webpage without parsing it. Unlike
+     * getWebpageForScraping, errors are reported as exceptions.
+     *
+     * @param urlString The URL to be retrieved from.
+     * @return The content of the page.
+     * @throws IOException If the page couldn't be retrieved, an HTTPStatusException if
+     * the response code wasn't 200 OK.
+     */
+    public byte[] getWebpageContent(String urlString) throws IOException {
+        long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+        boolean failed = true;
+        try {
+            byte[] content = fetchContent(urlString);
+            failed = false;
+            return content;
+        } finally {
+            if (start != 0) {
+                measured(start, failed);
+            }
+        }
+    }
+
+    private byte[] fetchContent(String urlString) throws IOException {
+        URL url = new URL(urlString);
+        ResponseCache cache = responseCache;
+        ResponseCache.Entry cached = cache == null ? null : cache.get(urlString);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection(getProxy());
+        connection.setRequestProperty("Accept-Encoding", Compression.ACCEPT_ENCODING);
+        setValidators(connection, cached);
+        if (cached != null && connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            discard(connection);
+            byte[] content = cache.getContent(cached);
+            if (content == null) {
+                // the cached files are gone, so ask again without validators
+                return fetchContent(urlString);
+            }
+            cache.hit();
+            return content;
+        }
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            int code = connection.getResponseCode();
+            discard(connection);
+            throw new HTTPStatusException("GET-connection unsuccessful (Response-Code: "
+                + code + ", should be 200 OK): " + url.toString(), code);
+        }
+        byte[] content = ScrapeSource.readFully(openBody(connection));
+        if (cache != null) {
+            cache.put(urlString, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"),
+                    content, null);
+        }
+        return content;
+    }
+
     /**
      * Acquires the content of a webpage with POST-data. The code is
      * specific to the Reiseauskunft, as a referer is expected while cookies are
@@ -81,11 +258,21 @@ public class HTTPHelper {
      * @return The content as a tokenized Scraper, or null, if an error occurred.
      */
     public Scraper getWebpageForScraping(String urlString, String postData, String referer) {
+        long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+        Scraper scraper = postForScraping(urlString, postData, referer);
+        if (start != 0) {
+            measured(start, scraper == null);
+        }
+        return scraper;
+    }
+
+    private Scraper postForScraping(String urlString, String postData, String referer) {
         try {
             URL url = new URL(urlString);
             HttpURLConnection connection = (HttpURLConnection) url.openConnection(getProxy());
             connection.setDoOutput(true);
             connection.setRequestProperty("Referer", referer);
+            connection.setRequestProperty("Accept-Encoding", Compression.ACCEPT_ENCODING);
 
             ByteArrayOutputStream byteStream = new ByteArrayOutputStream(512); // grows, if needed
             PrintWriter buffer = new PrintWriter(byteStream, true);
@@ -105,12 +292,16 @@ public class HTTPHelper {
                 System.err.println("Seite nicht gefunden ("
                     + connection.getResponseCode() + "): "
                     + url.toString());
+                discard(connection);
                 return null;
             }
 
-            Scraper scraper = new Scraper(connection.getInputStream());
-            connection.disconnect();
-            return scraper;
+            InputStream input = openBody(connection);
+            try {
+                return new Scraper(input, false, keepSource);
+            } finally {
+                input.close();
+            }
         } catch (MalformedURLException e) {
             System.err.println(e);
         } catch (IOException e) {
@@ -118,5 +309,458 @@ public class HTTPHelper {
         }
         return null;
     }
-    
+
+    /**
+     * Acquires the content of a webpage without blocking.
+     *
+     * @param urlString The URL to be retrieved from.
+     * @return The content as a tokenized Scraper. The future fails with an IOException,
+     * if the page couldn't be retrieved, with an HTTPStatusException, if the response
+     * code wasn't 200 OK.
+     */
+    public CompletableFuture<Scraper> getWebpageForScrapingAsync(String urlString) {
+        ResponseCache cache = responseCache;
+        if (cache != null) {
+            return measured(sendAndParseCached(urlString, cache));
+        }
+        try {
+            return measured(sendAndParse(newRequest(urlString).GET().build()));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Acquires the beginning of a webpage without blocking: the page is tokenized while it
+     * arrives, and the download is aborted as soon as the condition is satisfied or the
+     * byte limit is reached. This saves time and bandwidth if only the top of big pages
+     * is needed. The ResponseCache is not used, as the pages are incomplete.
+     *
+     * @param urlString The URL to be retrieved from.
+     * @param condition Decides when to stop, or null to read up to the byte limit.
+     * @param maxBytes The maximum number of bytes to receive (before decompression), or
+     * -1 for no limit.
+     * @return The tokens read, up to and including the one satisfying the condition, as
+     * a Scraper. The future fails like for getWebpageForScrapingAsync(String).
+     */
+    public CompletableFuture<Scraper> getWebpageForScrapingAsync(String urlString, final StopCondition condition,
+            final long maxBytes) {
+        HttpRequest request;
+        try {
+            request = newRequest(urlString).GET().build();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return measured(getClient().sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(new Function<HttpResponse<InputStream>, Scraper>() {
+                    public Scraper apply(HttpResponse<InputStream> response) {
+                        BodyInputStream body = new BodyInputStream(response.body(), maxBytes);
+                        try {
+                            checkStatus(response);
+                            ParsedDocument.Builder builder = new ParsedDocument.Builder(
+                                    new Tokenizer(Compression.decode(body, contentEncoding(response))), keepSource);
+                            try {
+                                int index = 0;
+                                while (builder.readNext()) {
+                                    if (condition != null
+                                            && condition.isSatisfied(builder.getTokens().get(index), index)) {
+                                        break;
+                                    }
+                                    index++;
+                                }
+                            } catch (IOException e) {
+                                // compressed content cut off by the limit; keep the tokens up to there
+                                if (!body.isExhausted()) {
+                                    throw e;
+                                }
+                            }
+                            return new Scraper(builder.build());
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        } finally {
+                            try {
+                                // before the end of the body, this aborts the transfer
+                                body.close();
+                            } catch (IOException e) {
+                                // the document is complete anyway
+                            }
+                        }
+                    }
+                }));
+    }
+
+    /**
+     * Acquires the raw content of a webpage without blocking and without parsing it.
+     *
+     * @param urlString The URL to be retrieved from.
+     * @return The content. The future fails with an IOException, if the page couldn't be
+     * retrieved, with an HTTPStatusException, if the response code wasn't 200 OK.
+     */
+    public CompletableFuture<byte[]> getWebpageContentAsync(String urlString) {
+        ResponseCache cache = responseCache;
+        if (cache != null) {
+            return measured(sendCached(urlString, cache));
+        }
+        try {
+            return measured(send(newRequest(urlString).GET().build()));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Acquires the content of a webpage with POST-data without blocking.
+     *
+     * @param urlString The URL to retrieve from.
+     * @param postData The complete (and encoded) POST-data
+     * @param referer The referer to be transmitted (HTTP-Header), or null.
+     * @return The content as a tokenized Scraper. The future fails with an IOException,
+     * if the page couldn't be retrieved, with an HTTPStatusException, if the response
+     * code wasn't 200 OK.
+     */
+    public CompletableFuture<Scraper> getWebpageForScrapingAsync(String urlString, String postData, String referer) {
+        try {
+            HttpRequest.Builder request = newRequest(urlString)
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(postData));
+            if (referer != null) {
+                request.header("Referer", referer);
+            }
+            return measured(sendAndParse(request.build()));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Returns the client for asynchronous requests.
+     */
+    synchronized HttpClient getClient() {
+        if (client == null) {
+            HttpClient.Builder builder = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .connectTimeout(connectTimeout);
+            if (proxy.type() == Proxy.Type.HTTP) {
+                builder.proxy(ProxySelector.of((InetSocketAddress) proxy.address()));
+            } else if (proxy.type() != Proxy.Type.DIRECT) {
+                throw new IllegalStateException("unsupported proxy for asynchronous requests: " + proxy);
+            }
+            client = builder.build();
+        }
+        return client;
+    }
+
+    private synchronized HttpRequest.Builder newRequest(String urlString) throws MalformedURLException {
+        try {
+            return HttpRequest.newBuilder(new URI(urlString)).timeout(requestTimeout)
+                    .header("Accept-Encoding", Compression.ACCEPT_ENCODING);
+        } catch (URISyntaxException e) {
+            throw new MalformedURLException(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // e.g. an unsupported scheme
+            throw new MalformedURLException(e.getMessage());
+        }
+    }
+
+    private CompletableFuture<byte[]> send(final HttpRequest request) {
+        return getClient().sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(new Function<HttpResponse<byte[]>, byte[]>() {
+                    public byte[] apply(HttpResponse<byte[]> response) {
+                        try {
+                            received(response.body().length);
+                            checkStatus(response);
+                            return Compression.decode(response.body(), contentEncoding(response));
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Sends a request and parses the response while it arrives, on a thread of the
+     * client's executor, so that the body is never held as a whole.
+     */
+    private CompletableFuture<Scraper> sendAndParse(final HttpRequest request) {
+        return getClient().sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(new Function<HttpResponse<InputStream>, Scraper>() {
+                    public Scraper apply(HttpResponse<InputStream> response) {
+                        InputStream body = new BodyInputStream(response.body(), -1);
+                        try {
+                            checkStatus(response);
+                            return new Scraper(ParsedDocument.parse(Compression.decode(body, contentEncoding(response)),
+                                    keepSource));
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        } finally {
+                            try {
+                                body.close();
+                            } catch (IOException e) {
+                                // the document is complete anyway
+                            }
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Sends a GET request, which only asks for changes if the page is in the cache.
+     */
+    private CompletableFuture<byte[]> sendCached(final String urlString, final ResponseCache cache) {
+        final ResponseCache.Entry cached = cache.get(urlString);
+        HttpRequest request;
+        try {
+            request = setValidators(newRequest(urlString).GET(), cached).build();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return getClient().sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenCompose(new Function<HttpResponse<byte[]>, CompletionStage<byte[]>>() {
+                    public CompletionStage<byte[]> apply(HttpResponse<byte[]> response) {
+                        if (cached != null && response.statusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                            byte[] content = cache.getContent(cached);
+                            if (content == null) {
+                                // the cached files are gone, so ask again without validators
+                                return sendCached(urlString, cache);
+                            }
+                            cache.hit();
+                            return CompletableFuture.completedFuture(content);
+                        }
+                        try {
+                            received(response.body().length);
+                            checkStatus(response);
+                            byte[] content = Compression.decode(response.body(), contentEncoding(response));
+                            cache.put(urlString, header(response, "ETag"), header(response, "Last-Modified"),
+                                    content, null);
+                            return CompletableFuture.completedFuture(content);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Like sendCached(), but returns a Scraper. The page is parsed after it has been
+     * received completely, as it is stored in the cache, too.
+     */
+    private CompletableFuture<Scraper> sendAndParseCached(final String urlString, final ResponseCache cache) {
+        final ResponseCache.Entry cached = cache.get(urlString);
+        HttpRequest request;
+        try {
+            request = setValidators(newRequest(urlString).GET(), cached).build();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return getClient().sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenCompose(new Function<HttpResponse<byte[]>, CompletionStage<Scraper>>() {
+                    public CompletionStage<Scraper> apply(HttpResponse<byte[]> response) {
+                        if (cached != null && response.statusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                            ParsedDocument document = cache.getDocument(cached);
+                            if (document == null) {
+                                // the cached files are gone, so ask again without validators
+                                return sendAndParseCached(urlString, cache);
+                            }
+                            cache.hit();
+                            return CompletableFuture.completedFuture(new Scraper(document));
+                        }
+                        try {
+                            received(response.body().length);
+                            checkStatus(response);
+                            byte[] content = Compression.decode(response.body(), contentEncoding(response));
+                            ParsedDocument document = ParsedDocument.parse(new ByteArrayInputStream(content),
+                                    keepSource);
+                            cache.put(urlString, header(response, "ETag"), header(response, "Last-Modified"),
+                                    content, document);
+                            return CompletableFuture.completedFuture(new Scraper(document));
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Returns the decoded body of a successful response. Closing it (instead of
+     * disconnecting) keeps the connection for reuse.
+     */
+    private static InputStream openBody(HttpURLConnection connection) throws IOException {
+        InputStream body = new BodyInputStream(connection.getInputStream(), -1);
+        try {
+            return Compression.decode(body, connection.getContentEncoding());
+        } catch (IOException e) {
+            body.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads and closes the body of a response that isn't used, e.g. an error page, so
+     * that the connection is returned for reuse. Long bodies aren't worth reading; then
+     * the connection is closed instead.
+     */
+    private static void discard(HttpURLConnection connection) {
+        try {
+            InputStream body = connection.getErrorStream();
+            if (body == null && connection.getResponseCode() < HttpURLConnection.HTTP_BAD_REQUEST) {
+                body = connection.getInputStream();
+            }
+            if (body == null) {
+                return;
+            }
+            try {
+                byte[] buffer = new byte[4096];
+                long total = 0;
+                int count = body.read(buffer);
+                while (count >= 0) {
+                    total += count;
+                    if (total > MAX_DISCARDED_BYTES) {
+                        connection.disconnect();
+                        return;
+                    }
+                    count = body.read(buffer);
+                }
+            } finally {
+                body.close();
+            }
+        } catch (IOException e) {
+            connection.disconnect();
+        }
+    }
+
+    private static void setValidators(HttpURLConnection connection, ResponseCache.Entry cached) {
+        if (cached != null) {
+            if (cached.etag != null) {
+                connection.setRequestProperty("If-None-Match", cached.etag);
+            }
+            if (cached.lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+            }
+        }
+    }
+
+    private static HttpRequest.Builder setValidators(HttpRequest.Builder request, ResponseCache.Entry cached) {
+        if (cached != null) {
+            if (cached.etag != null) {
+                request.header("If-None-Match", cached.etag);
+            }
+            if (cached.lastModified != null) {
+                request.header("If-Modified-Since", cached.lastModified);
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Records the time and outcome of an asynchronous request in the metrics.
+     */
+    private static <T> CompletableFuture<T> measured(CompletableFuture<T> future) {
+        if (!Metrics.isEnabled()) {
+            return future;
+        }
+        final long start = System.nanoTime();
+        return future.whenComplete(new BiConsumer<T, Throwable>() {
+            public void accept(T result, Throwable error) {
+                measured(start, error != null);
+            }
+        });
+    }
+
+    private static void measured(long start, boolean failed) {
+        FETCH_TIME.record(System.nanoTime() - start);
+        if (failed) {
+            FAILURES.increment();
+        }
+    }
+
+    private static void received(long bytes) {
+        if (Metrics.isEnabled()) {
+            RECEIVED_BYTES.add(bytes);
+        }
+    }
+
+    private static void checkStatus(HttpResponse<?> response) throws IOException {
+        if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+            throw new HTTPStatusException(response.request().method() + "-connection unsuccessful (Response-Code: "
+                    + response.statusCode() + ", should be 200 OK): " + response.request().uri(), response.statusCode());
+        }
+    }
+
+    private static String contentEncoding(HttpResponse<?> response) {
+        return header(response, "Content-Encoding");
+    }
+
+    private static String header(HttpResponse<?> response, String name) {
+        return response.headers().firstValue(name).orElse(null);
+    }
+
+    /**
+     * A response body, which counts the bytes received for the metrics and optionally
+     * ends after a number of bytes.
+     */
+    private static class BodyInputStream extends FilterInputStream {
+        private long remaining;
+        private long count = 0;
+        private boolean closed = false;
+
+        /**
+         * @param limit The number of bytes to read, or -1 for no limit.
+         */
+        BodyInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit < 0 ? Long.MAX_VALUE : limit;
+        }
+
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                received(count);
+            }
+            super.close();
+        }
+
+        boolean isExhausted() {
+            return remaining == 0;
+        }
+
+        public int read() throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+                count++;
+            }
+            return b;
+        }
+
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+                count += read;
+            }
+            return read;
+        }
+
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            count += skipped;
+            return skipped;
+        }
+
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        public boolean markSupported() {
+            return false;
+        }
+    }
 }
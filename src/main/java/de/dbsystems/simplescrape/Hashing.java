@@ -0,0 +1,152 @@
+package de.dbsystems.simplescrape;
+
+/**
+ * Fast, non-cryptographic 64-bit hash functions. They are used to recognize equal
+ * content (pages, tokens, URLs) without comparing it completely. The results are
+ * stable across runs and JVMs, so they may be stored.
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+final class Hashing {
+    private final static long PRIME1 = 0x9E3779B185EBCA87L;
+
+    private final static long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+
+    private final static long PRIME3 = 0x165667B19E3779F9L;
+
+    private Hashing() {
+        // only static methods
+    }
+
+    /**
+     * Hashes a range of bytes, eight at a time.
+     *
+     * @param data The bytes.
+     * @param offset The start of the range.
+     * @param length The length of the range.
+     * @return The hash.
+     */
+    static long hash(byte[] data, int offset, int length) {
+        long h = PRIME3 ^ (length * PRIME1);
+        int i = offset;
+        int end = offset + length;
+        for (; i + 8 <= end; i += 8) {
+            long k = (data[i] & 0xFFL)
+                    | (data[i + 1] & 0xFFL) << 8
+                    | (data[i + 2] & 0xFFL) << 16
+                    | (data[i + 3] & 0xFFL) << 24
+                    | (data[i + 4] & 0xFFL) << 32
+                    | (data[i + 5] & 0xFFL) << 40
+                    | (data[i + 6] & 0xFFL) << 48
+                    | (data[i + 7] & 0xFFL) << 56;
+            h = round(h, k);
+        }
+        for (; i < end; i++) {
+            h ^= (data[i] & 0xFFL) * PRIME3;
+            h = Long.rotateLeft(h, 11) * PRIME1;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Hashes all bytes of an array.
+     */
+    static long hash(byte[] data) {
+        return hash(data, 0, data.length);
+    }
+
+    /**
+     * Hashes a range of characters, four at a time.
+     *
+     * @param chars The characters.
+     * @param start The index of the first character.
+     * @param end The index after the last character.
+     * @return The hash.
+     */
+    static long hash(CharSequence chars, int start, int end) {
+        long h = PRIME3 ^ ((end - start) * PRIME2);
+        int i = start;
+        for (; i + 4 <= end; i += 4) {
+            long k = chars.charAt(i)
+                    | (long) chars.charAt(i + 1) << 16
+                    | (long) chars.charAt(i + 2) << 32
+                    | (long) chars.charAt(i + 3) << 48;
+            h = round(h, k);
+        }
+        for (; i < end; i++) {
+            h ^= chars.charAt(i) * PRIME3;
+            h = Long.rotateLeft(h, 11) * PRIME1;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Hashes a range of characters ignoring case: characters that String.equalsIgnoreCase
+     * considers equal give the same hash.
+     *
+     * @param chars The characters.
+     * @param start The index of the first character.
+     * @param end The index after the last character.
+     * @return The hash.
+     */
+    static long hashIgnoreCase(CharSequence chars, int start, int end) {
+        long h = PRIME3 ^ ((end - start) * PRIME2);
+        for (int i = start; i < end; i++) {
+            h ^= Character.toLowerCase(Character.toUpperCase(chars.charAt(i))) * PRIME3;
+            h = Long.rotateLeft(h, 11) * PRIME1;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Hashes all characters of a string.
+     */
+    static long hash(CharSequence chars) {
+        return hash(chars, 0, chars.length());
+    }
+
+    /**
+     * Combines a hash with another value, e.g. to build the hash of a sequence.
+     */
+    static long combine(long h, long value) {
+        return mix(round(h, value));
+    }
+
+    private static long round(long h, long k) {
+        k *= PRIME2;
+        k = Long.rotateLeft(k, 31);
+        k *= PRIME1;
+        h ^= k;
+        return Long.rotateLeft(h, 27) * PRIME1 + PRIME3;
+    }
+
+    /**
+     * Spreads the bits of a value, so that similar inputs give very different results.
+     */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+        return h;
+    }
+}
@@ -0,0 +1,395 @@
+package de.dbsystems.simplescrape;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the links of a page (a href, area href, link href, img src, frame and iframe src,
+ * script src and form action) and resolves them to absolute, normalized URLs, e.g. for a
+ * crawler.
+ * <p>
+ * Only the tags that can contain links are visited, using the tag index of the document,
+ * and of each tag only the one attribute that contains the link is copied. URLs are
+ * resolved on strings as described in RFC 3986, without creating java.net.URL or URI
+ * objects. A &lt;base href&gt; of the page is honored.
+ * </p>
+ * <p>Normalization: the scheme and host are written in lower case, default ports (80 for
+ * http, 443 for https), "." and ".." segments and fragments are removed, an empty path
+ * becomes "/" and spaces are encoded as %20. URLs without "//" after the scheme, like
+ * mailto: or javascript:, are returned as they are, except for the case of the scheme.
+ * </p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class LinkExtractor {
+    /**
+     * The names of all tags that can contain links, in lower case, including base.
+     */
+    final static String[] TAG_NAMES = { "a", "area", "link", "img", "frame", "iframe", "script", "form", "base" };
+
+    /** For every tag name: the attribute with the link */
+    private final static Map<String, String> LINK_ATTRIBUTES = new HashMap<String, String>();
+
+    static {
+        LINK_ATTRIBUTES.put("a", "href");
+        LINK_ATTRIBUTES.put("area", "href");
+        LINK_ATTRIBUTES.put("link", "href");
+        LINK_ATTRIBUTES.put("img", "src");
+        LINK_ATTRIBUTES.put("frame", "src");
+        LINK_ATTRIBUTES.put("iframe", "src");
+        LINK_ATTRIBUTES.put("script", "src");
+        LINK_ATTRIBUTES.put("form", "action");
+    }
+
+    private LinkExtractor() {
+    }
+
+    /**
+     * Returns all links of a document.
+     *
+     * @param document The document.
+     * @param pageURL The URL the document was retrieved from. Relative links are resolved
+     * against it (or against the page's &lt;base href&gt;). May be null, then only
+     * absolute links can be resolved.
+     * @return The links, in document order.
+     */
+    public static List<Link> extract(ParsedDocument document, String pageURL) {
+        return extract(document.getTokens(), document.getTagPositions(TAG_NAMES), pageURL);
+    }
+
+    /**
+     * Returns the links among tokens.
+     *
+     * @param tokens All tokens.
+     * @param positions The indexes of all start tags with one of TAG_NAMES, ascending
+     * (end tags are allowed and skipped).
+     * @param pageURL The URL of the page, or null.
+     */
+    static List<Link> extract(List<AbstractHTMLToken> tokens, int[] positions, String pageURL) {
+        String base = pageURL;
+        for (int pos : positions) {
+            HTMLTag tag = (HTMLTag) tokens.get(pos);
+            if (!tag.isEndTag() && tag.getName().equalsIgnoreCase("base")) {
+                String href = attribute(tag, "href");
+                if (href != null) {
+                    String resolved = resolve(pageURL, href);
+                    if (resolved != null) {
+                        base = resolved;
+                    }
+                    // only the first base with a href counts
+                    break;
+                }
+            }
+        }
+
+        List<Link> links = new ArrayList<Link>();
+        for (int pos : positions) {
+            HTMLTag tag = (HTMLTag) tokens.get(pos);
+            if (tag.isEndTag()) {
+                continue;
+            }
+            String attribute = LINK_ATTRIBUTES.get(tag.getName().toLowerCase());
+            if (attribute == null) {
+                continue;
+            }
+            String value = attribute(tag, attribute);
+            if (value != null) {
+                links.add(new Link(tag, pos, value, resolve(base, value)));
+            }
+        }
+        return links;
+    }
+
+    private static String attribute(HTMLTag tag, String name) {
+        HTMLTagAttributes attributes = tag.getAttributes();
+        return attributes == null ? null : attributes.get(name);
+    }
+
+    /**
+     * Resolves a reference (as found in a link) against a base URL and normalizes the
+     * result.
+     *
+     * @param base An absolute URL, or null.
+     * @param reference An absolute or relative URL. Whitespace around it is ignored.
+     * @return The absolute, normalized URL, or null, if reference is relative and base is
+     * null or not absolute.
+     */
+    public static String resolve(String base, String reference) {
+        String ref = clean(reference);
+        if (schemeEnd(ref) >= 0) {
+            return normalize(ref);
+        }
+        if (base == null || schemeEnd(base) < 0) {
+            return null;
+        }
+        int schemeEnd = schemeEnd(base);
+        int authorityEnd = authorityEnd(base, schemeEnd);
+        int pathEnd = pathEnd(base, authorityEnd);
+        StringBuilder url = new StringBuilder(base.length() + ref.length());
+        if (ref.startsWith("//")) {
+            url.append(base, 0, schemeEnd + 1);
+        } else if (ref.startsWith("/")) {
+            url.append(base, 0, authorityEnd);
+        } else if (ref.length() == 0 || ref.charAt(0) == '#') {
+            url.append(base, 0, fragmentStart(base));
+        } else if (ref.charAt(0) == '?') {
+            url.append(base, 0, pathEnd);
+        } else {
+            int slash = base.lastIndexOf('/', pathEnd - 1);
+            if (slash >= authorityEnd) {
+                url.append(base, 0, slash + 1);
+            } else {
+                url.append(base, 0, authorityEnd).append('/');
+            }
+        }
+        url.append(ref);
+        return normalize(url.toString());
+    }
+
+    /**
+     * Normalizes an absolute URL (see the description of the class).
+     *
+     * @param url The URL.
+     * @return The normalized URL, or null, if url has no scheme.
+     */
+    public static String normalize(String url) {
+        int schemeEnd = schemeEnd(url);
+        if (schemeEnd < 0) {
+            return null;
+        }
+        StringBuilder out = new StringBuilder(url.length() + 1);
+        for (int i = 0; i < schemeEnd; i++) {
+            out.append(Character.toLowerCase(url.charAt(i)));
+        }
+        out.append(':');
+        int authorityEnd = authorityEnd(url, schemeEnd);
+        if (authorityEnd == schemeEnd + 1) {
+            // not hierarchical, e.g. mailto:
+            return out.append(url, schemeEnd + 1, url.length()).toString();
+        }
+        appendAuthority(out, url, schemeEnd + 3, authorityEnd, out.substring(0, schemeEnd));
+        int pathEnd = pathEnd(url, authorityEnd);
+        if (pathEnd == authorityEnd) {
+            out.append('/');
+        } else {
+            appendPath(out, url, authorityEnd, pathEnd);
+        }
+        int fragment = fragmentStart(url);
+        for (int i = pathEnd; i < fragment; i++) {
+            appendEncoded(out, url.charAt(i));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Removes leading and trailing whitespace as well as tabs and line breaks within a
+     * reference, like browsers do.
+     */
+    private static String clean(String reference) {
+        String ref = reference.trim();
+        if (ref.indexOf('\n') < 0 && ref.indexOf('\r') < 0 && ref.indexOf('\t') < 0) {
+            return ref;
+        }
+        StringBuilder buf = new StringBuilder(ref.length());
+        for (int i = 0; i < ref.length(); i++) {
+            char c = ref.charAt(i);
+            if (c != '\n' && c != '\r' && c != '\t') {
+                buf.append(c);
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Returns the index of the colon after the scheme, or -1, if the URL has no scheme.
+     */
+    private static int schemeEnd(String url) {
+        int length = url.length();
+        for (int i = 0; i < length; i++) {
+            char c = url.charAt(i);
+            if (c == ':') {
+                return i > 0 ? i : -1;
+            }
+            boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            if (!letter && (i == 0 || !((c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.'))) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index after the authority ("//host:port"), or schemeEnd + 1, if there is
+     * no authority.
+     */
+    private static int authorityEnd(String url, int schemeEnd) {
+        int start = schemeEnd + 1;
+        if (!url.startsWith("//", start)) {
+            return start;
+        }
+        int i = start + 2;
+        while (i < url.length()) {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#' || c == '\\') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int pathEnd(String url, int from) {
+        int i = from;
+        while (i < url.length() && url.charAt(i) != '?' && url.charAt(i) != '#') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int fragmentStart(String url) {
+        int hash = url.indexOf('#');
+        return hash < 0 ? url.length() : hash;
+    }
+
+    /**
+     * Appends the authority with the host in lower case and without a default or empty
+     * port. User information is kept as it is.
+     */
+    private static void appendAuthority(StringBuilder out, String url, int start, int end, String scheme) {
+        out.append("//");
+        int at = url.lastIndexOf('@', end - 1);
+        int hostStart = start;
+        if (at >= start) {
+            out.append(url, start, at + 1);
+            hostStart = at + 1;
+        }
+        int hostEnd = end;
+        int colon = url.lastIndexOf(':', end - 1);
+        if (colon >= hostStart && url.indexOf(']', colon) < 0) {
+            hostEnd = colon;
+        }
+        for (int i = hostStart; i < hostEnd; i++) {
+            out.append(Character.toLowerCase(url.charAt(i)));
+        }
+        if (hostEnd < end) {
+            String port = url.substring(hostEnd + 1, end);
+            boolean isDefault = port.length() == 0
+                    || (port.equals("80") && scheme.equals("http"))
+                    || (port.equals("443") && scheme.equals("https"));
+            if (!isDefault) {
+                out.append(':').append(port);
+            }
+        }
+    }
+
+    /**
+     * Appends a path, which starts with a slash, without "." and ".." segments.
+     */
+    private static void appendPath(StringBuilder out, String url, int start, int end) {
+        int root = out.length();
+        int i = start;
+        while (i < end) {
+            // url.charAt(i) is a slash (or a backslash, like browsers accept it)
+            int slash = i + 1;
+            while (slash < end && url.charAt(slash) != '/' && url.charAt(slash) != '\\') {
+                slash++;
+            }
+            int segment = slash - i - 1;
+            boolean dot = segment == 1 && url.charAt(i + 1) == '.';
+            boolean dotDot = segment == 2 && url.charAt(i + 1) == '.' && url.charAt(i + 2) == '.';
+            if (dot || dotDot) {
+                if (dotDot) {
+                    int previous = out.lastIndexOf("/");
+                    out.setLength(previous >= root ? previous : root);
+                }
+                if (slash == end) {
+                    out.append('/');
+                }
+            } else {
+                out.append('/');
+                for (int j = i + 1; j < slash; j++) {
+                    appendEncoded(out, url.charAt(j));
+                }
+            }
+            i = slash;
+        }
+    }
+
+    private static void appendEncoded(StringBuilder out, char c) {
+        if (c == ' ') {
+            out.append("%20");
+        } else {
+            out.append(c);
+        }
+    }
+
+    /**
+     * A link of a page.
+     */
+    public static class Link {
+        private final HTMLTag tag;
+        private final int position;
+        private final String value;
+        private final String url;
+
+        Link(HTMLTag tag, int position, String value, String url) {
+            this.tag = tag;
+            this.position = position;
+            this.value = value;
+            this.url = url;
+        }
+
+        /**
+         * Returns the tag that contains the link.
+         */
+        public HTMLTag getTag() {
+            return tag;
+        }
+
+        /**
+         * Returns the index of the tag within the document.
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Returns the link as written in the page.
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the absolute, normalized URL, or null, if the link is relative and there
+         * is no URL to resolve it against.
+         */
+        public String getURL() {
+            return url;
+        }
+
+        public String toString() {
+            return url != null ? url : value;
+        }
+    }
+}
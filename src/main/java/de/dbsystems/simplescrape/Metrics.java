@@ -0,0 +1,424 @@
+package de.dbsystems.simplescrape;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ReflectionException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for the hot paths of the library, e.g. parse times,
+ * tokens per document, search calls and fetch latencies. Metrics are off by default; then
+ * the instrumented code only reads one flag. Turn them on with setEnabled(true).
+ * <p>
+ * The metrics are registered by name, so applications can add their own and read all of
+ * them (getCounters(), getHistograms()), e.g. to pass them on to a monitoring system.
+ * Systems that want every single value instead, e.g. for their own histograms, register
+ * a Listener. registerMBean() makes the metrics available with JMX, too. The library
+ * records:
+ * </p>
+ * <ul>
+ * <li>tokenizer.characters: characters tokenized, counted per completed document</li>
+ * <li>tokenizer.tokensPerDocument: tokens of every completely tokenized document</li>
+ * <li>parse.time: time for parsing documents completely, in nanoseconds</li>
+ * <li>scraper.searchTime: time of indexOf() and searchTokens(), in nanoseconds</li>
+ * <li>http.fetchTime: time of HTTPHelper requests until the result is there, in nanoseconds</li>
+ * <li>http.failures: HTTPHelper requests that failed</li>
+ * <li>http.receivedBytes: bytes received by HTTPHelper, before decompression</li>
+ * </ul>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public final class Metrics {
+    /**
+     * The JMX name used by registerMBean().
+     */
+    public final static String MBEAN_NAME = "de.dbsystems.simplescrape:type=Metrics";
+
+    private static volatile boolean enabled = false;
+
+    private final static ConcurrentHashMap<String, Counter> COUNTERS = new ConcurrentHashMap<String, Counter>();
+
+    private final static ConcurrentHashMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<String, Histogram>();
+
+    private final static CopyOnWriteArrayList<Listener> LISTENERS = new CopyOnWriteArrayList<Listener>();
+
+    private Metrics() {
+        // only static methods
+    }
+
+    /**
+     * Whether metrics are recorded. Instrumented code checks this before measuring.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns recording on or off. The values recorded so far are kept.
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Returns the counter with a name, which is created if necessary.
+     */
+    public static Counter counter(String name) {
+        Counter counter = COUNTERS.get(name);
+        if (counter == null) {
+            COUNTERS.putIfAbsent(name, new Counter(name));
+            counter = COUNTERS.get(name);
+        }
+        return counter;
+    }
+
+    /**
+     * Returns the histogram with a name, which is created if necessary.
+     */
+    public static Histogram histogram(String name) {
+        Histogram histogram = HISTOGRAMS.get(name);
+        if (histogram == null) {
+            HISTOGRAMS.putIfAbsent(name, new Histogram(name));
+            histogram = HISTOGRAMS.get(name);
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns all counters, sorted by name.
+     */
+    public static Map<String, Counter> getCounters() {
+        return Collections.unmodifiableMap(new TreeMap<String, Counter>(COUNTERS));
+    }
+
+    /**
+     * Returns all histograms, sorted by name.
+     */
+    public static Map<String, Histogram> getHistograms() {
+        return Collections.unmodifiableMap(new TreeMap<String, Histogram>(HISTOGRAMS));
+    }
+
+    /**
+     * Sets all counters and histograms to zero.
+     */
+    public static void reset() {
+        for (Counter counter : COUNTERS.values()) {
+            counter.reset();
+        }
+        for (Histogram histogram : HISTOGRAMS.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Adds a listener, which is told about every value counted or recorded from now on.
+     */
+    public static void addListener(Listener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        LISTENERS.addIfAbsent(listener);
+    }
+
+    /**
+     * Removes a listener added before.
+     */
+    public static void removeListener(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server under MBEAN_NAME, unless this
+     * has been done before. Every counter is an attribute, every histogram has the
+     * attributes name.count, name.mean, name.p50, name.p99 and name.max.
+     *
+     * @throws JMException If the registration fails.
+     */
+    public static synchronized void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(MBEAN_NAME);
+        if (!server.isRegistered(name)) {
+            server.registerMBean(new MetricsMBean(), name);
+        }
+    }
+
+    /**
+     * Returns all values as attributes, as registerMBean() shows them.
+     */
+    static Map<String, Number> getValues() {
+        Map<String, Number> values = new TreeMap<String, Number>();
+        for (Counter counter : COUNTERS.values()) {
+            values.put(counter.getName(), counter.get());
+        }
+        for (Histogram histogram : HISTOGRAMS.values()) {
+            String name = histogram.getName();
+            values.put(name + ".count", histogram.getCount());
+            values.put(name + ".mean", histogram.getMean());
+            values.put(name + ".p50", histogram.getPercentile(50));
+            values.put(name + ".p99", histogram.getPercentile(99));
+            values.put(name + ".max", histogram.getMax());
+        }
+        return values;
+    }
+
+    /**
+     * Receives the values as they are counted or recorded, e.g. to pass them on to a
+     * metrics system of the application. The methods are called on the thread doing the
+     * work, possibly on many threads at the same time, so they have to be thread-safe and
+     * quick. Exceptions they throw reach the instrumented code.
+     */
+    public interface Listener {
+        /**
+         * Called when a counter has been increased.
+         */
+        void counted(Counter counter, long amount);
+
+        /**
+         * Called when a value has been recorded in a histogram.
+         */
+        void recorded(Histogram histogram, long value);
+    }
+
+    /**
+     * A value that only grows, e.g. the number of bytes received.
+     */
+    public static class Counter {
+        private final String name;
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void increment() {
+            add(1);
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+            if (!LISTENERS.isEmpty()) {
+                for (Listener listener : LISTENERS) {
+                    listener.counted(this, amount);
+                }
+            }
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        void reset() {
+            value.reset();
+        }
+
+        public String toString() {
+            return name + "=" + get();
+        }
+    }
+
+    /**
+     * The distribution of recorded values, e.g. latencies in nanoseconds. Values are
+     * counted in buckets of powers of two, so percentiles are exact within a factor of
+     * two, and recording needs neither locks nor memory.
+     */
+    public static class Histogram {
+        private final static int BUCKETS = 64;
+
+        private final String name;
+        /** buckets[i] counts the values v with 2^(i-1) <= v < 2^i; buckets[0] those <= 0 */
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        Histogram(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Records a value.
+         */
+        public void record(long value) {
+            buckets.incrementAndGet(value <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(value));
+            count.increment();
+            sum.add(value);
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+            if (!LISTENERS.isEmpty()) {
+                for (Listener listener : LISTENERS) {
+                    listener.recorded(this, value);
+                }
+            }
+        }
+
+        /**
+         * Returns the number of recorded values.
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the sum of the recorded values.
+         */
+        public long getSum() {
+            return sum.sum();
+        }
+
+        /**
+         * Returns the average of the recorded values, or 0, if there are none.
+         */
+        public double getMean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        /**
+         * Returns the largest recorded value, or 0, if there are none.
+         */
+        public long getMax() {
+            long value = max.get();
+            return value == Long.MIN_VALUE ? 0 : value;
+        }
+
+        /**
+         * Returns an upper bound for the given percentile of the recorded values: the
+         * upper end of the bucket containing it, but not more than the largest value.
+         *
+         * @param percentile Between 0 and 100.
+         * @return The bound, or 0, if there are no values.
+         */
+        public long getPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            }
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    long upper = i == 0 ? 0 : (1L << i) - 1;
+                    return Math.min(upper, getMax());
+                }
+            }
+            return getMax();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            sum.reset();
+            max.set(Long.MIN_VALUE);
+        }
+
+        public String toString() {
+            return name + ": count=" + getCount() + ", mean=" + String.format("%.1f", getMean())
+                    + ", p50=" + getPercentile(50) + ", p99=" + getPercentile(99) + ", max=" + getMax();
+        }
+    }
+
+    /**
+     * Shows the current values of all metrics as read-only attributes.
+     */
+    private static class MetricsMBean implements DynamicMBean {
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Number value = getValues().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Number> values = getValues();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                if (values.containsKey(attribute)) {
+                    list.add(new Attribute(attribute, values.get(attribute)));
+                }
+            }
+            return list;
+        }
+
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("the metrics are read-only: " + attribute.getName());
+        }
+
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+            // there are no operations
+            throw new ReflectionException(new NoSuchMethodException(action));
+        }
+
+        public MBeanInfo getMBeanInfo() {
+            ArrayList<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+            for (Map.Entry<String, Number> value : getValues().entrySet()) {
+                attributes.add(new MBeanAttributeInfo(value.getKey(), value.getValue().getClass().getName(),
+                        value.getKey(), true, false, false));
+            }
+            return new MBeanInfo(Metrics.class.getName(), "simplescrape metrics",
+                    attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null,
+                    new MBeanOperationInfo[0], null);
+        }
+    }
+}
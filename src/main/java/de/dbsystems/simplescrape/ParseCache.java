@@ -0,0 +1,295 @@
+package de.dbsystems.simplescrape;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache for parsed documents, keyed by the content they have been parsed from.
+ * Pages that are byte-identical to a page parsed before (error pages, unchanged
+ * listings) are therefore parsed only once; all Scrapers for them share one
+ * ParsedDocument. If the same content is requested by several threads at the same
+ * time, only one of them parses it and the others wait for the result.
+ * <p>
+ * Content is looked up by its length and a 64-bit hash, and a hit is only used if the
+ * content is equal byte for byte, so crafted pages with the same hash can't get the
+ * document of another page. The cache is bounded by an estimate of the memory used by
+ * the contents and their documents; when it is exceeded, the least recently used
+ * documents are dropped.
+ * </p>
+ * <p>This class is thread-safe.</p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class ParseCache {
+    /**
+     * The estimated memory per token in bytes: the token object, its strings and the
+     * reference to it.
+     */
+    final static int TOKEN_WEIGHT = 64;
+
+    private final long maxWeight;
+
+    /**
+     * All entries in the order of their last use. Guarded by itself.
+     * Parsing is done outside of the lock.
+     */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(64, 0.75f, true);
+
+    /**
+     * Total weight of all completely parsed entries. Guarded by entries.
+     */
+    private long weight = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxWeight The maximum memory (in bytes) for the contents and their parsed
+     * documents. Every entry is weighted with the length of its content, plus 64 bytes
+     * per token, plus two bytes per character of its source, if the document has one.
+     */
+    public ParseCache(long maxWeight) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("maxWeight must not be negative");
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the parsed document for some content. The content is parsed only if it is
+     * not yet in the cache.
+     *
+     * @param content The content, e.g. the body of a webpage. It must not be modified afterwards.
+     * @return The document. It is shared with all other callers asking for the same content.
+     * @throws IOException If parsing failed.
+     */
+    public ParsedDocument getDocument(final byte[] content) throws IOException {
+        Key key = new Key(hash(content), content.length);
+        Entry entry;
+        boolean parse = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(content, new FutureTask<ParsedDocument>(new Callable<ParsedDocument>() {
+                    public ParsedDocument call() throws IOException {
+                        return ParsedDocument.parse(new ByteArrayInputStream(content));
+                    }
+                }));
+                entries.put(key, entry);
+                parse = true;
+            }
+        }
+        if (!parse && !Arrays.equals(entry.content, content)) {
+            // same hash, but other content: parse it without replacing the cached one
+            misses.incrementAndGet();
+            return ParsedDocument.parse(new ByteArrayInputStream(content));
+        }
+        if (parse) {
+            misses.incrementAndGet();
+            entry.task.run();
+            completed(key, entry);
+        } else {
+            hits.incrementAndGet();
+        }
+        try {
+            return entry.task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the document to be parsed");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("parsing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Returns a new Scraper for some content. The content is parsed only if it is not yet
+     * in the cache.
+     *
+     * @param content The content, e.g. the body of a webpage. It must not be modified afterwards.
+     * @return A Scraper positioned at the first token.
+     * @throws IOException If parsing failed.
+     */
+    public Scraper getScraper(byte[] content) throws IOException {
+        return new Scraper(getDocument(content));
+    }
+
+    /**
+     * Convenience method: reads a stream completely and returns a Scraper for its content.
+     *
+     * @param input The stream. It is closed afterwards.
+     * @return A Scraper positioned at the first token.
+     * @throws IOException If reading or parsing failed.
+     */
+    public Scraper getScraper(InputStream input) throws IOException {
+        return getScraper(ScrapeSource.readFully(input));
+    }
+
+    /**
+     * Returns the hash contents are looked up by.
+     */
+    long hash(byte[] content) {
+        return Hashing.hash(content);
+    }
+
+    /**
+     * Accounts for a newly parsed entry and drops old entries if necessary.
+     */
+    private void completed(Key key, Entry entry) {
+        synchronized (entries) {
+            ParsedDocument document;
+            try {
+                document = entry.task.get();
+            } catch (Exception e) {
+                document = null;
+            }
+            boolean failed = document == null;
+            if (failed) {
+                // don't keep failures, the next try may succeed
+                if (entries.get(key) == entry) {
+                    entries.remove(key);
+                }
+                return;
+            }
+            if (entries.get(key) != entry) {
+                // removed by clear() in the meantime
+                return;
+            }
+            entry.weight = entry.content.length + (long) TOKEN_WEIGHT * document.size();
+            if (document.getSource() != null) {
+                entry.weight += 2L * document.getSource().length();
+            }
+            entry.counted = true;
+            weight += entry.weight;
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (weight > maxWeight && iterator.hasNext()) {
+                Entry eldest = iterator.next().getValue();
+                if (eldest.counted) {
+                    iterator.remove();
+                    weight -= eldest.weight;
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all documents from the cache. The statistics are not reset.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * Returns the number of documents in the cache (including those currently being parsed).
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the estimated memory used by the contents and documents in the cache.
+     */
+    public long getWeight() {
+        synchronized (entries) {
+            return weight;
+        }
+    }
+
+    /**
+     * Returns how often a document was found in the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns how often a document had to be parsed.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns how many documents have been dropped to stay within the size limit.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private static class Key {
+        private final long hash;
+        private final int length;
+
+        Key(long hash, int length) {
+            this.hash = hash;
+            this.length = length;
+        }
+
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && length == key.length;
+        }
+
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    private static class Entry {
+        /** The content, to tell it from other content with the same key */
+        final byte[] content;
+        final FutureTask<ParsedDocument> task;
+        /** Set once the document has been parsed. Guarded by entries. */
+        long weight = 0;
+        /** Whether weight has been added to the total weight */
+        boolean counted = false;
+
+        Entry(byte[] content, FutureTask<ParsedDocument> task) {
+            this.content = content;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package de.dbsystems.simplescrape;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The result of tokenizing an HTML-file: an immutable sequence of tokens.
+ * A ParsedDocument holds no position of any kind. To search within it, create a
+ * Scraper for it with {@link #newScraper()}. Scrapers are cheap, as they share the
+ * tokens of the document instead of copying them.
+ * <p>
+ * This class is thread-safe. A document can be parsed once and then be handed to
+ * any number of threads, each working with its own Scraper, without locking.
+ * </p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public final class ParsedDocument {
+    private final AbstractHTMLToken[] tokens;
+
+    private final List<AbstractHTMLToken> tokenList;
+
+    /**
+     * The text the tokens were read from, or null, if unknown.
+     */
+    private final String source;
+
+    /**
+     * offsets[i] is the index of the first character of token i within source,
+     * offsets[size()] is the length of source. null, if source is unknown.
+     */
+    private final int[] offsets;
+
+    /**
+     * Fingerprints of the tokens (see TokenFingerprints), computed on first use,
+     * for each combination of ignoreCase and trimText.
+     */
+    private final AtomicReferenceArray<long[]> fingerprints = new AtomicReferenceArray<long[]>(4);
+
+    /**
+     * For every tag name (in lower case): the indexes of all start and end tags with
+     * that name. Computed on first use.
+     */
+    private volatile Map<String, int[]> tagIndex = null;
+
+    private final static int[] NO_POSITIONS = new int[0];
+
+    /**
+     * Creates a document from a list of tokens. The list is copied.
+     * The source of the document is unknown.
+     *
+     * @param tokens The tokens of the document. Must not be null.
+     */
+    public ParsedDocument(List<AbstractHTMLToken> tokens) {
+        this(tokens.toArray(new AbstractHTMLToken[tokens.size()]), null, null);
+    }
+
+    /**
+     * Creates a document taking ownership of its arrays. They must not be
+     * modified afterwards.
+     *
+     * @param tokens The tokens.
+     * @param source The source text, or null, if unknown.
+     * @param offsets The offsets of the tokens within source (plus the length of source
+     * at the end), or null, if source is unknown.
+     */
+    ParsedDocument(AbstractHTMLToken[] tokens, String source, int[] offsets) {
+        this.tokens = tokens;
+        this.tokenList = new TokenList();
+        this.source = source;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Reads all tokens from a tokenizer. The source text is not kept, see
+     * parse(Tokenizer, boolean).
+     *
+     * @param tokenizer The tokenizer to read from. It is read to the end.
+     * @return The parsed document.
+     * @throws IOException If reading from the tokenizer fails.
+     */
+    public static ParsedDocument parse(Tokenizer tokenizer) throws IOException {
+        return parse(tokenizer, false);
+    }
+
+    /**
+     * Reads all tokens from a tokenizer.
+     *
+     * @param tokenizer The tokenizer to read from. It is read to the end.
+     * @param keepSource true: the source text is kept together with the tokens (see
+     * getSource()), which is needed for update() and for writing the document verbatim.
+     * @return The parsed document.
+     * @throws IOException If reading from the tokenizer fails.
+     */
+    public static ParsedDocument parse(Tokenizer tokenizer, boolean keepSource) throws IOException {
+        Builder builder = new Builder(tokenizer, keepSource);
+        builder.readAll();
+        return builder.build();
+    }
+
+    /**
+     * Convenience method for parsing an input stream completely. Afterwards, input
+     * can be closed. The source text is not kept.
+     *
+     * @param input The InputStream to be parsed.
+     * @return The parsed document.
+     * @throws IOException If reading from the stream fails.
+     */
+    public static ParsedDocument parse(InputStream input) throws IOException {
+        return parse(new Tokenizer(input), false);
+    }
+
+    /**
+     * Convenience method for parsing an input stream completely. Afterwards, input
+     * can be closed.
+     *
+     * @param input The InputStream to be parsed.
+     * @param keepSource true: the source text is kept, see parse(Tokenizer, boolean).
+     * @return The parsed document.
+     * @throws IOException If reading from the stream fails.
+     */
+    public static ParsedDocument parse(InputStream input, boolean keepSource) throws IOException {
+        return parse(new Tokenizer(input), keepSource);
+    }
+
+    /**
+     * Creates a new Scraper working on this document. Its position is the first token.
+     *
+     * @return The new scraper.
+     */
+    public Scraper newScraper() {
+        return new Scraper(this);
+    }
+
+    /**
+     * Returns the number of tokens in this document.
+     */
+    public int size() {
+        return tokens.length;
+    }
+
+    /**
+     * Returns the token at the given index.
+     * @param index The index of the token to be retrieved.
+     * @return The requested token, or null, if index is out of range.
+     */
+    public AbstractHTMLToken get(int index) {
+        if (index >= 0 && index < tokens.length) {
+            return tokens[index];
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the text this document has been parsed from. As opposed to the
+     * concatenation of the tokens' toString(), this is exactly the original input.
+     * The source is only kept if requested when parsing (see parse(Tokenizer, boolean)),
+     * as it needs two bytes per character in addition to the tokens, and recording it
+     * takes about as much again while parsing. Documents returned by update() or
+     * loaded by BinaryDocumentFormat always have it.
+     *
+     * @return The source, or null, if it hasn't been kept.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the position of a token within the source.
+     *
+     * @param index The index of the token. size() may be used to get the length of the source.
+     * @return The offset of the first character of the token within getSource(), or -1,
+     * if the source is unknown or index is out of range.
+     */
+    public int getOffset(int index) {
+        if (offsets == null || index < 0 || index > tokens.length) {
+            return -1;
+        }
+        return offsets[index];
+    }
+
+    /**
+     * Returns the indexes of all tags with a given name, start and end tags alike, in
+     * ascending order. The index of all tag names is built once per document on first
+     * use, and shared by all Scrapers.
+     *
+     * @param name The name of the tag, in lower case.
+     * @return The indexes. The array must not be modified.
+     */
+    int[] getTagPositions(String name) {
+        Map<String, int[]> index = tagIndex;
+        if (index == null) {
+            // building it twice in a race doesn't hurt
+            index = buildTagIndex();
+            tagIndex = index;
+        }
+        int[] positions = index.get(name);
+        return positions != null ? positions : NO_POSITIONS;
+    }
+
+    /**
+     * Returns the indexes of all tags with one of several names, in ascending order.
+     *
+     * @param names The names of the tags, in lower case.
+     */
+    int[] getTagPositions(String... names) {
+        int count = 0;
+        for (String name : names) {
+            count += getTagPositions(name).length;
+        }
+        int[] result = new int[count];
+        int end = 0;
+        for (String name : names) {
+            int[] positions = getTagPositions(name);
+            System.arraycopy(positions, 0, result, end, positions.length);
+            end += positions.length;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private Map<String, int[]> buildTagIndex() {
+        Map<String, int[]> index = new HashMap<String, int[]>();
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (AbstractHTMLToken token : tokens) {
+            if (token instanceof HTMLTag) {
+                String name = ((HTMLTag) token).getName().toLowerCase();
+                Integer count = counts.get(name);
+                counts.put(name, count == null ? 1 : count + 1);
+            }
+        }
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            index.put(entry.getKey(), new int[entry.getValue()]);
+            entry.setValue(0);
+        }
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i] instanceof HTMLTag) {
+                String name = ((HTMLTag) tokens[i]).getName().toLowerCase();
+                int used = counts.get(name);
+                index.get(name)[used] = i;
+                counts.put(name, used + 1);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the fingerprints of all tokens. They are computed once per document and
+     * combination of options, and shared by all Scrapers.
+     *
+     * @param ignoreCase As in ScrapeOptions.
+     * @param trimText As in ScrapeOptions.
+     */
+    long[] getFingerprints(boolean ignoreCase, boolean trimText) {
+        int which = (ignoreCase ? 2 : 0) + (trimText ? 1 : 0);
+        long[] result = fingerprints.get(which);
+        if (result == null) {
+            // computing them twice in a race doesn't hurt
+            result = TokenFingerprints.of(tokens, ignoreCase, trimText);
+            fingerprints.set(which, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns all tokens of this document as an unmodifiable list. The list is a view,
+     * no tokens are copied.
+     */
+    public List<AbstractHTMLToken> getTokens() {
+        return tokenList;
+    }
+
+    /**
+     * Returns the document for a new version of the source, typically a refetched page.
+     * Only the part of the new source that differs from this document's source is
+     * tokenized: tokens before the first and after the last changed character are taken
+     * over from this document. Usually this makes updating much cheaper than parsing the
+     * new source completely, while the result is the same. This document does not change.
+     *
+     * @param newSource The new source.
+     * @return The document for newSource, or this document, if the source didn't change.
+     */
+    public ParsedDocument update(String newSource) {
+        try {
+            if (source == null) {
+                Builder builder = new Builder(new Tokenizer(new StringReader(newSource)), newSource);
+                builder.readAll();
+                return builder.build();
+            }
+            int oldLength = source.length();
+            int newLength = newSource.length();
+            int prefix = 0;
+            int limit = Math.min(oldLength, newLength);
+            while (prefix < limit && source.charAt(prefix) == newSource.charAt(prefix)) {
+                prefix++;
+            }
+            if (prefix == oldLength && prefix == newLength) {
+                return this;
+            }
+            int suffix = 0;
+            limit -= prefix;
+            while (suffix < limit && source.charAt(oldLength - suffix - 1) == newSource.charAt(newLength - suffix - 1)) {
+                suffix++;
+            }
+
+            // A token depends on its characters and on the lookahead of the tokenizer
+            // following them, so it can only be kept if both are before the first change.
+            int first = 0;
+            while (first < tokens.length && offsets[first + 1] + Tokenizer.LOOKAHEAD_LENGTH <= prefix) {
+                first++;
+            }
+            int restart = offsets[first];
+            int delta = newLength - oldLength;
+            int suffixStart = oldLength - suffix;
+
+            StringReader reader = new StringReader(newSource);
+            reader.skip(restart);
+            Tokenizer tokenizer = new Tokenizer(reader);
+            ArrayList<AbstractHTMLToken> middle = new ArrayList<AbstractHTMLToken>();
+            ArrayList<Integer> middleOffsets = new ArrayList<Integer>();
+            // index of the first old token to be taken over after the changed region
+            int resume = tokens.length;
+            int position = restart;
+            AbstractHTMLToken next = tokenizer.readElement();
+            while (next != null) {
+                middle.add(next);
+                middleOffsets.add(position);
+                position = restart + tokenizer.getOffset();
+                // The tokenizer keeps no state between tokens. So if the rest of the new source
+                // equals the rest of the old one, starting at a token boundary of the old one,
+                // the remaining tokens are the same, too.
+                int oldPosition = position - delta;
+                if (oldPosition >= suffixStart && oldPosition < oldLength) {
+                    int index = Arrays.binarySearch(offsets, first, tokens.length, oldPosition);
+                    if (index >= 0) {
+                        resume = index;
+                        break;
+                    }
+                }
+                next = tokenizer.readElement();
+            }
+
+            int count = first + middle.size() + tokens.length - resume;
+            AbstractHTMLToken[] newTokens = new AbstractHTMLToken[count];
+            int[] newOffsets = new int[count + 1];
+            System.arraycopy(tokens, 0, newTokens, 0, first);
+            System.arraycopy(offsets, 0, newOffsets, 0, first);
+            for (int i = 0; i < middle.size(); i++) {
+                newTokens[first + i] = middle.get(i);
+                newOffsets[first + i] = middleOffsets.get(i);
+            }
+            int target = first + middle.size();
+            System.arraycopy(tokens, resume, newTokens, target, tokens.length - resume);
+            for (int i = resume; i < tokens.length; i++) {
+                newOffsets[target++] = offsets[i] + delta;
+            }
+            newOffsets[count] = newLength;
+            return new ParsedDocument(newTokens, newSource, newOffsets);
+        } catch (IOException e) {
+            // can't happen, all input comes from a string
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Collects the tokens read from a tokenizer, optionally together with their source.
+     */
+    static class Builder {
+        private final static Metrics.Histogram PARSE_TIME = Metrics.histogram("parse.time");
+
+        private final Tokenizer tokenizer;
+        private final ArrayList<AbstractHTMLToken> tokens = new ArrayList<AbstractHTMLToken>();
+        /** the offsets of the tokens, null, if the source isn't kept */
+        private int[] offsets = null;
+        /** the input recorded so far, null, if not recording */
+        private final StringBuilder recorded;
+        /** the complete input, if it is known in advance */
+        private final String source;
+        private final int base;
+
+        /**
+         * Creates a Builder which doesn't keep the source.
+         */
+        Builder(Tokenizer tokenizer) {
+            this(tokenizer, false);
+        }
+
+        /**
+         * @param keepSource true: the input is recorded and becomes the document's source.
+         */
+        Builder(Tokenizer tokenizer, boolean keepSource) {
+            this.tokenizer = tokenizer;
+            this.base = tokenizer.getOffset();
+            this.recorded = keepSource ? new StringBuilder() : null;
+            this.source = null;
+            if (keepSource) {
+                offsets = new int[64];
+            }
+        }
+
+        /**
+         * Creates a Builder for a tokenizer reading source from its start. The source is
+         * kept without recording it again.
+         */
+        Builder(Tokenizer tokenizer, String source) {
+            this.tokenizer = tokenizer;
+            this.base = tokenizer.getOffset();
+            this.recorded = null;
+            this.source = source;
+            this.offsets = new int[64];
+        }
+
+        /**
+         * Reads tokens until the end of the input. If this fails, all tokens read
+         * until then are still kept.
+         */
+        void readAll() throws IOException {
+            long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+            while (readNext()) {
+                // continue
+            }
+            if (start != 0) {
+                PARSE_TIME.record(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Reads the next token.
+         *
+         * @return true, if a token has been read, false at the end of the input.
+         */
+        boolean readNext() throws IOException {
+            if (recorded == null) {
+                return read();
+            }
+            tokenizer.setRecorder(recorded);
+            try {
+                return read();
+            } finally {
+                tokenizer.setRecorder(null);
+            }
+        }
+
+        private boolean read() throws IOException {
+            int start = tokenizer.getOffset() - base;
+            AbstractHTMLToken next = tokenizer.readElement();
+            if (next == null) {
+                return false;
+            }
+            if (offsets != null) {
+                if (tokens.size() == offsets.length) {
+                    int[] larger = new int[offsets.length * 2];
+                    System.arraycopy(offsets, 0, larger, 0, offsets.length);
+                    offsets = larger;
+                }
+                offsets[tokens.size()] = start;
+            }
+            tokens.add(next);
+            return true;
+        }
+
+        /**
+         * Returns the tokens read so far. The list grows with every readNext().
+         */
+        List<AbstractHTMLToken> getTokens() {
+            return tokens;
+        }
+
+        ParsedDocument build() {
+            int count = tokens.size();
+            AbstractHTMLToken[] array = tokens.toArray(new AbstractHTMLToken[count]);
+            if (offsets == null) {
+                return new ParsedDocument(array, null, null);
+            }
+            String text = source != null ? source : recorded.toString();
+            int[] result = new int[count + 1];
+            System.arraycopy(offsets, 0, result, 0, count);
+            // a failed read may have consumed characters after the last token
+            result[count] = text.length();
+            return new ParsedDocument(array, text, result);
+        }
+    }
+
+    /**
+     * Read-only view on the token array.
+     */
+    private class TokenList extends AbstractList<AbstractHTMLToken> implements RandomAccess {
+        public AbstractHTMLToken get(int index) {
+            return tokens[index];
+        }
+
+        public int size() {
+            return tokens.length;
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package de.dbsystems.simplescrape;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps responses of webpages on disk, together with their ETag and Last-Modified
+ * headers, so that an HTTPHelper only asks whether a page has changed
+ * (If-None-Match, If-Modified-Since) and gets it again only if it has. Use it with
+ * HTTPHelper.setResponseCache().
+ * <p>
+ * Optionally the parsed documents are kept, too (in the BinaryDocumentFormat), so that
+ * an unchanged page isn't even parsed again. Only pages with an ETag or a Last-Modified
+ * header are kept. If the total size of the files exceeds the limit, the pages used least
+ * recently are removed. The cache survives restarts; several helpers may share it, but
+ * not several processes.
+ * </p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class ResponseCache {
+    private final static String META_SUFFIX = ".meta";
+
+    private final static String BODY_SUFFIX = ".body";
+
+    private final static String DOCUMENT_SUFFIX = ".doc";
+
+    private final File directory;
+
+    private final long maxSize;
+
+    private final boolean keepDocuments;
+
+    /**
+     * All entries in the order of their last use. Guarded by itself.
+     * Reading and writing files is done outside of the lock.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+
+    /**
+     * Total size of the files of all entries. Guarded by entries.
+     */
+    private long size = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Opens a cache. Pages stored in the directory before are used again.
+     *
+     * @param directory The directory for the files. It is created if it doesn't exist.
+     * @param maxSize The maximum total size (in bytes) of the files.
+     * @param keepDocuments Whether to keep the parsed documents, too. They need about
+     * four times the space of the pages.
+     * @throws IOException If the directory can't be created or read.
+     */
+    public ResponseCache(File directory, long maxSize, boolean keepDocuments) throws IOException {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("can't create the cache directory " + directory);
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.keepDocuments = keepDocuments;
+        load();
+    }
+
+    /**
+     * Returns the stored validators for a URL.
+     *
+     * @return The entry, or null, if the page isn't in the cache.
+     */
+    Entry get(String url) {
+        synchronized (entries) {
+            return entries.get(key(url));
+        }
+    }
+
+    /**
+     * Returns the stored content of a page, after the server answered 304 Not Modified.
+     *
+     * @return The content, or null, if the files are gone (e.g. evicted in the meantime).
+     */
+    byte[] getContent(Entry entry) {
+        try {
+            byte[] content = Files.readAllBytes(file(entry.key, BODY_SUFFIX).toPath());
+            used(entry);
+            return content;
+        } catch (IOException e) {
+            remove(entry);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the stored document of a page, after the server answered 304 Not Modified.
+     * If the document hasn't been kept, the stored content is parsed.
+     *
+     * @return The document, or null, if the files are gone (e.g. evicted in the meantime).
+     */
+    ParsedDocument getDocument(Entry entry) {
+        try {
+            ParsedDocument document;
+            File documentFile = file(entry.key, DOCUMENT_SUFFIX);
+            if (documentFile.isFile()) {
+                document = BinaryDocumentFormat.read(documentFile);
+            } else {
+                byte[] content = Files.readAllBytes(file(entry.key, BODY_SUFFIX).toPath());
+                document = ParsedDocument.parse(new ByteArrayInputStream(content));
+            }
+            used(entry);
+            return document;
+        } catch (IOException e) {
+            remove(entry);
+            return null;
+        }
+    }
+
+    /**
+     * Stores a page that the server sent completely. Pages without validators are not
+     * stored; an older version of them is removed.
+     *
+     * @param url The URL of the page.
+     * @param etag The ETag header, or null.
+     * @param lastModified The Last-Modified header, or null.
+     * @param content The decoded content.
+     * @param document The parsed content, or null, if it isn't available.
+     */
+    void put(String url, String etag, String lastModified, byte[] content, ParsedDocument document) {
+        misses.incrementAndGet();
+        String key = key(url);
+        if (etag == null && lastModified == null) {
+            Entry old;
+            synchronized (entries) {
+                old = entries.get(key);
+            }
+            if (old != null) {
+                remove(old);
+            }
+            return;
+        }
+        try {
+            if (keepDocuments && document == null) {
+                document = ParsedDocument.parse(new ByteArrayInputStream(content));
+            }
+            synchronized (this) {
+                // one page at a time; readers see either the old or the new files
+                writeFiles(key, url, etag, lastModified, content, document);
+            }
+            add(new Entry(key, url, etag, lastModified, fileSize(key)));
+        } catch (IOException e) {
+            // the page is just not cached
+            System.err.println(e);
+            removeFiles(key);
+        }
+    }
+
+    /**
+     * Writes the files of a page, the meta file last: without it, an entry is incomplete.
+     */
+    private void writeFiles(String key, String url, String etag, String lastModified, byte[] content,
+            ParsedDocument document) throws IOException {
+        File meta = file(key, META_SUFFIX);
+        meta.delete();
+        write(file(key, BODY_SUFFIX), content);
+        File documentFile = file(key, DOCUMENT_SUFFIX);
+        if (keepDocuments) {
+            File temporary = File.createTempFile(documentFile.getName(), ".tmp", directory);
+            try {
+                BinaryDocumentFormat.write(document, temporary);
+                Files.move(temporary.toPath(), documentFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                temporary.delete();
+            }
+        } else {
+            documentFile.delete();
+        }
+        Properties properties = new Properties();
+        properties.setProperty("url", url);
+        if (etag != null) {
+            properties.setProperty("etag", etag);
+        }
+        if (lastModified != null) {
+            properties.setProperty("lastModified", lastModified);
+        }
+        OutputStream out = new FileOutputStream(meta);
+        try {
+            properties.store(out, null);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Counts a page served from the cache.
+     */
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    /**
+     * Removes all pages from the cache. The statistics are not reset.
+     */
+    public void clear() {
+        List<Entry> removed;
+        synchronized (entries) {
+            removed = new ArrayList<Entry>(entries.values());
+            entries.clear();
+            size = 0;
+        }
+        for (Entry entry : removed) {
+            removeFiles(entry.key);
+        }
+    }
+
+    /**
+     * Returns the number of pages in the cache.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the total size of the files in the cache.
+     */
+    public long getSize() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    /**
+     * Returns how often a page was served from the cache because it hadn't changed.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns how often a page had to be transferred.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns how many pages have been dropped to stay within the size limit.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Reads the entries in the directory, in the order of their last use.
+     */
+    private void load() throws IOException {
+        File[] metas = directory.listFiles();
+        if (metas == null) {
+            throw new IOException("can't read the cache directory " + directory);
+        }
+        List<File> files = new ArrayList<File>();
+        for (File file : metas) {
+            if (file.getName().endsWith(META_SUFFIX)) {
+                files.add(file);
+            } else if (file.getName().endsWith(".tmp")) {
+                // left over from an interrupted put()
+                file.delete();
+            }
+        }
+        Collections.sort(files, new Comparator<File>() {
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            String key = name.substring(0, name.length() - META_SUFFIX.length());
+            Properties properties = new Properties();
+            try {
+                InputStream in = new FileInputStream(file);
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                removeFiles(key);
+                continue;
+            }
+            String url = properties.getProperty("url");
+            if (url == null || !key.equals(key(url)) || !file(key, BODY_SUFFIX).isFile()) {
+                removeFiles(key);
+                continue;
+            }
+            add(new Entry(key, url, properties.getProperty("etag"), properties.getProperty("lastModified"),
+                    fileSize(key)));
+        }
+    }
+
+    /**
+     * Adds or replaces an entry and drops old entries if necessary.
+     */
+    private void add(Entry entry) {
+        List<Entry> evicted = new ArrayList<Entry>();
+        synchronized (entries) {
+            Entry old = entries.put(entry.key, entry);
+            if (old != null) {
+                size -= old.size;
+            }
+            size += entry.size;
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                Entry eldest = iterator.next().getValue();
+                iterator.remove();
+                size -= eldest.size;
+                evicted.add(eldest);
+            }
+        }
+        for (Entry eldest : evicted) {
+            evictions.incrementAndGet();
+            removeFiles(eldest.key);
+        }
+    }
+
+    private void used(Entry entry) {
+        synchronized (entries) {
+            entries.get(entry.key);
+        }
+        // keeps the order of use for the next start
+        file(entry.key, META_SUFFIX).setLastModified(System.currentTimeMillis());
+    }
+
+    private void remove(Entry entry) {
+        synchronized (entries) {
+            if (entries.get(entry.key) != entry) {
+                return;
+            }
+            entries.remove(entry.key);
+            size -= entry.size;
+        }
+        removeFiles(entry.key);
+    }
+
+    private void removeFiles(String key) {
+        file(key, META_SUFFIX).delete();
+        file(key, BODY_SUFFIX).delete();
+        file(key, DOCUMENT_SUFFIX).delete();
+    }
+
+    private long fileSize(String key) {
+        return file(key, META_SUFFIX).length() + file(key, BODY_SUFFIX).length()
+                + file(key, DOCUMENT_SUFFIX).length();
+    }
+
+    private File file(String key, String suffix) {
+        return new File(directory, key + suffix);
+    }
+
+    /**
+     * Writes a file completely or not at all.
+     */
+    private void write(File file, byte[] content) throws IOException {
+        File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            Files.write(temporary.toPath(), content);
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            temporary.delete();
+        }
+    }
+
+    /**
+     * Returns the name of the files of a URL.
+     */
+    private static String key(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuffer buf = new StringBuffer(40);
+            for (int i = 0; i < 20; i++) {
+                buf.append(Character.forDigit((digest[i] >> 4) & 15, 16));
+                buf.append(Character.forDigit(digest[i] & 15, 16));
+            }
+            return buf.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+    /**
+     * The validators of a cached page.
+     */
+    static class Entry {
+        final String key;
+        final String url;
+        final String etag;
+        final String lastModified;
+        final long size;
+
+        Entry(String key, String url, String etag, String lastModified, long size) {
+            this.key = key;
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+}
@@ -103,6 +103,14 @@ public class ScrapeOptions {
      * search operation. Default: true.
      */
     public boolean advance = true;
+
+    /**
+     * Specifies, whether matches may start within the boilerplate regions (header,
+     * navigation, footer) of the scraped document. This only has an effect if a
+     * SiteTemplate has been set for the scraper and matches the document.
+     * Default: true (boilerplate is skipped).
+     */
+    public boolean skipBoilerplate = true;
     
     /**
      * Specified, whether the search is performed forward or backwards.
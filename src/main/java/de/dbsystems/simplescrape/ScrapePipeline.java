@@ -0,0 +1,534 @@
+package de.dbsystems.simplescrape;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Processes a stream of items in stages, e.g. fetching, tokenizing, filtering and
+ * extracting, each with its own number of threads. The stages are connected as
+ * java.util.concurrent.Flow publishers and subscribers:
+ * <pre>
+ * ScrapePipeline&lt;ScrapeSource, List&lt;HTMLForm&gt;&gt; pipeline = ScrapePipeline.&lt;ScrapeSource&gt;create()
+ *         .then("fetch", 32, ScrapePipeline.fetch())
+ *         .then("tokenize", 4, ScrapePipeline.tokenize())
+ *         .then("extract", 4, page -&gt; page.getScraper().extractForms());
+ * List&lt;List&lt;HTMLForm&gt;&gt; forms = pipeline.runAndWait(sources);
+ * </pre>
+ * <p>
+ * Backpressure: a stage asks its predecessor for one more item only when one of its
+ * threads is free, and each stage buffers at most a few results for its successor. If a
+ * stage is slow, the results of its predecessor stay in the buffer, the predecessor's
+ * threads wait until there is room, and so on up to the source. So the number of items
+ * on the way is bounded, and every stage works as fast as the slowest one allows.
+ * </p>
+ * <p>
+ * A step that throws an exception or returns null drops the item; the next items are
+ * processed as usual. Exceptions are counted and reported to the ErrorListener.
+ * </p>
+ * <p>A pipeline can be run once. The threads of a stage end when all items have passed
+ * it. The threads handing items from stage to stage are shared by all pipelines.</p>
+ *
+ * @param <I> The type of the items put in.
+ * @param <O> The type of the items coming out of the last stage.
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class ScrapePipeline<I, O> {
+    /**
+     * Default for the number of results a stage buffers for the next one.
+     */
+    public final static int DEFAULT_BUFFER_SIZE = 16;
+
+    /**
+     * The work of a stage for one item.
+     */
+    public interface Step<T, R> {
+        /**
+         * Called once per item, on one of the threads of the stage.
+         * @param item The item.
+         * @return The result for the next stage, or null to drop the item.
+         * @throws Exception Any problem; the item is dropped and the problem reported.
+         */
+        R apply(T item) throws Exception;
+    }
+
+    /**
+     * Is told about items that couldn't be processed.
+     */
+    public interface ErrorListener {
+        /**
+         * Called on the thread of the stage that failed.
+         * @param stage The name of the stage.
+         * @param item The item that couldn't be processed.
+         * @param error What went wrong.
+         */
+        void failed(String stage, Object item, Throwable error);
+    }
+
+    /**
+     * A page on its way through the steps fetch() and tokenize().
+     */
+    public static class Page {
+        private final ScrapeSource source;
+        private final byte[] content;
+        private final Scraper scraper;
+
+        Page(ScrapeSource source, byte[] content, Scraper scraper) {
+            this.source = source;
+            this.content = content;
+            this.scraper = scraper;
+        }
+
+        /**
+         * The source of the page.
+         */
+        public ScrapeSource getSource() {
+            return source;
+        }
+
+        /**
+         * The raw content of the page, or null, once it has been tokenized.
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * A Scraper for the page, positioned at the first token, or null, if it hasn't
+         * been tokenized yet.
+         */
+        public Scraper getScraper() {
+            return scraper;
+        }
+    }
+
+    /**
+     * Delivers items from one stage to the next, for all pipelines; its threads only hand
+     * them over, and end when they have been idle for a minute.
+     */
+    private final static ExecutorService DELIVERY = Executors.newCachedThreadPool(
+            new BatchScraper.DaemonThreadFactory("scrape-pipeline-"));
+
+    private final List<Stage<?, ?>> stages = new ArrayList<Stage<?, ?>>();
+
+    private final int bufferSize;
+
+    private final SubmissionPublisher<I> source;
+
+    private volatile ErrorListener errorListener = null;
+
+    private boolean started = false;
+
+    private ScrapePipeline(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.source = new SubmissionPublisher<I>(DELIVERY, bufferSize);
+    }
+
+    /**
+     * Creates a pipeline without stages, with buffers of DEFAULT_BUFFER_SIZE.
+     *
+     * @param <T> The type of the items put in.
+     */
+    public static <T> ScrapePipeline<T, T> create() {
+        return new ScrapePipeline<T, T>(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a pipeline without stages.
+     *
+     * @param bufferSize The number of results every stage buffers for the next one.
+     * @param <T> The type of the items put in.
+     */
+    public static <T> ScrapePipeline<T, T> create(int bufferSize) {
+        return new ScrapePipeline<T, T>(bufferSize);
+    }
+
+    /**
+     * A step reading the content of a source. It mostly waits, so give its stage many
+     * threads.
+     */
+    public static Step<ScrapeSource, Page> fetch() {
+        return new Step<ScrapeSource, Page>() {
+            public Page apply(ScrapeSource source) throws Exception {
+                return new Page(source, source.read(), null);
+            }
+        };
+    }
+
+    /**
+     * A step tokenizing the content of a page. It needs the CPU, so give its stage about
+     * one thread per core.
+     */
+    public static Step<Page, Page> tokenize() {
+        return new Step<Page, Page>() {
+            public Page apply(Page page) throws Exception {
+                ParsedDocument document = ParsedDocument.parse(new ByteArrayInputStream(page.getContent()));
+                return new Page(page.getSource(), null, document.newScraper());
+            }
+        };
+    }
+
+    /**
+     * Adds a stage.
+     *
+     * @param name The name of the stage, for its threads, statistics and errors.
+     * @param parallelism The number of threads of the stage.
+     * @param step What the stage does with each item.
+     * @param <R> The type of the results of the stage.
+     * @return This pipeline, with the new result type.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <R> ScrapePipeline<I, R> then(String name, int parallelism, Step<? super O, ? extends R> step) {
+        if (name == null || step == null) {
+            throw new IllegalArgumentException("name and step must not be null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        if (started) {
+            throw new IllegalStateException("the pipeline has been started already");
+        }
+        Stage<O, R> stage = new Stage<O, R>(this, name, parallelism, step);
+        last().subscribe(stage);
+        stages.add(stage);
+        return (ScrapePipeline<I, R>) this;
+    }
+
+    /**
+     * Adds a stage that drops the items for which a condition doesn't hold.
+     *
+     * @param name The name of the stage.
+     * @param parallelism The number of threads of the stage.
+     * @param condition The condition.
+     * @return This pipeline.
+     */
+    public ScrapePipeline<I, O> filter(String name, int parallelism, final Predicate<? super O> condition) {
+        return then(name, parallelism, new Step<O, O>() {
+            public O apply(O item) {
+                return condition.test(item) ? item : null;
+            }
+        });
+    }
+
+    /**
+     * Sets the listener for items that couldn't be processed.
+     */
+    public void setErrorListener(ErrorListener listener) {
+        this.errorListener = listener;
+    }
+
+    /**
+     * Returns the stages, in order, e.g. for their statistics.
+     */
+    public synchronized List<Stage<?, ?>> getStages() {
+        return Collections.unmodifiableList(new ArrayList<Stage<?, ?>>(stages));
+    }
+
+    /**
+     * Starts processing and returns immediately. The items are taken from items as fast
+     * as the pipeline can handle them, on a separate thread.
+     *
+     * @param items The items to put in.
+     * @param subscriber Receives the results of the last stage. It controls with its
+     * requests how fast the pipeline runs. If an item can't be taken from items, it gets
+     * onError(), otherwise onComplete() after all results.
+     * @throws IllegalStateException If the pipeline has been run before.
+     */
+    public void run(final Iterable<? extends I> items, Flow.Subscriber<? super O> subscriber) {
+        synchronized (this) {
+            if (started) {
+                throw new IllegalStateException("the pipeline has been started already");
+            }
+            started = true;
+            last().subscribe(subscriber);
+        }
+        Thread feeder = new BatchScraper.DaemonThreadFactory("scrape-pipeline-feeder-").newThread(new Runnable() {
+            public void run() {
+                try {
+                    for (I item : items) {
+                        // blocks while the first stage is busy
+                        source.submit(item);
+                    }
+                    source.close();
+                } catch (RuntimeException e) {
+                    source.closeExceptionally(e);
+                }
+            }
+        });
+        feeder.start();
+    }
+
+    /**
+     * Convenience method: processes all items and waits until all results are there.
+     *
+     * @param items The items to put in.
+     * @return The results that haven't been dropped, in the order they have been completed.
+     * @throws ExecutionException If an item couldn't be taken from items.
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public List<O> runAndWait(Iterable<? extends I> items) throws ExecutionException, InterruptedException {
+        final List<O> results = Collections.synchronizedList(new ArrayList<O>());
+        final CountDownLatch done = new CountDownLatch(1);
+        final Throwable[] failure = new Throwable[1];
+        run(items, new Flow.Subscriber<O>() {
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            public void onNext(O item) {
+                results.add(item);
+            }
+
+            public void onError(Throwable error) {
+                failure[0] = error;
+                done.countDown();
+            }
+
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+        done.await();
+        if (failure[0] != null) {
+            throw new ExecutionException(failure[0]);
+        }
+        return new ArrayList<O>(results);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Flow.Publisher<O> last() {
+        return stages.isEmpty() ? (Flow.Publisher<O>) source : (Flow.Publisher<O>) stages.get(stages.size() - 1);
+    }
+
+    private void reportError(String stage, Object item, Throwable error) {
+        ErrorListener listener = errorListener;
+        if (listener != null) {
+            listener.failed(stage, item, error);
+        }
+    }
+
+    /**
+     * A stage of a pipeline: it takes items from the previous stage, applies its step to
+     * them on its own threads and publishes the results to the next stage.
+     */
+    public static class Stage<T, R> extends SubmissionPublisher<R> implements Flow.Processor<T, R> {
+        private final ScrapePipeline<?, ?> pipeline;
+        private final String name;
+        private final int parallelism;
+        private final Step<? super T, ? extends R> step;
+        private final ExecutorService workers;
+
+        private volatile Flow.Subscription subscription;
+
+        /** The number of items received, but not finished */
+        private final AtomicInteger active = new AtomicInteger();
+        private volatile boolean upstreamDone = false;
+        private volatile Throwable upstreamError = null;
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong emitted = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private volatile long firstStart = 0;
+        private volatile long lastEnd = 0;
+
+        Stage(ScrapePipeline<?, ?> pipeline, String name, int parallelism, Step<? super T, ? extends R> step) {
+            super(DELIVERY, pipeline.bufferSize);
+            this.pipeline = pipeline;
+            this.name = name;
+            this.parallelism = parallelism;
+            this.step = step;
+            this.workers = Executors.newFixedThreadPool(parallelism,
+                    new BatchScraper.DaemonThreadFactory("scrape-" + name + "-"));
+        }
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            // one item per thread; every finished item asks for the next
+            subscription.request(parallelism);
+        }
+
+        public void onNext(final T item) {
+            active.incrementAndGet();
+            received.incrementAndGet();
+            workers.execute(new Runnable() {
+                public void run() {
+                    process(item);
+                }
+            });
+        }
+
+        public void onError(Throwable error) {
+            upstreamError = error;
+            upstreamDone = true;
+            if (active.get() == 0) {
+                finish();
+            }
+        }
+
+        public void onComplete() {
+            upstreamDone = true;
+            if (active.get() == 0) {
+                finish();
+            }
+        }
+
+        private void process(T item) {
+            long start = System.nanoTime();
+            if (firstStart == 0) {
+                firstStart = start;
+            }
+            try {
+                R result;
+                try {
+                    result = step.apply(item);
+                } finally {
+                    long end = System.nanoTime();
+                    lastEnd = end;
+                    busyNanos.addAndGet(end - start);
+                    long max = maxNanos.get();
+                    while (end - start > max && !maxNanos.compareAndSet(max, end - start)) {
+                        max = maxNanos.get();
+                    }
+                }
+                if (result == null) {
+                    dropped.incrementAndGet();
+                } else {
+                    // blocks while the buffer for the next stage is full
+                    submit(result);
+                    emitted.incrementAndGet();
+                }
+            } catch (Throwable e) {
+                failed.incrementAndGet();
+                pipeline.reportError(name, item, e);
+            } finally {
+                if (active.decrementAndGet() == 0 && upstreamDone) {
+                    finish();
+                } else {
+                    subscription.request(1);
+                }
+            }
+        }
+
+        private void finish() {
+            if (finished.compareAndSet(false, true)) {
+                workers.shutdown();
+                if (upstreamError != null) {
+                    closeExceptionally(upstreamError);
+                } else {
+                    close();
+                }
+            }
+        }
+
+        /**
+         * Returns the name of the stage.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of threads of the stage.
+         */
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        /**
+         * Returns the number of items received from the previous stage.
+         */
+        public long getReceivedCount() {
+            return received.get();
+        }
+
+        /**
+         * Returns the number of results passed on to the next stage.
+         */
+        public long getEmittedCount() {
+            return emitted.get();
+        }
+
+        /**
+         * Returns the number of items dropped because the step returned null.
+         */
+        public long getDroppedCount() {
+            return dropped.get();
+        }
+
+        /**
+         * Returns the number of items dropped because the step threw an exception.
+         */
+        public long getFailedCount() {
+            return failed.get();
+        }
+
+        /**
+         * Returns the number of items processed (with any outcome) per second, from the
+         * start of the first to the end of the last item so far.
+         */
+        public double getThroughput() {
+            long count = emitted.get() + dropped.get() + failed.get();
+            long elapsed = lastEnd - firstStart;
+            return count == 0 || elapsed <= 0 ? 0 : count * 1e9 / elapsed;
+        }
+
+        /**
+         * Returns the average time the step took per item, in milliseconds. Waiting for
+         * the next stage is not included.
+         */
+        public double getAverageLatency() {
+            long count = emitted.get() + dropped.get() + failed.get();
+            return count == 0 ? 0 : busyNanos.get() / 1e6 / count;
+        }
+
+        /**
+         * Returns the longest time the step took for an item, in milliseconds.
+         */
+        public double getMaxLatency() {
+            return maxNanos.get() / 1e6;
+        }
+
+        public String toString() {
+            return name + ": " + received.get() + " received, " + emitted.get() + " emitted, "
+                    + dropped.get() + " dropped, " + failed.get() + " failed, "
+                    + String.format("%.1f/s, %.2f ms average, %.2f ms max",
+                            getThroughput(), getAverageLatency(), getMaxLatency());
+        }
+    }
+}
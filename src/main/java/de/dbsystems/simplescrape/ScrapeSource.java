@@ -0,0 +1,148 @@
+package de.dbsystems.simplescrape;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Something a page can be read from: a URL, a file or a stream. Sources are
+ * used for processing many pages at once, see {@link BatchScraper}.
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public abstract class ScrapeSource {
+
+    /**
+     * Reads the complete content of this source. This may block for a long time
+     * (e.g. for a slow webserver), but does not parse anything.
+     *
+     * @return The raw content.
+     * @throws IOException If the content could not be read.
+     */
+    public abstract byte[] read() throws IOException;
+
+    /**
+     * A source for a webpage, which is retrieved with an HTTP GET.
+     *
+     * @param urlString The URL of the page.
+     * @param helper The helper to be used for the request (e.g. because of its proxy).
+     * @return The source.
+     */
+    public static ScrapeSource forURL(final String urlString, final HTTPHelper helper) {
+        return new ScrapeSource() {
+            public byte[] read() throws IOException {
+                return helper.getWebpageContent(urlString);
+            }
+
+            public String toString() {
+                return urlString;
+            }
+        };
+    }
+
+    /**
+     * A source for a webpage, which is retrieved with an HTTP GET without a proxy.
+     *
+     * @param urlString The URL of the page.
+     * @return The source.
+     */
+    public static ScrapeSource forURL(String urlString) {
+        return forURL(urlString, new HTTPHelper());
+    }
+
+    /**
+     * A source for a local file. Gzipped files are decompressed.
+     *
+     * @param file The file to read.
+     * @return The source.
+     */
+    public static ScrapeSource forFile(final File file) {
+        return new ScrapeSource() {
+            public byte[] read() throws IOException {
+                return readFully(openFile(file));
+            }
+
+            public String toString() {
+                return file.getPath();
+            }
+        };
+    }
+
+    /**
+     * Opens a file for parsing, e.g. with new Scraper(InputStream). If the file is
+     * gzipped (like page.html.gz), it is decompressed while it is read.
+     *
+     * @param file The file to read.
+     * @return A buffered stream with the content of the file.
+     * @throws IOException If the file can't be opened.
+     */
+    public static InputStream openFile(File file) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            return Compression.decodeIfGzipped(input);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * A source for an already opened stream. The stream is read once and closed afterwards.
+     *
+     * @param input The stream to read.
+     * @return The source.
+     */
+    public static ScrapeSource forStream(final InputStream input) {
+        return new ScrapeSource() {
+            public byte[] read() throws IOException {
+                return readFully(input);
+            }
+
+            public String toString() {
+                return input.toString();
+            }
+        };
+    }
+
+    /**
+     * Reads a stream to its end and closes it.
+     *
+     * @param input The stream to read.
+     * @return The content of the stream.
+     * @throws IOException If reading fails.
+     */
+    static byte[] readFully(InputStream input) throws IOException {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192); // grows, if needed
+            byte[] chunk = new byte[8192];
+            int count = input.read(chunk);
+            while (count >= 0) {
+                buffer.write(chunk, 0, count);
+                count = input.read(chunk);
+            }
+            return buffer.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+}
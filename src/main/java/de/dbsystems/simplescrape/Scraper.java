@@ -2,9 +2,11 @@ package de.dbsystems.simplescrape;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.InputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.*;
 
 /**
@@ -12,7 +14,9 @@ import java.util.*;
  * in a given webpage. Instead of checking in code whether "this and this is followed by that and that"
  * one can provide expressions of things to watch for.
  * 
- * This class is not thread-safe.
+ * This class is not thread-safe. The tokens themselves are kept in a ParsedDocument, which
+ * is. So if several threads need to work on the same page, parse it once and give each
+ * thread its own Scraper by calling {@link ParsedDocument#newScraper()}.
  * 
  * @author Ronald Bieber, DB Systems GmbH
  * @since 04.04.2007
@@ -36,11 +40,44 @@ import java.util.*;
  */
 
 public class Scraper implements Iterator {
+    private final static Metrics.Histogram SEARCH_TIME = Metrics.histogram("scraper.searchTime");
+
     private Tokenizer tokenizer = null;
 
     private int current = 0;
 
-    private ArrayList<AbstractHTMLToken> elements = null;
+    private ParsedDocument document = null;
+
+    /**
+     * The tokens of document
+     */
+    private List<AbstractHTMLToken> elements = null;
+
+    /**
+     * Collects the tokens while parsing on demand (see setTokenizer()). elements is its
+     * list of tokens then, and document is null until the end of the input is reached.
+     * null, if the input has been parsed completely.
+     */
+    private ParsedDocument.Builder pending = null;
+
+    /**
+     * Holds the tokens after they have been edited; elements is its list of tokens then,
+     * and document is null. null, if nothing has been edited.
+     */
+    private DocumentEditor editor = null;
+
+    private SiteTemplate template = null;
+
+    /**
+     * The boilerplate regions of document, or null, if there is no template or
+     * it doesn't match the document.
+     */
+    private SiteTemplate.Marking boilerplate = null;
+
+    /**
+     * Whether documents parsed from now on keep their source, see setKeepSource().
+     */
+    private boolean keepSource = false;
 
     /**
      * Empty constructor, does nothing.
@@ -63,7 +100,123 @@ public class Scraper implements Iterator {
             System.err.println(e);
         }
     }
+
+    /**
+     * Convenience-Constructor. Takes the input stream and wraps a Tokenizer around it.
+     * @param input An InputStream to be parsed.
+     * @param lazy false: parse the stream completely, afterwards input can be closed.
+     * true: parse only as far as needed (see setTokenizer()). Call close() when done.
+     */
+    public Scraper(InputStream input, boolean lazy) {
+        this(input, lazy, false);
+    }
+
+    /**
+     * Convenience-Constructor. Takes the input stream and wraps a Tokenizer around it.
+     * @param input An InputStream to be parsed.
+     * @param lazy false: parse the stream completely, afterwards input can be closed.
+     * true: parse only as far as needed (see setTokenizer()). Call close() when done.
+     * @param keepSource true: keep the source of the document (see setKeepSource()).
+     */
+    public Scraper(InputStream input, boolean lazy, boolean keepSource) {
+        this.keepSource = keepSource;
+        try {
+            Tokenizer tokenizer = new Tokenizer(input);
+            if (lazy) {
+                setTokenizer(tokenizer);
+            } else {
+                setTokenizerAndParse(tokenizer);
+            }
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+    }
     
+    /**
+     * Creates a Scraper for an already parsed document. This is cheap, as the tokens
+     * are shared with the document (and all other Scrapers for it) instead of being copied.
+     * @param document The document to work on.
+     */
+    public Scraper(ParsedDocument document) {
+        setDocument(document);
+    }
+
+    /**
+     * Returns the document this Scraper works on.
+     *
+     * @return The document, or null, if nothing has been parsed yet.
+     */
+    public ParsedDocument getDocument() {
+        parseAll();
+        if (editor != null) {
+            return editor.toDocument();
+        }
+        return document;
+    }
+
+    /**
+     * Sets the document to work on. The position is set to the first token.
+     *
+     * @param document The document.
+     */
+    public void setDocument(ParsedDocument document) {
+        this.pending = null;
+        this.editor = null;
+        this.document = document;
+        this.elements = document.getTokens();
+        markBoilerplate();
+        setPosition(0);
+    }
+
+    /**
+     * Sets the layout of the site the documents come from. Searches can then skip the
+     * boilerplate regions of the documents (see ScrapeOptions.skipBoilerplate). Documents
+     * which don't match the template are searched completely.
+     *
+     * @param template The template, or null to search everything.
+     */
+    public void setTemplate(SiteTemplate template) {
+        this.template = template;
+        markBoilerplate();
+    }
+
+    /**
+     * Returns the boilerplate regions of the current document.
+     *
+     * @return The regions, or null, if no template has been set or the template doesn't
+     * match the document (i.e. it should be learned again).
+     */
+    public SiteTemplate.Marking getBoilerplate() {
+        return boilerplate;
+    }
+
+    /**
+     * Moves the current position past the boilerplate region it points into, if any.
+     * If the position is at the start of the document, this skips the page header.
+     */
+    public void skipBoilerplate() {
+        if (boilerplate != null) {
+            setPosition(boilerplate.skip(getPosition()));
+        }
+    }
+
+    private void markBoilerplate() {
+        boilerplate = null;
+        if (template != null && document != null) {
+            SiteTemplate.Marking marking = template.mark(document);
+            if (template.matches(marking)) {
+                boilerplate = marking;
+            }
+        }
+    }
+
+    /**
+     * Returns the first index at or after position where a search may start.
+     */
+    private int skip(int position, ScrapeOptions options) {
+        return options.skipBoilerplate && boilerplate != null ? boilerplate.skip(position) : position;
+    }
+
     /**
      * Returns the current position as an index into the list of tokens.
      * 
@@ -100,6 +253,25 @@ public class Scraper implements Iterator {
         return tokenizer;
     }
 
+    /**
+     * Sets whether the documents parsed by this Scraper from now on keep their source
+     * (see ParsedDocument.getSource()). This is needed for writing them verbatim
+     * (printToFile(), writeTo()) and for updating them incrementally (update()), and
+     * costs two bytes per character of the input. Default: false.
+     *
+     * @param keepSource true: keep the source of documents parsed afterwards.
+     */
+    public void setKeepSource(boolean keepSource) {
+        this.keepSource = keepSource;
+    }
+
+    /**
+     * Returns whether documents parsed from now on keep their source.
+     */
+    public boolean isKeepSource() {
+        return keepSource;
+    }
+
     /**
      * Sets the tokenizer to be used for this scraping experience. This leads to
      * an immediate reading of the complete HTML-file into elements. The input
@@ -110,24 +282,127 @@ public class Scraper implements Iterator {
      */
     public void setTokenizerAndParse(Tokenizer tokenizer) {
         this.tokenizer = tokenizer;
-        if (elements == null) {
-            elements = new ArrayList<AbstractHTMLToken>();
-        } else {
-            elements.clear();
+        ParsedDocument.Builder builder = new ParsedDocument.Builder(tokenizer, keepSource);
+        try {
+            builder.readAll();
+        } catch (IOException e) {
+            System.err.println("couldn't parse input stream: "+e.getMessage());
+        }
+        setDocument(builder.build());
+    }
+
+    /**
+     * Sets the tokenizer to be used for this scraping experience, without parsing
+     * anything yet. Tokens are read from the tokenizer only when a method needs them:
+     * get(), next(), hasNext() and the searches read only as far as they look, while
+     * size(), available(), getDocument() and the like read up to the end. So if only
+     * the beginning of a page is of interest, the rest is never parsed.
+     * The input must not be closed before it has been parsed completely, or close() has
+     * been called.
+     *
+     * @param tokenizer
+     *            The tokenizer.
+     */
+    public void setTokenizer(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+        this.document = null;
+        this.editor = null;
+        this.pending = new ParsedDocument.Builder(tokenizer, keepSource);
+        this.elements = pending.getTokens();
+        this.boilerplate = null;
+        setPosition(0);
+    }
+
+    /**
+     * Stops parsing on demand and closes the input of the tokenizer. The tokens read
+     * so far remain available, everything after them is left out. If the input has
+     * already been parsed completely, this only closes it.
+     *
+     * @throws IOException If closing fails.
+     */
+    public void close() throws IOException {
+        if (pending != null) {
+            finishParsing();
         }
-        long time = System.currentTimeMillis();
+        if (tokenizer != null) {
+            tokenizer.close();
+        }
+    }
+
+    /**
+     * Makes sure that the token at index has been parsed, if there is one.
+     *
+     * @return Whether there is a token at index.
+     */
+    private boolean exists(int index) {
+        while (pending != null && index >= elements.size()) {
+            readNext();
+        }
+        return index >= 0 && index < elements.size();
+    }
+
+    /**
+     * Parses the rest of the input, if parsing on demand.
+     */
+    private void parseAll() {
+        while (pending != null) {
+            readNext();
+        }
+    }
+
+    private void readNext() {
         try {
-            AbstractHTMLToken next = tokenizer.readElement();
-            while (next != null) {
-                elements.add(next);
-                next = tokenizer.readElement();
+            if (!pending.readNext()) {
+                finishParsing();
             }
-            setPosition(0);
         } catch (IOException e) {
             System.err.println("couldn't parse input stream: "+e.getMessage());
+            finishParsing();
+        }
+    }
+
+    private void finishParsing() {
+        document = pending.build();
+        elements = document.getTokens();
+        pending = null;
+        markBoilerplate();
+    }
+
+    /**
+     * Replaces the current document by a new version of it, typically a refetched page.
+     * If the current document has its source (see setKeepSource()), only the region
+     * that changed is tokenized again, the other tokens are taken over from the current
+     * document (see {@link ParsedDocument#update(String)}). Otherwise, the first update
+     * parses the whole page; the result keeps its source, so later updates are
+     * incremental. The position is set to the first token.
+     *
+     * @param content The new version of the page. It is decoded like by the Tokenizer.
+     */
+    public void update(byte[] content) {
+        String newSource = new String(content);
+        if (pending != null) {
+            // with its source, the part parsed so far is enough to take tokens over from;
+            // without, the new version is parsed completely anyway
+            finishParsing();
+        }
+        if (document == null) {
+            setDocument(new ParsedDocument(new ArrayList<AbstractHTMLToken>()).update(newSource));
+        } else {
+            setDocument(document.update(newSource));
         }
     }
 
+    /**
+     * Like update(byte[]), but reads the new version from a stream. Afterwards,
+     * input can be closed.
+     *
+     * @param input The new version of the page.
+     * @throws IOException If reading fails.
+     */
+    public void update(InputStream input) throws IOException {
+        update(ScrapeSource.readFully(input));
+    }
+
     /**
      * Checks if a given HtmlToken is considered whitespace.
      * All elements are considered whitespace iff they are a text-token and
@@ -135,7 +410,7 @@ public class Scraper implements Iterator {
      * @param here The element to be tested.
      * @return Whether this is whitespace or not.
      */
-    private boolean isWhitespace(AbstractHTMLToken here) {
+    static boolean isWhitespace(AbstractHTMLToken here) {
         if (!(here instanceof TextToken)) {
             return false;
         }
@@ -191,7 +466,7 @@ public class Scraper implements Iterator {
     }
         
 
-    private boolean canAdvanceAnyway(AbstractHTMLToken here, AbstractHTMLToken there,
+    static boolean canAdvanceAnyway(AbstractHTMLToken here, AbstractHTMLToken there,
             ScrapeOptions options) {
         if (!(there instanceof HTMLTag)) {
             return false;
@@ -243,13 +518,30 @@ public class Scraper implements Iterator {
      *  if the sequence could not be found.
      */
     public int indexOf(int startHere, AbstractHTMLToken searchToken, ScrapeOptions options) {
+        if (!Metrics.isEnabled()) {
+            return find(startHere, searchToken, options);
+        }
+        long start = System.nanoTime();
+        try {
+            return find(startHere, searchToken, options);
+        } finally {
+            SEARCH_TIME.record(System.nanoTime() - start);
+        }
+    }
+
+    private int find(int startHere, AbstractHTMLToken searchToken, ScrapeOptions options) {
         if (searchToken == null) {
             throw new IllegalArgumentException(
                     "searchToken must not be null");
         }
         int position = startHere;
         boolean found = false;
-        while (!found && position < elements.size()) {
+        while (!found && exists(position)) {
+            int next = skip(position, options);
+            if (next != position) {
+                position = next;
+                continue;
+            }
             AbstractHTMLToken here = elements.get(position);
             if (here.match(searchToken, options)) {
                 found = true;
@@ -302,15 +594,34 @@ public class Scraper implements Iterator {
      */
     public int searchTokens(int startHere,
             Vector<AbstractHTMLToken> searchElements, ScrapeOptions options) {
+        if (!Metrics.isEnabled()) {
+            return find(startHere, searchElements, options);
+        }
+        long start = System.nanoTime();
+        try {
+            return find(startHere, searchElements, options);
+        } finally {
+            SEARCH_TIME.record(System.nanoTime() - start);
+        }
+    }
+
+    private int find(int startHere, Vector<AbstractHTMLToken> searchElements, ScrapeOptions options) {
         if (searchElements == null) {
             throw new IllegalArgumentException(
                     "searchElements must not be null");
         }
-        int advancingStart = startHere;
+        if (options.elementOrder == ScrapeOptions.ELEMENT_ORDER_STRICT
+                && !searchElements.isEmpty() && document != null) {
+            long[] pattern = TokenFingerprints.ofPattern(searchElements, options.ignoreCase, options.trimText);
+            if (pattern != null) {
+                return searchStrict(startHere, searchElements, pattern, options);
+            }
+        }
+        int advancingStart = skip(startHere, options);
         int position = advancingStart;
         int searchPosition = 0;
         boolean patternStarted = false;
-        while (position < elements.size()) {
+        while (exists(position)) {
             if (searchPosition == searchElements.size()) {
                 break;
             } else {
@@ -323,10 +634,13 @@ public class Scraper implements Iterator {
                     advancingStart = position;
                     position++;
                     searchPosition++;
-                } else if (!patternStarted || canAdvanceAnyway(here, there, options)) {
+                } else if (!patternStarted) {
+                    // a match may not start within boilerplate
+                    position = skip(position + 1, options);
+                } else if (canAdvanceAnyway(here, there, options)) {
                     position++;
                 } else {
-                    advancingStart++;
+                    advancingStart = skip(advancingStart + 1, options);
                 	position = advancingStart;
                 	searchPosition = 0;
                 	patternStarted = false;
@@ -345,19 +659,51 @@ public class Scraper implements Iterator {
         }
     }
     
+    /**
+     * searchTokens() for ELEMENT_ORDER_STRICT: places where the fingerprints of the
+     * tokens are equal to those of the search elements are found with Rabin-Karp,
+     * and only these are checked with match().
+     */
+    private int searchStrict(int startHere, Vector<AbstractHTMLToken> searchElements,
+            long[] pattern, ScrapeOptions options) {
+        long[] text = document.getFingerprints(options.ignoreCase, options.trimText);
+        int candidate = TokenFingerprints.indexOf(text, pattern, skip(startHere, options));
+        while (candidate >= 0) {
+            int start = skip(candidate, options);
+            if (start != candidate) {
+                candidate = TokenFingerprints.indexOf(text, pattern, start);
+                continue;
+            }
+            int i = 0;
+            while (i < pattern.length && elements.get(candidate + i).match(searchElements.get(i), options)) {
+                i++;
+            }
+            if (i == pattern.length) {
+                int position = candidate + pattern.length;
+                if (options.advance) {
+                    setPosition(position);
+                }
+                return position;
+            }
+            candidate = TokenFingerprints.indexOf(text, pattern, candidate + 1);
+        }
+        return -1;
+    }
+
     /**
      * Returns whether more Elements can be retrieved using the next()-method.
      * Warning: Other methods like getNextTag or getNextText() may fail, even
      * though this method returns true!
      */
     public boolean hasNext() {
-        return getPosition() < elements.size();
+        return exists(getPosition());
     }
 
     /**
      * Returns the total number of elements in the current file.
      */
     public int size() {
+        parseAll();
         return elements.size();
     }
 
@@ -366,6 +712,7 @@ public class Scraper implements Iterator {
      * the current position.
      */
     public int available() {
+        parseAll();
         return Math.max(elements.size() - getPosition(), 0);
     }
 
@@ -376,6 +723,7 @@ public class Scraper implements Iterator {
      * @return The next HtmlToken.
      */
     public Object next() {
+        exists(getPosition());
         AbstractHTMLToken element = elements.get(getPosition());
         advance(1);
         return element;
@@ -383,15 +731,68 @@ public class Scraper implements Iterator {
 
     /**
      *  Removes the element currently pointed at from the file.
+     *  As the document may be shared with other Scrapers, it is not changed.
+     *  Instead, this Scraper continues with an editable copy of it (see replace()).
      */
     public void remove() {
+        parseAll();
         int which = getPosition();
         if (which >= 0 && which < elements.size()) {
-            elements.remove(which);
+            replace(which, which + 1, Collections.<AbstractHTMLToken>emptyList());
         }
         
     }
 
+    /**
+     * Removes a range of tokens. See replace().
+     *
+     * @param start The index of the first token to be removed.
+     * @param end The index after the last token to be removed.
+     */
+    public void remove(int start, int end) {
+        replace(start, end, Collections.<AbstractHTMLToken>emptyList());
+    }
+
+    /**
+     * Inserts tokens. See replace().
+     *
+     * @param index The index the first inserted token will have.
+     * @param tokens The tokens to insert.
+     */
+    public void insert(int index, List<AbstractHTMLToken> tokens) {
+        replace(index, index, tokens);
+    }
+
+    /**
+     * Replaces a range of tokens by others. As the document may be shared with other
+     * Scrapers, it is not changed. Instead, on the first edit, this Scraper continues
+     * with an editable copy of it (see DocumentEditor), so that many edits are cheap.
+     * The current position keeps pointing to the same token, if it is after the
+     * replaced range, or to the first new token, if it was within the range.
+     * A template set with setTemplate() is not applied to edited documents.
+     *
+     * @param start The index of the first token to be replaced.
+     * @param end The index after the last token to be replaced.
+     * @param tokens The new tokens.
+     * @throws IndexOutOfBoundsException If the range is not within 0 and size().
+     */
+    public void replace(int start, int end, List<AbstractHTMLToken> tokens) {
+        parseAll();
+        if (editor == null) {
+            editor = new DocumentEditor(document);
+            elements = editor.getTokens();
+            document = null;
+            boilerplate = null;
+        }
+        editor.replace(start, end, tokens);
+        int position = getPosition();
+        if (position >= end) {
+            setPosition(position + tokens.size() - (end - start));
+        } else if (position > start) {
+            setPosition(start);
+        }
+    }
+
     /**
      * Advance within the current file. The position can advance beyond the
      * last element in the file.
@@ -412,7 +813,7 @@ public class Scraper implements Iterator {
      */
     public TextToken getNextText(boolean skipEmpty) {
         int pos = getPosition();
-        while (pos < elements.size()) {
+        while (exists(pos)) {
             AbstractHTMLToken element = elements.get(pos);
             if (element instanceof TextToken) {
                 if (!skipEmpty || !isWhitespace(element)) {
@@ -436,7 +837,7 @@ public class Scraper implements Iterator {
      */
     public TextToken getNextText(int fromHere, boolean skipEmpty) {
         int start = fromHere;
-        while (start < elements.size()) {
+        while (exists(start)) {
             AbstractHTMLToken element = elements.get(start);
             if (element instanceof TextToken) {
                 if (!skipEmpty || !isWhitespace(element)) {
@@ -455,7 +856,7 @@ public class Scraper implements Iterator {
      */
     public HTMLTag getNextTag() {
         int pos = getPosition();
-        while (pos < elements.size()) {
+        while (exists(pos)) {
             AbstractHTMLToken element = elements.get(pos);
             if (element instanceof HTMLTag) {
                 setPosition(pos + 1);
@@ -474,7 +875,7 @@ public class Scraper implements Iterator {
      */
     public HTMLTag getNextTag(int fromHere) {
         int start = fromHere;
-        while (start < elements.size()) {
+        while (exists(start)) {
             AbstractHTMLToken element = elements.get(start);
             if (element instanceof HTMLTag) {
                 return (HTMLTag)element;
@@ -490,7 +891,7 @@ public class Scraper implements Iterator {
      * @return The requested element, or null, if index is out of range.
      */
     public AbstractHTMLToken get(int index) {
-        if (index >= 0 && index < size()) {
+        if (exists(index)) {
             return elements.get(index);
         } else {
             return null;
@@ -505,22 +906,114 @@ public class Scraper implements Iterator {
      */
     public List<AbstractHTMLToken> getForms() {
     	List<AbstractHTMLToken> forms = new ArrayList<AbstractHTMLToken>();
-    	for (int pos = 0; pos < elements.size(); pos++) {
-    		AbstractHTMLToken element = elements.get(pos);
-    		if (element instanceof HTMLTag) {
-    			String tagName = ((HTMLTag)element).getName();
-    			if (tagName.equalsIgnoreCase("form") ||
-    					tagName.equalsIgnoreCase("input") ||
-    					tagName.equalsIgnoreCase("select") ||
-    					tagName.equalsIgnoreCase("option"))
-    			{
-    				forms.add(element);
-    			}
-    		}
+    	for (int pos : getTagPositions("form", "input", "select", "option")) {
+    		forms.add(elements.get(pos));
     	}
     	return forms;
     }
 
+    /**
+     * Returns all forms in this document together with their fields (input-, select-,
+     * textarea- and button-elements). Fields outside of a form are left out.
+     * The position in the file doesn't change.
+     * @return The forms, in document order.
+     */
+    public List<HTMLForm> extractForms() {
+        List<HTMLForm> forms = new ArrayList<HTMLForm>();
+        HTMLForm form = null;
+        HTMLForm.Field select = null;
+        for (int pos : getTagPositions(HTMLForm.TAG_NAMES)) {
+            HTMLTag tag = (HTMLTag) elements.get(pos);
+            String name = tag.getName().toLowerCase();
+            if (tag.isEndTag()) {
+                if (name.equals("form")) {
+                    form = null;
+                    select = null;
+                } else if (name.equals("select")) {
+                    select = null;
+                }
+            } else if (name.equals("form")) {
+                form = new HTMLForm(tag, pos);
+                forms.add(form);
+                select = null;
+            } else if (name.equals("option")) {
+                if (select != null) {
+                    select.add(new HTMLForm.Option(tag, getTextUntilTag(pos + 1, null).trim()));
+                }
+            } else if (form != null) {
+                HTMLForm.Field field = new HTMLForm.Field(tag, pos);
+                form.add(field);
+                select = name.equals("select") ? field : null;
+                if (name.equals("textarea")) {
+                    field.setContent(getTextUntilTag(pos + 1, "textarea"));
+                } else if (name.equals("button")) {
+                    field.setContent(getTextUntilTag(pos + 1, "button").trim());
+                }
+            }
+        }
+        return forms;
+    }
+
+    /**
+     * Returns all links in this document (see LinkExtractor), resolved against the URL
+     * of the page or its &lt;base href&gt;.
+     * The position in the file doesn't change.
+     * @param pageURL The URL this document was retrieved from, or null.
+     * @return The links, in document order.
+     */
+    public List<LinkExtractor.Link> extractLinks(String pageURL) {
+        return LinkExtractor.extract(elements, getTagPositions(LinkExtractor.TAG_NAMES), pageURL);
+    }
+
+    /**
+     * Returns the indexes of all tags (start and end tags) with one of the given names,
+     * in ascending order. The index of the document is used, unless it has been edited.
+     *
+     * @param names The names of the tags, in lower case.
+     */
+    private int[] getTagPositions(String... names) {
+        parseAll();
+        if (document != null) {
+            return document.getTagPositions(names);
+        }
+        Set<String> wanted = new HashSet<String>(Arrays.asList(names));
+        int[] positions = new int[16];
+        int count = 0;
+        for (int pos = 0; pos < elements.size(); pos++) {
+            AbstractHTMLToken element = elements.get(pos);
+            if (element instanceof HTMLTag && wanted.contains(((HTMLTag) element).getName().toLowerCase())) {
+                if (count == positions.length) {
+                    positions = Arrays.copyOf(positions, count * 2);
+                }
+                positions[count++] = pos;
+            }
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    /**
+     * Concatenates the text from a position on up to the next tag, or the next end tag
+     * with a given name.
+     *
+     * @param start The index of the first token.
+     * @param endTag The name of the end tag, or null to stop at any tag.
+     */
+    private String getTextUntilTag(int start, String endTag) {
+        StringBuilder text = new StringBuilder();
+        for (int pos = start; exists(pos); pos++) {
+            AbstractHTMLToken element = elements.get(pos);
+            if (element instanceof HTMLTag) {
+                HTMLTag tag = (HTMLTag) element;
+                if (endTag == null || (tag.isEndTag() && tag.getName().equalsIgnoreCase(endTag))) {
+                    break;
+                }
+            } else if (element instanceof TextToken) {
+                text.append(((TextToken) element).getText());
+            }
+        }
+        return text.toString();
+    }
+
     /**
      * Convenience method for printing HTML-content to a file.
      * 
@@ -528,7 +1021,42 @@ public class Scraper implements Iterator {
      * @throws IOException
      */
     public void printToFile(String filename) throws IOException {
-        printToFile(elements, filename);
+        printToFile(filename, Charset.defaultCharset());
+    }
+
+    /**
+     * Writes the current document to a file. If its source has been kept (see
+     * setKeepSource()), tokens are written as they were in the source, unless they
+     * have been inserted or replaced; otherwise all tokens are written with toString().
+     *
+     * @param filename The name (and path) of the file to write to.
+     * @param charset The encoding of the file.
+     * @throws IOException
+     */
+    public void printToFile(String filename, Charset charset) throws IOException {
+        DocumentWriter writer = new DocumentWriter(new FileOutputStream(filename), charset);
+        try {
+            writeTo(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes the current document as HTML. If its source has been kept (see
+     * setKeepSource()), tokens are written as they were in the source, unless they
+     * have been inserted or replaced; otherwise all tokens are written with toString().
+     *
+     * @param writer Where to write to. It is not flushed or closed.
+     * @throws IOException
+     */
+    public void writeTo(DocumentWriter writer) throws IOException {
+        parseAll();
+        if (editor != null) {
+            writer.write(editor);
+        } else if (document != null) {
+            writer.write(document);
+        }
     }
 
     /**
@@ -545,4 +1073,27 @@ public class Scraper implements Iterator {
         writer.close();
     }
 
+    /**
+     * Stores the parsed tokens in a binary file. Unlike printToFile, which writes HTML, the file
+     * can be loaded again without parsing.
+     *
+     * @param filename The name (and path) of the file to write to.
+     * @see BinaryDocumentFormat
+     * @throws IOException
+     */
+    public void storeToFile(String filename) throws IOException {
+        BinaryDocumentFormat.write(getDocument(), new File(filename));
+    }
+
+    /**
+     * Creates a Scraper for tokens stored by storeToFile.
+     *
+     * @param filename The name (and path) of the file to read from.
+     * @return The new Scraper, positioned at the first token.
+     * @throws IOException
+     */
+    public static Scraper loadFromFile(String filename) throws IOException {
+        return new Scraper(BinaryDocumentFormat.read(new File(filename)));
+    }
+
 }
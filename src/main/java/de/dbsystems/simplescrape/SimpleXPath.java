@@ -0,0 +1,503 @@
+package de.dbsystems.simplescrape;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled expression in a practical subset of XPath, evaluated directly on the
+ * tokens of a document instead of on a DOM. Supported are:
+ * <ul>
+ * <li>location paths with the child axis ("/") and the descendant axis ("//")</li>
+ * <li>name tests (case-insensitive, as usual for HTML) and the wildcard "*"</li>
+ * <li>the node test "text()" as the last step</li>
+ * <li>predicates on attributes: [@name] and [@name='value'] (or with double quotes)</li>
+ * <li>predicates on the position: [n]</li>
+ * </ul>
+ * Example: <tt>//div[@id='main']/table[2]//td/text()</tt>
+ * <p>The evaluation runs forward through the tokens once. It only keeps a stack of the
+ * currently open elements, so its memory is bounded by the depth of the document, not by
+ * its size. As HTML is often not well-formed, end tags close all elements opened after
+ * the element they belong to, end tags without a matching open element are ignored, and
+ * elements like br or img (see {@link HTMLTag#isEmptyElement()}) never contain anything.</p>
+ * <p>Compiled expressions are immutable and can be shared between threads.</p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class SimpleXPath {
+    /**
+     * The number of steps is limited, as the state of the evaluation is kept in bit masks.
+     */
+    private final static int MAX_STEPS = 63;
+
+    private final String expression;
+
+    private final Step[] steps;
+
+    /**
+     * Number of position predicates over all steps. Every open element needs
+     * one counter per position predicate.
+     */
+    private final int counterCount;
+
+    /**
+     * Bit k set: step k uses the descendant axis.
+     */
+    private final long descendantSteps;
+
+    private SimpleXPath(String expression, Step[] steps) {
+        this.expression = expression;
+        this.steps = steps;
+        long descendants = 0;
+        for (int k = 0; k < steps.length; k++) {
+            if (steps[k].descendant) {
+                descendants |= 1L << k;
+            }
+        }
+        this.descendantSteps = descendants;
+        int counters = 0;
+        for (Step step : steps) {
+            for (Predicate predicate : step.predicates) {
+                if (predicate.position > 0) {
+                    predicate.counter = counters++;
+                }
+            }
+        }
+        this.counterCount = counters;
+    }
+
+    /**
+     * Compiles an expression.
+     *
+     * @param expression The expression, e.g. "//div[@class='result']/a".
+     * @return The compiled expression.
+     * @throws IllegalArgumentException If the expression is not part of the supported subset.
+     */
+    public static SimpleXPath compile(String expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression must not be null");
+        }
+        return new SimpleXPath(expression, new Parser(expression).parse());
+    }
+
+    /**
+     * Returns all tokens of a scraper selected by this expression, in document order.
+     * The position of the scraper doesn't change.
+     *
+     * @param scraper The scraper to be evaluated.
+     * @return The selected tags (or text tokens, if the expression ends with text()).
+     */
+    public List<AbstractHTMLToken> select(Scraper scraper) {
+        List<AbstractHTMLToken> result = new ArrayList<AbstractHTMLToken>();
+        Evaluation evaluation = new Evaluation();
+        for (int i = 0; i < scraper.size(); i++) {
+            AbstractHTMLToken token = scraper.get(i);
+            if (evaluation.push(token)) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Like select(Scraper), but returns the indexes of the selected tokens, so that
+     * they can be used as starting points for further searches.
+     *
+     * @param scraper The scraper to be evaluated.
+     * @return The indexes of the selected tokens in ascending order.
+     */
+    public List<Integer> selectPositions(Scraper scraper) {
+        List<Integer> result = new ArrayList<Integer>();
+        Evaluation evaluation = new Evaluation();
+        for (int i = 0; i < scraper.size(); i++) {
+            if (evaluation.push(scraper.get(i))) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all tokens selected by this expression while reading them from a tokenizer.
+     * The document is never held in memory completely.
+     *
+     * @param tokenizer The tokenizer to read from. It will be read to the end.
+     * @return The selected tokens in document order.
+     * @throws IOException If reading from the tokenizer fails.
+     */
+    public List<AbstractHTMLToken> select(Tokenizer tokenizer) throws IOException {
+        List<AbstractHTMLToken> result = new ArrayList<AbstractHTMLToken>();
+        Evaluation evaluation = new Evaluation();
+        AbstractHTMLToken token = tokenizer.readElement();
+        while (token != null) {
+            if (evaluation.push(token)) {
+                result.add(token);
+            }
+            token = tokenizer.readElement();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first token selected by this expression. Reading from the tokenizer
+     * stops right after that token.
+     *
+     * @param tokenizer The tokenizer to read from.
+     * @return The first selected token, or null, if nothing was selected.
+     * @throws IOException If reading from the tokenizer fails.
+     */
+    public AbstractHTMLToken selectFirst(Tokenizer tokenizer) throws IOException {
+        Evaluation evaluation = new Evaluation();
+        AbstractHTMLToken token = tokenizer.readElement();
+        while (token != null) {
+            if (evaluation.push(token)) {
+                return token;
+            }
+            token = tokenizer.readElement();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the expression as it was compiled.
+     */
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * One step of a location path, like "td[2]" in "//tr/td[2]".
+     */
+    private static class Step {
+        /** true: descendant axis ("//"), false: child axis ("/") */
+        boolean descendant;
+        /** The element name, or null for the wildcard "*" */
+        String name;
+        boolean text;
+        Predicate[] predicates;
+    }
+
+    /**
+     * A predicate within a step: either an attribute test or a position.
+     */
+    private static class Predicate {
+        String attributeName;
+        /** The attribute value to compare with, or null, if only the presence is tested */
+        String attributeValue;
+        /** The requested position, or 0, if this is an attribute test */
+        int position;
+        /** The index of the counter for position predicates */
+        int counter;
+    }
+
+    /**
+     * An element that has been opened but not yet closed.
+     */
+    private static class Frame {
+        final String name;
+        /** Bit k set: this element was selected by step k. */
+        long matched;
+        /** Bit k set: step k is tested against all children of this element. */
+        long context;
+        /** Bit k set: descendant step k is tested against all descendants of this element. */
+        long carry;
+        /** Counts the children passing the predicates preceding a position predicate. */
+        int[] counters;
+
+        Frame(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * The state of one pass over a document. Tokens are pushed in document order.
+     */
+    private class Evaluation {
+        private final ArrayList<Frame> stack = new ArrayList<Frame>();
+
+        Evaluation() {
+            Frame root = new Frame("");
+            root.context = 1L;
+            root.carry = descendantSteps & 1L;
+            stack.add(root);
+        }
+
+        /**
+         * Processes the next token.
+         *
+         * @return Whether the token is selected by the expression.
+         */
+        boolean push(AbstractHTMLToken token) {
+            if (token instanceof HTMLTag) {
+                HTMLTag tag = (HTMLTag) token;
+                if (tag.isEndTag()) {
+                    close(tag.getName());
+                    return false;
+                }
+                return open(tag);
+            } else if (token instanceof TextToken) {
+                Frame parent = top();
+                boolean selected = false;
+                for (int k = 0; k < steps.length; k++) {
+                    if ((parent.context & (1L << k)) != 0 && steps[k].text
+                            && testPredicates(steps[k], parent, null)) {
+                        selected = true;
+                    }
+                }
+                return selected;
+            }
+            // comments are not part of any result
+            return false;
+        }
+
+        private Frame top() {
+            return stack.get(stack.size() - 1);
+        }
+
+        private boolean open(HTMLTag tag) {
+            String name = tag.getName();
+            closeImplicitly(name);
+            Frame parent = top();
+            Frame frame = new Frame(name);
+            for (int k = 0; k < steps.length; k++) {
+                Step step = steps[k];
+                if ((parent.context & (1L << k)) != 0 && !step.text
+                        && (step.name == null || step.name.equalsIgnoreCase(name))
+                        && testPredicates(step, parent, tag)) {
+                    frame.matched |= 1L << k;
+                }
+            }
+            boolean selected = (frame.matched & (1L << (steps.length - 1))) != 0;
+            if (!tag.isEmptyElement()) {
+                long next = frame.matched << 1;
+                frame.carry = parent.carry | (next & descendantSteps);
+                frame.context = frame.carry | (next & ~descendantSteps);
+                stack.add(frame);
+            }
+            return selected;
+        }
+
+        /**
+         * Tests the predicates of a step for a child of parent. The position counters in
+         * parent are updated as a side effect.
+         *
+         * @param tag The tag to be tested, or null, if the child is a text token.
+         */
+        private boolean testPredicates(Step step, Frame parent, HTMLTag tag) {
+            for (Predicate predicate : step.predicates) {
+                if (predicate.position > 0) {
+                    if (parent.counters == null) {
+                        parent.counters = new int[counterCount];
+                    }
+                    int position = ++parent.counters[predicate.counter];
+                    if (position != predicate.position) {
+                        return false;
+                    }
+                } else {
+                    HTMLTagAttributes attributes = tag == null ? null : tag.getAttributes();
+                    String value = attributes == null ? null : attributes.get(predicate.attributeName);
+                    if (value == null) {
+                        return false;
+                    }
+                    if (predicate.attributeValue != null && !predicate.attributeValue.equals(value)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Closes the innermost open element with the given name and all elements
+         * opened within. If there is no such element, nothing happens.
+         */
+        private void close(String name) {
+            for (int i = stack.size() - 1; i > 0; i--) {
+                if (stack.get(i).name.equalsIgnoreCase(name)) {
+                    while (stack.size() > i) {
+                        stack.remove(stack.size() - 1);
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Closes elements whose end tag is optional in HTML, like a list item followed by
+         * the next list item or a table cell followed by the next one.
+         */
+        private void closeImplicitly(String name) {
+            String closes;
+            String lowerCase = name.toLowerCase();
+            if (lowerCase.equals("li") || lowerCase.equals("p") || lowerCase.equals("option")) {
+                closes = " " + lowerCase + " ";
+            } else if (lowerCase.equals("dt") || lowerCase.equals("dd")) {
+                closes = " dt dd ";
+            } else if (lowerCase.equals("td") || lowerCase.equals("th")) {
+                closes = " td th ";
+            } else if (lowerCase.equals("tr")) {
+                closes = " tr td th ";
+            } else {
+                return;
+            }
+            while (stack.size() > 1 && closes.indexOf(" " + top().name.toLowerCase() + " ") >= 0) {
+                stack.remove(stack.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Recursive descent parser for the supported subset.
+     */
+    private static class Parser {
+        private final String input;
+        private int pos = 0;
+
+        Parser(String input) {
+            this.input = input.trim();
+        }
+
+        Step[] parse() {
+            List<Step> result = new ArrayList<Step>();
+            if (input.length() == 0) {
+                throw error("empty expression");
+            }
+            boolean first = true;
+            while (pos < input.length()) {
+                boolean descendant = false;
+                if (input.startsWith("//", pos)) {
+                    descendant = true;
+                    pos += 2;
+                } else if (input.charAt(pos) == '/') {
+                    pos++;
+                } else if (!first) {
+                    throw error("'/' expected");
+                }
+                first = false;
+                if (result.size() > 0 && result.get(result.size() - 1).text) {
+                    throw error("text() must be the last step");
+                }
+                result.add(parseStep(descendant));
+            }
+            if (result.size() > MAX_STEPS) {
+                throw error("too many steps");
+            }
+            return result.toArray(new Step[result.size()]);
+        }
+
+        private Step parseStep(boolean descendant) {
+            Step step = new Step();
+            step.descendant = descendant;
+            if (input.startsWith("text()", pos)) {
+                step.text = true;
+                pos += 6;
+            } else if (input.startsWith("*", pos)) {
+                pos++;
+            } else {
+                step.name = parseName();
+            }
+            List<Predicate> predicates = new ArrayList<Predicate>();
+            while (pos < input.length() && input.charAt(pos) == '[') {
+                pos++;
+                predicates.add(parsePredicate());
+                expect(']');
+            }
+            step.predicates = predicates.toArray(new Predicate[predicates.size()]);
+            return step;
+        }
+
+        private Predicate parsePredicate() {
+            Predicate predicate = new Predicate();
+            skipBlanks();
+            if (pos < input.length() && input.charAt(pos) == '@') {
+                pos++;
+                predicate.attributeName = parseName();
+                skipBlanks();
+                if (pos < input.length() && input.charAt(pos) == '=') {
+                    pos++;
+                    skipBlanks();
+                    predicate.attributeValue = parseLiteral();
+                }
+            } else {
+                int start = pos;
+                while (pos < input.length() && Character.isDigit(input.charAt(pos))) {
+                    pos++;
+                }
+                if (start == pos) {
+                    throw error("unsupported predicate");
+                }
+                predicate.position = Integer.parseInt(input.substring(start, pos));
+                if (predicate.position < 1) {
+                    throw error("positions start at 1");
+                }
+            }
+            skipBlanks();
+            return predicate;
+        }
+
+        private String parseName() {
+            int start = pos;
+            while (pos < input.length()) {
+                char c = input.charAt(pos);
+                if (Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == ':' || c == '.') {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            if (start == pos) {
+                throw error("name expected");
+            }
+            return input.substring(start, pos);
+        }
+
+        private String parseLiteral() {
+            if (pos >= input.length() || HTMLTagAttributes.QUOTATION_CHARS.indexOf(input.charAt(pos)) < 0) {
+                throw error("quoted value expected");
+            }
+            char quote = input.charAt(pos);
+            int end = input.indexOf(quote, pos + 1);
+            if (end < 0) {
+                throw error("unterminated value");
+            }
+            String literal = input.substring(pos + 1, end);
+            pos = end + 1;
+            return literal;
+        }
+
+        private void expect(char c) {
+            if (pos >= input.length() || input.charAt(pos) != c) {
+                throw error("'" + c + "' expected");
+            }
+            pos++;
+        }
+
+        private void skipBlanks() {
+            while (pos < input.length() && input.charAt(pos) == ' ') {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " in \"" + input + "\"");
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package de.dbsystems.simplescrape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The layout that all pages of a site have in common: header, navigation, footer and
+ * the like. A template is learned from a few sample pages of the site. Afterwards it
+ * can find these boilerplate regions in other pages of the site, so that searches can
+ * skip them (see {@link Scraper#setTemplate(SiteTemplate)} and
+ * {@link ScrapeOptions#skipBoilerplate}).
+ * <p>
+ * A template consists of the runs of tokens which appear in all samples, in the same
+ * order and without anything else inbetween. Runs shorter than minRegionLength tokens
+ * are ignored, as short sequences like "&lt;/td&gt;&lt;td&gt;" appear in the content
+ * as well. Tokens are compared by their fingerprints (see TokenFingerprints): tag names,
+ * texts and comments must be equal, attributes are not compared.
+ * </p>
+ * <p>
+ * When the layout of the site changes, a template no longer fits. This is recognized
+ * by the share of template tokens found in a page, see {@link #matches(ParsedDocument)}.
+ * A Scraper doesn't skip anything in pages that don't match its template.
+ * </p>
+ * <p>This class is immutable and thread-safe.</p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class SiteTemplate {
+    /**
+     * Default for the minimum length of a boilerplate region, in tokens.
+     */
+    public final static int DEFAULT_MIN_REGION_LENGTH = 8;
+
+    /**
+     * Default for the share of template tokens that must be found in a page for the
+     * template to match.
+     */
+    public final static double DEFAULT_MIN_COVERAGE = 0.8;
+
+    /** The fingerprints of the tokens of every region, in document order */
+    private final long[][] regions;
+
+    private final int tokenCount;
+
+    private final double minCoverage;
+
+    private SiteTemplate(long[][] regions, double minCoverage) {
+        this.regions = regions;
+        this.minCoverage = minCoverage;
+        int count = 0;
+        for (long[] region : regions) {
+            count += region.length;
+        }
+        this.tokenCount = count;
+    }
+
+    /**
+     * Learns a template from sample pages with default settings.
+     *
+     * @param samples At least two pages of the site, preferably with different content.
+     * @return The template.
+     */
+    public static SiteTemplate learn(List<ParsedDocument> samples) {
+        return learn(samples, DEFAULT_MIN_REGION_LENGTH, DEFAULT_MIN_COVERAGE);
+    }
+
+    /**
+     * Learns a template from sample pages.
+     *
+     * @param samples At least two pages of the site, preferably with different content.
+     * @param minRegionLength Shorter runs of common tokens are not part of the template.
+     * @param minCoverage The share (0..1) of template tokens which must be found in a page
+     * for the template to match it.
+     * @return The template. It may be empty, if the samples have nothing in common.
+     */
+    public static SiteTemplate learn(List<ParsedDocument> samples, int minRegionLength, double minCoverage) {
+        if (samples.size() < 2) {
+            throw new IllegalArgumentException("at least two samples are needed");
+        }
+        if (minRegionLength < 1) {
+            throw new IllegalArgumentException("minRegionLength must be positive");
+        }
+        long[] reference = samples.get(0).getFingerprints(false, false);
+        // stable[i]: token i of the reference appears in all samples
+        // split[i]: some sample has other tokens between token i - 1 and i
+        boolean[] stable = new boolean[reference.length];
+        boolean[] split = new boolean[reference.length + 1];
+        Arrays.fill(stable, true);
+        for (int s = 1; s < samples.size(); s++) {
+            long[] other = samples.get(s).getFingerprints(false, false);
+            for (DocumentDiff.Edit edit : DocumentDiff.compare(reference, other, DocumentDiff.DEFAULT_MAX_COST)) {
+                for (int i = edit.getOldStart(); i < edit.getOldEnd(); i++) {
+                    stable[i] = false;
+                }
+                split[edit.getOldStart()] = true;
+            }
+        }
+        List<long[]> regions = new ArrayList<long[]>();
+        int start = 0;
+        while (start < reference.length) {
+            if (!stable[start]) {
+                start++;
+                continue;
+            }
+            int end = start + 1;
+            while (end < reference.length && stable[end] && !split[end]) {
+                end++;
+            }
+            if (end - start >= minRegionLength) {
+                long[] region = new long[end - start];
+                System.arraycopy(reference, start, region, 0, region.length);
+                regions.add(region);
+            }
+            start = end;
+        }
+        return new SiteTemplate(regions.toArray(new long[regions.size()][]), minCoverage);
+    }
+
+    /**
+     * Returns the number of boilerplate regions of this template.
+     */
+    public int getRegionCount() {
+        return regions.length;
+    }
+
+    /**
+     * Returns the total number of tokens in all boilerplate regions.
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Finds the boilerplate regions of this template in a page. Regions are searched in
+     * their order; regions that can't be found are left out.
+     *
+     * @param document The page.
+     * @return The regions found.
+     */
+    public Marking mark(ParsedDocument document) {
+        long[] text = document.getFingerprints(false, false);
+        int[] bounds = new int[2 * regions.length];
+        int count = 0;
+        int found = 0;
+        int from = 0;
+        for (long[] region : regions) {
+            int position = TokenFingerprints.indexOf(text, region, from);
+            if (position >= 0) {
+                bounds[2 * count] = position;
+                bounds[2 * count + 1] = position + region.length;
+                count++;
+                found += region.length;
+                from = position + region.length;
+            }
+        }
+        double coverage = tokenCount == 0 ? 0 : (double) found / tokenCount;
+        return new Marking(bounds, count, coverage);
+    }
+
+    /**
+     * Checks whether a page still has the layout this template was learned from.
+     *
+     * @param document The page.
+     * @return true, if enough of the template was found in the page (see minCoverage),
+     * false, if the template should be learned again.
+     */
+    public boolean matches(ParsedDocument document) {
+        return matches(mark(document));
+    }
+
+    /**
+     * Checks whether the result of mark() means that this template fits the page.
+     */
+    boolean matches(Marking marking) {
+        return tokenCount > 0 && marking.getCoverage() >= minCoverage;
+    }
+
+    /**
+     * The boilerplate regions of one page.
+     */
+    public static class Marking {
+        /** start and end (exclusive) of every region, sorted */
+        private final int[] bounds;
+
+        private final int count;
+
+        private final double coverage;
+
+        Marking(int[] bounds, int count, double coverage) {
+            this.bounds = bounds;
+            this.count = count;
+            this.coverage = coverage;
+        }
+
+        /**
+         * Returns the share (0..1) of the template's tokens found in the page.
+         */
+        public double getCoverage() {
+            return coverage;
+        }
+
+        /**
+         * Returns the number of regions found.
+         */
+        public int getRegionCount() {
+            return count;
+        }
+
+        /**
+         * Returns the index of the first token of a region.
+         */
+        public int getRegionStart(int region) {
+            return bounds[2 * region];
+        }
+
+        /**
+         * Returns the index after the last token of a region.
+         */
+        public int getRegionEnd(int region) {
+            return bounds[2 * region + 1];
+        }
+
+        /**
+         * Returns whether a token belongs to a boilerplate region.
+         */
+        public boolean isBoilerplate(int index) {
+            return regionOf(index) >= 0;
+        }
+
+        /**
+         * Returns the first index at or after the given one which is not boilerplate.
+         * Regions may touch (learn() splits a region where a sample has an insertion),
+         * so this goes on until the index is outside of all of them.
+         */
+        public int skip(int index) {
+            int region = regionOf(index);
+            if (region < 0) {
+                return index;
+            }
+            index = bounds[2 * region + 1];
+            // the regions are sorted, so only the following ones can start there
+            while (++region < count && bounds[2 * region] == index) {
+                index = bounds[2 * region + 1];
+            }
+            return index;
+        }
+
+        /**
+         * Returns the region containing a token, or -1.
+         */
+        private int regionOf(int index) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (index < bounds[2 * middle]) {
+                    high = middle - 1;
+                } else if (index >= bounds[2 * middle + 1]) {
+                    low = middle + 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package de.dbsystems.simplescrape;
+
+import java.util.List;
+
+/**
+ * Decides while a page is being read whether the rest of it is still needed. Used with
+ * HTTPHelper.getWebpageForScrapingAsync(String, StopCondition, long), which stops the
+ * download as soon as the condition is satisfied.
+ * <p>
+ * A condition may keep state while it looks at the tokens of a page (like the ones
+ * created by afterMatch()), so use a new one for every page.
+ * </p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public abstract class StopCondition {
+
+    /**
+     * Called for every token, in the order of the page.
+     *
+     * @param token The token just read.
+     * @param index The index of the token within the page.
+     * @return true, if no more tokens are needed.
+     */
+    public abstract boolean isSatisfied(AbstractHTMLToken token, int index);
+
+    /**
+     * Stops after the first token matching a given one, e.g. new HTMLTag("/head").
+     *
+     * @param pattern The token to look for; it may be an HTMLTagPattern.
+     * @param options The options for matching, see ScrapeOptions.
+     */
+    public static StopCondition afterToken(final AbstractHTMLToken pattern, final ScrapeOptions options) {
+        return new StopCondition() {
+            public boolean isSatisfied(AbstractHTMLToken token, int index) {
+                return token.match(pattern, options);
+            }
+        };
+    }
+
+    /**
+     * Stops after the first match of a sequence of tokens, found like with
+     * StreamingMatcher.
+     *
+     * @param pattern The sequence of elements to search for. Must not be empty.
+     * @param options The options for matching, see ScrapeOptions.
+     */
+    public static StopCondition afterMatch(List<AbstractHTMLToken> pattern, ScrapeOptions options) {
+        final StreamingMatcher matcher = new StreamingMatcher();
+        matcher.add(pattern, options, new StreamingMatcher.Listener() {
+            public void matched(StreamingMatcher.Match match) {
+                matcher.stop();
+            }
+        });
+        return new StopCondition() {
+            public boolean isSatisfied(AbstractHTMLToken token, int index) {
+                if (index == 0) {
+                    matcher.reset();
+                }
+                // the matches aren't handed out, so their offsets don't matter
+                matcher.process(token, index, -1);
+                return matcher.isStopped();
+            }
+        };
+    }
+
+    /**
+     * Stops after a number of tokens.
+     *
+     * @param count The number of tokens needed.
+     */
+    public static StopCondition afterTokens(final int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        return new StopCondition() {
+            public boolean isSatisfied(AbstractHTMLToken token, int index) {
+                return index + 1 >= count;
+            }
+        };
+    }
+
+    /**
+     * Stops as soon as one of several conditions is satisfied. All of them see every
+     * token until then.
+     */
+    public static StopCondition any(final StopCondition... conditions) {
+        return new StopCondition() {
+            public boolean isSatisfied(AbstractHTMLToken token, int index) {
+                boolean satisfied = false;
+                for (StopCondition condition : conditions) {
+                    satisfied |= condition.isSatisfied(token, index);
+                }
+                return satisfied;
+            }
+        };
+    }
+}
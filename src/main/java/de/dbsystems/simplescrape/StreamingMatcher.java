@@ -0,0 +1,296 @@
+package de.dbsystems.simplescrape;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Searches for token sequences while a page is being tokenized, instead of parsing the
+ * page completely first. Patterns are registered together with a listener; then the
+ * tokenizer runs once and every match is handed to its listener as soon as its last
+ * token has been read. Tokens are not kept unless they are part of a possible match,
+ * so the memory needed depends on the length of the patterns, not on the size of the
+ * page.
+ * <p>
+ * A pattern matches like with {@link Scraper#searchTokens(java.util.Vector, ScrapeOptions)},
+ * including the element order of its options. After a match, the search for the same
+ * pattern continues behind it, so the matches of one pattern don't overlap.
+ * </p>
+ * <p>Example:</p>
+ * <pre>
+ * StreamingMatcher matcher = new StreamingMatcher();
+ * matcher.add(pattern, options, new StreamingMatcher.Listener() {
+ *     public void matched(StreamingMatcher.Match match) {
+ *         System.out.println(match.getText());
+ *     }
+ * });
+ * matcher.run(new Tokenizer(input));
+ * </pre>
+ * <p>This class is not thread-safe.</p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class StreamingMatcher {
+    /**
+     * Receives the matches of a pattern.
+     */
+    public interface Listener {
+        /**
+         * Called for every match, while the page is still being read.
+         *
+         * @param match The match.
+         */
+        void matched(Match match);
+    }
+
+    /**
+     * One occurrence of a pattern.
+     */
+    public static class Match {
+        private final List<AbstractHTMLToken> tokens;
+        private final int startIndex;
+        private final int endIndex;
+        private final int offset;
+
+        Match(AbstractHTMLToken[] tokens, int startIndex, int endIndex, int offset) {
+            this.tokens = Collections.unmodifiableList(Arrays.asList(tokens));
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+            this.offset = offset;
+        }
+
+        /**
+         * Returns the tokens that matched the elements of the pattern, one per element.
+         * Tokens the element order allowed inbetween are not included.
+         */
+        public List<AbstractHTMLToken> getTokens() {
+            return tokens;
+        }
+
+        /**
+         * Returns the text of all text tokens of the match, concatenated.
+         */
+        public String getText() {
+            StringBuilder text = new StringBuilder();
+            for (AbstractHTMLToken token : tokens) {
+                if (token instanceof TextToken) {
+                    text.append(((TextToken) token).getText());
+                }
+            }
+            return text.toString();
+        }
+
+        /**
+         * Returns the index of the first token of the match within the page.
+         */
+        public int getStartIndex() {
+            return startIndex;
+        }
+
+        /**
+         * Returns the index after the last token of the match, like
+         * Scraper.searchTokens() would.
+         */
+        public int getEndIndex() {
+            return endIndex;
+        }
+
+        /**
+         * Returns the offset of the first character of the match within the page.
+         */
+        public int getOffset() {
+            return offset;
+        }
+    }
+
+    private final List<Query> queries = new ArrayList<Query>();
+
+    private volatile boolean stopped = false;
+
+    /**
+     * Registers a pattern.
+     *
+     * @param pattern The sequence of elements to search for. Must not be empty.
+     * @param options The options for matching, see ScrapeOptions. advance has no effect.
+     * @param listener Receives the matches.
+     * @return This matcher, so that calls can be chained.
+     */
+    public StreamingMatcher add(List<AbstractHTMLToken> pattern, ScrapeOptions options, Listener listener) {
+        if (pattern == null || pattern.isEmpty()) {
+            throw new IllegalArgumentException("pattern must not be empty");
+        }
+        queries.add(new Query(pattern.toArray(new AbstractHTMLToken[pattern.size()]), options, listener));
+        return this;
+    }
+
+    /**
+     * Reads all tokens from a tokenizer and reports the matches of all patterns.
+     *
+     * @param tokenizer The tokenizer to read from. It is read to the end, unless stop()
+     * is called.
+     * @throws IOException If reading from the tokenizer fails.
+     */
+    public void run(Tokenizer tokenizer) throws IOException {
+        reset();
+        int index = 0;
+        int offset = tokenizer.getOffset();
+        AbstractHTMLToken token = tokenizer.readElement();
+        while (token != null && !stopped) {
+            process(token, index, offset);
+            index++;
+            offset = tokenizer.getOffset();
+            token = tokenizer.readElement();
+        }
+    }
+
+    /**
+     * Convenience method: tokenizes a stream and reports the matches of all patterns.
+     *
+     * @param input The stream. It is not closed.
+     * @throws IOException If reading fails.
+     */
+    public void run(InputStream input) throws IOException {
+        run(new Tokenizer(input));
+    }
+
+    /**
+     * Ends run() after the current token. May be called by a listener, e.g. when it
+     * has found everything it needs.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Whether stop() has been called since the last reset().
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Forgets the matches in progress, for a new page fed with process().
+     */
+    void reset() {
+        stopped = false;
+        for (Query query : queries) {
+            query.partials.clear();
+        }
+    }
+
+    /**
+     * Feeds the next token of a page to all patterns, for callers reading the tokens
+     * themselves.
+     *
+     * @param token The token.
+     * @param index The index of the token within the page.
+     * @param offset The offset of the token within the page.
+     */
+    void process(AbstractHTMLToken token, int index, int offset) {
+        for (Query query : queries) {
+            query.process(token, index, offset);
+        }
+    }
+
+    /**
+     * A registered pattern and its matches in progress.
+     */
+    private static class Query {
+        private final AbstractHTMLToken[] pattern;
+        private final ScrapeOptions options;
+        private final Listener listener;
+
+        /**
+         * The matches in progress, the oldest first. There is at most one per position
+         * within the pattern, as two of them would continue in the same way.
+         */
+        private final List<Partial> partials = new ArrayList<Partial>();
+
+        /** taken[i]: there is a match in progress at position i. Used by process() only */
+        private final boolean[] taken;
+
+        Query(AbstractHTMLToken[] pattern, ScrapeOptions options, Listener listener) {
+            this.pattern = pattern;
+            this.options = options;
+            this.listener = listener;
+            this.taken = new boolean[pattern.length + 1];
+        }
+
+        void process(AbstractHTMLToken token, int index, int offset) {
+            Partial completed = null;
+            Arrays.fill(taken, false);
+            int kept = 0;
+            for (int i = 0; i < partials.size(); i++) {
+                Partial partial = partials.get(i);
+                AbstractHTMLToken there = pattern[partial.next];
+                if (token.match(there, options)) {
+                    partial.tokens[partial.next] = token;
+                    partial.next++;
+                } else if (!Scraper.canAdvanceAnyway(token, there, options)) {
+                    continue;
+                }
+                if (partial.next == pattern.length) {
+                    if (completed == null) {
+                        completed = partial;
+                    }
+                } else if (!taken[partial.next]) {
+                    taken[partial.next] = true;
+                    partials.set(kept++, partial);
+                }
+            }
+            while (partials.size() > kept) {
+                partials.remove(partials.size() - 1);
+            }
+            if (completed == null && token.match(pattern[0], options)) {
+                Partial partial = new Partial(pattern.length, index, offset);
+                partial.tokens[0] = token;
+                partial.next = 1;
+                if (pattern.length == 1) {
+                    completed = partial;
+                } else if (!taken[1]) {
+                    partials.add(partial);
+                }
+            }
+            if (completed != null) {
+                // continue behind the match
+                partials.clear();
+                listener.matched(new Match(completed.tokens, completed.startIndex, index + 1, completed.offset));
+            }
+        }
+    }
+
+    private static class Partial {
+        final AbstractHTMLToken[] tokens;
+        final int startIndex;
+        final int offset;
+        /** The position within the pattern of the next element to be matched */
+        int next = 0;
+
+        Partial(int length, int startIndex, int offset) {
+            this.tokens = new AbstractHTMLToken[length];
+            this.startIndex = startIndex;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package de.dbsystems.simplescrape;
+
+import java.util.List;
+
+/**
+ * 64-bit fingerprints of tokens, used to find sequences of tokens quickly.
+ * <p>
+ * A fingerprint covers what match() compares, normalized according to ignoreCase and
+ * trimText: the kind of the token, the name of a tag and whether it is a closing tag,
+ * the text of a text token and the content of a comment. Attributes are not covered.
+ * Tokens that match have equal fingerprints, so a sequence of tokens can only match
+ * where the fingerprints are equal; those places are found with Rabin-Karp and then
+ * confirmed with match().
+ * </p>
+ *
+ * @since 19.10.2026
+ */
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+final class TokenFingerprints {
+    /** Multiplier of the rolling hash; odd, so that it is invertible modulo 2^64 */
+    private final static long BASE = 0x100000001B3L;
+
+    private TokenFingerprints() {
+        // only static methods
+    }
+
+    /**
+     * Returns whether a search token can be fingerprinted, i.e. whether it only matches
+     * tokens with the same fingerprint. Regular expressions and unknown kinds of tokens
+     * can't.
+     */
+    static boolean isLiteral(AbstractHTMLToken token) {
+        Class<?> type = token.getClass();
+        return type == HTMLTag.class || type == TextToken.class || type == HTMLComment.class;
+    }
+
+    /**
+     * Computes the fingerprint of a token.
+     *
+     * @param token The token. It should be literal (see isLiteral()).
+     * @param ignoreCase As in ScrapeOptions.
+     * @param trimText As in ScrapeOptions.
+     * @return The fingerprint.
+     */
+    static long of(AbstractHTMLToken token, boolean ignoreCase, boolean trimText) {
+        String content;
+        long kind;
+        if (token instanceof HTMLTag) {
+            HTMLTag tag = (HTMLTag) token;
+            content = tag.getName();
+            kind = tag.isEndTag() ? 2 : 1;
+        } else if (token instanceof TextToken) {
+            content = ((TextToken) token).getText();
+            kind = 3;
+        } else if (token instanceof HTMLComment) {
+            content = ((HTMLComment) token).getComment();
+            kind = 4;
+        } else {
+            return 0;
+        }
+        int start = 0;
+        int end = content.length();
+        if (trimText && kind == 3) {
+            // the same as String.trim()
+            while (start < end && content.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && content.charAt(end - 1) <= ' ') {
+                end--;
+            }
+        }
+        long hash = ignoreCase
+                ? Hashing.hashIgnoreCase(content, start, end)
+                : Hashing.hash(content, start, end);
+        return Hashing.combine(hash, kind);
+    }
+
+    /**
+     * Computes the fingerprints of all tokens.
+     */
+    static long[] of(AbstractHTMLToken[] tokens, boolean ignoreCase, boolean trimText) {
+        long[] result = new long[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            result[i] = of(tokens[i], ignoreCase, trimText);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the fingerprints of a list of search tokens.
+     *
+     * @return The fingerprints, or null, if one of the tokens is not literal.
+     */
+    static long[] ofPattern(List<AbstractHTMLToken> tokens, boolean ignoreCase, boolean trimText) {
+        long[] result = new long[tokens.size()];
+        for (int i = 0; i < result.length; i++) {
+            AbstractHTMLToken token = tokens.get(i);
+            if (!isLiteral(token)) {
+                return null;
+            }
+            result[i] = of(token, ignoreCase, trimText);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the next place where a sequence of fingerprints occurs (Rabin-Karp).
+     *
+     * @param text The fingerprints to search in.
+     * @param pattern The fingerprints to search for. Must not be empty.
+     * @param from The first position to be considered.
+     * @return The first position at or after from, where all fingerprints are equal to
+     * those of the pattern, or -1.
+     */
+    static int indexOf(long[] text, long[] pattern, int from) {
+        int m = pattern.length;
+        int last = text.length - m;
+        if (from < 0) {
+            from = 0;
+        }
+        if (from > last) {
+            return -1;
+        }
+        long patternHash = 0;
+        long windowHash = 0;
+        long highest = 1;
+        for (int i = 0; i < m; i++) {
+            patternHash = patternHash * BASE + pattern[i];
+            windowHash = windowHash * BASE + text[from + i];
+            if (i > 0) {
+                highest *= BASE;
+            }
+        }
+        for (int position = from; ; position++) {
+            if (windowHash == patternHash && regionEquals(text, position, pattern)) {
+                return position;
+            }
+            if (position == last) {
+                return -1;
+            }
+            windowHash = (windowHash - text[position] * highest) * BASE + text[position + m];
+        }
+    }
+
+    private static boolean regionEquals(long[] text, int position, long[] pattern) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (text[position + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -30,13 +30,37 @@ import java.io.*;
 
 public class Tokenizer {
 	private Reader reader;
-	private final static int LOOKAHEAD_LENGTH = 4;
+	final static int LOOKAHEAD_LENGTH = 4;
 
 	/**
 	 * Used for a simple lookahead
 	 */
 	private int[] input = new int[LOOKAHEAD_LENGTH];
 
+	/**
+	 * The number of characters consumed so far.
+	 */
+	private int offset = 0;
+
+	/**
+	 * If not null, all consumed characters are appended here.
+	 */
+	private StringBuilder recorder = null;
+
+	/**
+	 * The number of tokens read so far.
+	 */
+	private int tokens = 0;
+
+	/**
+	 * Whether the end has been reached and reported to the metrics.
+	 */
+	private boolean reported = false;
+
+	private final static Metrics.Counter CHARACTERS = Metrics.counter("tokenizer.characters");
+
+	private final static Metrics.Histogram TOKENS_PER_DOCUMENT = Metrics.histogram("tokenizer.tokensPerDocument");
+
 	private final static int TYPE_TEXT_TOKEN = 0;
 
 	private final static int TYPE_TAG = 1;
@@ -54,7 +78,14 @@ public class Tokenizer {
 	 * Parse an input stream.
 	 */
 	public Tokenizer(InputStream in) throws IOException {
-		reader = new InputStreamReader(in);
+		this(new InputStreamReader(in));
+	}
+
+	/**
+	 * Parse the characters of a reader.
+	 */
+	public Tokenizer(Reader in) throws IOException {
+		reader = in;
 		for (int i = 0; i < input.length; i++) {
 			input[i] = reader.read();
 		}
@@ -65,6 +96,10 @@ public class Tokenizer {
 	 */
 	private void next() throws IOException {
 		if (input[0] != -1) {
+			offset++;
+			if (recorder != null) {
+				recorder.append((char) input[0]);
+			}
 			for (int i = 0; i < input.length - 1; i++) {
 				input[i] = input[i + 1];
 			}
@@ -72,6 +107,34 @@ public class Tokenizer {
 		}
 	}
 
+	/**
+	 * Closes the underlying reader (and thereby the input stream). Afterwards, no
+	 * more tokens can be read.
+	 */
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * Returns the number of characters read so far. Between two calls to readElement(),
+	 * this is the offset of the next token within the input.
+	 *
+	 * @return The offset.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Starts or stops recording the input. While recording, every character that is
+	 * read is appended to recorder.
+	 *
+	 * @param recorder Where to append the input, or null to stop recording.
+	 */
+	void setRecorder(StringBuilder recorder) {
+		this.recorder = recorder;
+	}
+
 	/**
 	 * Advance n characters into the stream.
 	 * 
@@ -162,7 +225,17 @@ public class Tokenizer {
 			}
 		}
 
-        return createNewToken(state, buf.toString());
+		AbstractHTMLToken token = createNewToken(state, buf.toString());
+		if (token != null) {
+			tokens++;
+		} else if (!reported) {
+			reported = true;
+			if (Metrics.isEnabled()) {
+				CHARACTERS.add(offset);
+				TOKENS_PER_DOCUMENT.record(tokens);
+			}
+		}
+		return token;
 	}
     
     
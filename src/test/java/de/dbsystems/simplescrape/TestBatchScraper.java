@@ -0,0 +1,151 @@
+package de.dbsystems.simplescrape;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestBatchScraper {
+
+    private final static BatchScraper.Extractor<String> TITLE = new BatchScraper.Extractor<String>() {
+        public String extract(Scraper scraper) {
+            return scraper.getNextContent("title");
+        }
+    };
+
+    @Test
+    public void testRunAndWait() {
+        List<ScrapeSource> sources = new ArrayList<ScrapeSource>();
+        for (int i = 0; i < 50; i++) {
+            String page = "<html><head><title>page " + i + "</title></head></html>";
+            sources.add(ScrapeSource.forStream(new ByteArrayInputStream(page.getBytes())));
+        }
+        sources.add(ScrapeSource.forStream(getClass().getClassLoader().getResourceAsStream(TestScraper.INPUT_FILE)));
+
+        // a small limit for pending pages, so that the feeder has to wait
+        BatchScraper<String> batch = new BatchScraper<String>(TITLE, Executors.newCachedThreadPool(), 2, 3);
+        List<BatchScraper.Result<String>> results = batch.runAndWait(sources);
+        batch.shutdown();
+
+        assertEquals(results.size(), sources.size());
+        Set<String> titles = new HashSet<String>();
+        for (BatchScraper.Result<String> result : results) {
+            assertTrue(result.isSuccess());
+            titles.add(result.getValue());
+        }
+        assertEquals(titles.size(), sources.size());
+        assertTrue(titles.contains("page 49"));
+        assertTrue(titles.contains("Testpage"));
+    }
+
+    @Test
+    public void testErrors() {
+        List<ScrapeSource> sources = new ArrayList<ScrapeSource>();
+        sources.add(new ScrapeSource() {
+            public byte[] read() throws IOException {
+                throw new IOException("unreachable");
+            }
+        });
+        sources.add(ScrapeSource.forStream(new ByteArrayInputStream("<p>no title</p>".getBytes())));
+
+        BatchScraper<Integer> batch = new BatchScraper<Integer>(new BatchScraper.Extractor<Integer>() {
+            public Integer extract(Scraper scraper) {
+                return scraper.getNextContent("title").length();
+            }
+        });
+        List<BatchScraper.Result<Integer>> results = batch.runAndWait(sources);
+        batch.shutdown();
+
+        assertEquals(results.size(), 2);
+        for (BatchScraper.Result<Integer> result : results) {
+            assertFalse(result.isSuccess());
+            assertNull(result.getValue());
+            assertNotNull(result.getError());
+        }
+    }
+
+    @Test
+    public void testRejection() {
+        List<ScrapeSource> sources = new ArrayList<ScrapeSource>();
+        sources.add(ScrapeSource.forStream(new ByteArrayInputStream("<title>one</title>".getBytes())));
+        sources.add(ScrapeSource.forStream(new ByteArrayInputStream("<title>two</title>".getBytes())));
+
+        // an executor that has been shut down elsewhere rejects every source
+        ExecutorService readExecutor = Executors.newCachedThreadPool();
+        readExecutor.shutdown();
+        BatchScraper<String> batch = new BatchScraper<String>(TITLE, readExecutor, 1, 1);
+        List<BatchScraper.Result<String>> results = batch.runAndWait(sources);
+        assertEquals(results.size(), 2);
+        for (BatchScraper.Result<String> result : results) {
+            assertTrue(result.getError() instanceof RejectedExecutionException);
+        }
+
+        batch.shutdown();
+        try {
+            batch.run(sources);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSlowConsumer() throws Exception {
+        final AtomicInteger reads = new AtomicInteger();
+        List<ScrapeSource> sources = new ArrayList<ScrapeSource>();
+        for (int i = 0; i < 10; i++) {
+            final String page = "<title>" + i + "</title>";
+            sources.add(new ScrapeSource() {
+                public byte[] read() {
+                    reads.incrementAndGet();
+                    return page.getBytes();
+                }
+            });
+        }
+
+        BatchScraper<String> batch = new BatchScraper<String>(TITLE, Executors.newCachedThreadPool(), 2, 3);
+        Iterator<BatchScraper.Result<String>> results = batch.run(sources);
+        // nothing is taken, so no more than maxPending sources are read
+        Thread.sleep(200);
+        assertEquals(reads.get(), 3);
+        results.next();
+        Thread.sleep(200);
+        assertEquals(reads.get(), 4);
+
+        int count = 1;
+        while (results.hasNext()) {
+            assertTrue(results.next().isSuccess());
+            count++;
+        }
+        assertEquals(count, 10);
+        assertEquals(reads.get(), 10);
+        batch.shutdown();
+    }
+}
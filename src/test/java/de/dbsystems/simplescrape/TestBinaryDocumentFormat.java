@@ -0,0 +1,113 @@
+package de.dbsystems.simplescrape;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestBinaryDocumentFormat {
+    private ParsedDocument document = null;
+    private File file = null;
+
+    @Before
+    public void setUp() throws Exception {
+        InputStream responseStream = getClass().getClassLoader().getResourceAsStream(TestScraper.INPUT_FILE);
+        document = ParsedDocument.parse(responseStream, true);
+        responseStream.close();
+        file = File.createTempFile("simplescrape", ".tokens");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private void assertSameTokens(ParsedDocument expected, ParsedDocument actual) {
+        assertEquals(actual.size(), expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(actual.get(i).getClass(), expected.get(i).getClass());
+            assertEquals(actual.get(i).toString(), expected.get(i).toString());
+            assertEquals(actual.getOffset(i), expected.getOffset(i));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        BinaryDocumentFormat.write(document, file);
+        ParsedDocument loaded = BinaryDocumentFormat.read(file);
+        assertSameTokens(document, loaded);
+        assertEquals(loaded.getSource(), document.getSource());
+
+        HTMLTag tag = (HTMLTag) loaded.get(0);
+        assertEquals(tag.getName(), "!DOCTYPE");
+        assertEquals(tag.getAttributes().toString(), "HTML PUBLIC \"-//W3C//DTD HTML 4.01 Transitional//EN\"");
+    }
+
+    @Test
+    public void testScraperRoundTrip() throws Exception {
+        Scraper scraper = new Scraper(document);
+        scraper.storeToFile(file.getPath());
+        Scraper loaded = Scraper.loadFromFile(file.getPath());
+
+        Vector<AbstractHTMLToken> searchElements = new Vector<AbstractHTMLToken>();
+        searchElements.add(new HTMLTag("label for=\"time\""));
+        searchElements.add(new TextToken("Uhrzeit"));
+        searchElements.add(new HTMLTag("/label"));
+        ScrapeOptions options = new ScrapeOptions();
+        options.attributesStrict = true;
+        assertEquals(loaded.searchTokens(searchElements, options), scraper.searchTokens(searchElements, options));
+        assertTrue(loaded.getPosition() > 0);
+        assertTrue(((HTMLTag) loaded.get(0)).isEmptyElement());
+    }
+
+    @Test
+    public void testWithoutSource() throws Exception {
+        List<AbstractHTMLToken> tokens = new ArrayList<AbstractHTMLToken>();
+        tokens.add(new HTMLTag("br/"));
+        tokens.add(new HTMLTag("a href=x"));
+        tokens.add(new HTMLComment(" note "));
+        tokens.add(new TextToken("text"));
+        tokens.add(new HTMLTag("/a"));
+        ParsedDocument original = new ParsedDocument(tokens);
+        BinaryDocumentFormat.write(original, file);
+        ParsedDocument loaded = BinaryDocumentFormat.read(file);
+        assertEquals(loaded.getSource(), "<br/><a href=x><!-- note -->text</a>");
+        assertEquals(loaded.size(), 5);
+        assertTrue(((HTMLTag) loaded.get(0)).isUnaryTag());
+        assertEquals(((HTMLTag) loaded.get(1)).getAttributes().get("href"), "x");
+        assertTrue(((HTMLTag) loaded.get(4)).isEndTag());
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidFile() throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("<html></html>".getBytes());
+        out.close();
+        BinaryDocumentFormat.read(file);
+    }
+}
@@ -0,0 +1,74 @@
+package de.dbsystems.simplescrape;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestCompression {
+
+    @Test
+    public void testGzippedFile() throws Exception {
+        InputStream responseStream = getClass().getClassLoader().getResourceAsStream(TestScraper.INPUT_FILE);
+        byte[] page = ScrapeSource.readFully(responseStream);
+        File plain = File.createTempFile("compression", ".html");
+        File gzipped = File.createTempFile("compression", ".html.gz");
+        try {
+            FileOutputStream out = new FileOutputStream(plain);
+            out.write(page);
+            out.close();
+            GZIPOutputStream gzip = new GZIPOutputStream(new FileOutputStream(gzipped));
+            gzip.write(page);
+            gzip.close();
+            assertTrue(gzipped.length() < plain.length());
+
+            InputStream input = ScrapeSource.openFile(gzipped);
+            Scraper scraper = new Scraper(input);
+            input.close();
+            input = ScrapeSource.openFile(plain);
+            assertEquals(scraper.size(), new Scraper(input).size());
+            input.close();
+            assertEquals(ScrapeSource.forFile(gzipped).read().length, page.length);
+        } finally {
+            plain.delete();
+            gzipped.delete();
+        }
+    }
+
+    @Test
+    public void testDecode() throws Exception {
+        InputStream input = new ByteArrayInputStream(new byte[] { 1, 2 });
+        assertSame(Compression.decode(input, null), input);
+        assertSame(Compression.decode(input, "identity"), input);
+        try {
+            Compression.decode(input, "br");
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        // short content isn't mistaken for gzip
+        assertEquals(ScrapeSource.readFully(Compression.decodeIfGzipped(new ByteArrayInputStream(new byte[] { 0x1f }))).length, 1);
+    }
+}
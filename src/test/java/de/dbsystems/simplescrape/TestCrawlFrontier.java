@@ -0,0 +1,126 @@
+package de.dbsystems.simplescrape;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestCrawlFrontier {
+    /** Small segments, so that the queue spans many of them */
+    private final static int SEGMENT_SIZE = 80000;
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("simplescrape").toFile();
+    }
+
+    @After
+    public void deleteDirectory() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private static String url(int i) {
+        return "http://www.example.com/page/" + i + "?q=\u00e4";
+    }
+
+    @Test
+    public void testQueueAndDuplicates() throws IOException {
+        CrawlFrontier frontier = new CrawlFrontier(directory, 100000, 0.001, SEGMENT_SIZE);
+        List<String> accepted = new ArrayList<String>();
+        for (int i = 0; i < 100000; i++) {
+            if (frontier.add(url(i))) {
+                accepted.add(url(i));
+            }
+            assertFalse(frontier.add(url(i)));
+            if (i % 3 == 0) {
+                assertFalse(frontier.add(url(i / 3)));
+            }
+        }
+        // a few new URLs may be taken for seen ones
+        assertTrue(accepted.size() > 99500);
+        assertEquals(frontier.size(), accepted.size());
+        assertTrue(frontier.contains(url(12345)));
+        assertTrue(frontier.getFalsePositiveRate() < 0.002);
+        assertTrue(directory.list().length > 40);
+
+        for (int i = 0; i < accepted.size(); i++) {
+            assertEquals(frontier.poll(), accepted.get(i));
+        }
+        assertNull(frontier.poll());
+        assertEquals(frontier.size(), 0);
+        // the segments read completely are gone
+        assertEquals(directory.list().length, 3);
+
+        assertTrue(frontier.add("http://www.example.com/new"));
+        assertEquals(frontier.poll(), "http://www.example.com/new");
+        frontier.close();
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        CrawlFrontier frontier = new CrawlFrontier(directory, 10000, 0.0001, SEGMENT_SIZE);
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(frontier.add(url(i)));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(frontier.poll(), url(i));
+        }
+        frontier.checkpoint();
+        // added after the checkpoint, without closing
+        for (int i = 5000; i < 6000; i++) {
+            assertTrue(frontier.add(url(i)));
+        }
+
+        CrawlFrontier resumed = new CrawlFrontier(directory, 1, 0.5, SEGMENT_SIZE);
+        assertEquals(resumed.getFilterBits(), frontier.getFilterBits());
+        assertEquals(resumed.size(), 5000);
+        assertEquals(resumed.getAddedCount(), 6000);
+        assertFalse(resumed.add(url(10)));
+        assertFalse(resumed.add(url(5999)));
+        try {
+            resumed.add("");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // it couldn't be recovered after a restart
+        }
+        for (int i = 1000; i < 6000; i++) {
+            assertEquals(resumed.poll(), url(i));
+        }
+        assertNull(resumed.poll());
+        resumed.close();
+        try {
+            resumed.poll();
+            fail();
+        } catch (IllegalStateException e) {
+            // closed
+        }
+    }
+}
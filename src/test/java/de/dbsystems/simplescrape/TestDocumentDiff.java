@@ -0,0 +1,113 @@
+package de.dbsystems.simplescrape;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestDocumentDiff {
+
+    private static ParsedDocument parse(String source) throws Exception {
+        return ParsedDocument.parse(new Tokenizer(new StringReader(source)), true);
+    }
+
+    /**
+     * Applies the edits to the tokens of the old document and checks that the result
+     * equals the new document.
+     */
+    private static void assertEditsApply(ParsedDocument oldDocument, ParsedDocument newDocument, List<DocumentDiff.Edit> edits) {
+        List<String> result = new ArrayList<String>();
+        int position = 0;
+        for (DocumentDiff.Edit edit : edits) {
+            assertTrue(edit.getOldStart() >= position);
+            for (; position < edit.getOldStart(); position++) {
+                result.add(oldDocument.get(position).toString());
+            }
+            for (int i = edit.getNewStart(); i < edit.getNewEnd(); i++) {
+                result.add(newDocument.get(i).toString());
+            }
+            position = edit.getOldEnd();
+        }
+        for (; position < oldDocument.size(); position++) {
+            result.add(oldDocument.get(position).toString());
+        }
+        assertEquals(result.size(), newDocument.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(result.get(i), newDocument.get(i).toString());
+        }
+    }
+
+    @Test
+    public void testSimpleEdits() throws Exception {
+        ParsedDocument oldDocument = parse("<ul><li>a</li><li>b</li><li>c</li></ul>");
+        assertTrue(DocumentDiff.compare(oldDocument, parse("<ul><li>a</li><li>b</li><li>c</li></ul>")).isEmpty());
+
+        List<DocumentDiff.Edit> edits = DocumentDiff.compare(oldDocument, parse("<ul><li>a</li><li>x</li><li>c</li></ul>"));
+        assertEquals(edits.size(), 1);
+        assertEquals(edits.get(0).getType(), DocumentDiff.Edit.CHANGE);
+        assertEquals(edits.get(0).getOldStart(), 5);
+        assertEquals(edits.get(0).getOldEnd(), 6);
+
+        edits = DocumentDiff.compare(oldDocument, parse("<ul><li>a</li><li>c</li></ul>"));
+        assertEquals(edits.size(), 1);
+        assertEquals(edits.get(0).getType(), DocumentDiff.Edit.DELETE);
+        assertEquals(edits.get(0).getOldEnd() - edits.get(0).getOldStart(), 3);
+
+        edits = DocumentDiff.compare(oldDocument, parse("<ul><li>new</li><li>a</li><li>b</li><li>c</li></ul>"));
+        assertEquals(edits.size(), 1);
+        assertEquals(edits.get(0).getType(), DocumentDiff.Edit.INSERT);
+        assertEquals(edits.get(0).getNewEnd() - edits.get(0).getNewStart(), 3);
+    }
+
+    @Test
+    public void testRandomEdits() throws Exception {
+        InputStream responseStream = getClass().getClassLoader().getResourceAsStream(TestScraper.INPUT_FILE);
+        ParsedDocument document = ParsedDocument.parse(responseStream, true);
+        responseStream.close();
+        String source = document.getSource();
+        Random random = new Random(815);
+        for (int i = 0; i < 100; i++) {
+            StringBuilder edited = new StringBuilder(source);
+            for (int j = random.nextInt(10); j >= 0; j--) {
+                int start = random.nextInt(edited.length());
+                int end = Math.min(edited.length(), start + random.nextInt(200));
+                edited.replace(start, end, random.nextBoolean() ? "<b>x</b>" : "");
+            }
+            ParsedDocument newDocument = parse(edited.toString());
+            assertEditsApply(document, newDocument, DocumentDiff.compare(document, newDocument));
+            assertEditsApply(newDocument, document, DocumentDiff.compare(newDocument, document, 3));
+        }
+    }
+
+    @Test
+    public void testCompletelyDifferent() throws Exception {
+        ParsedDocument oldDocument = parse("<p>a</p><p>b</p>");
+        ParsedDocument newDocument = parse("<div>c</div>");
+        List<DocumentDiff.Edit> edits = DocumentDiff.compare(oldDocument, newDocument);
+        assertEditsApply(oldDocument, newDocument, edits);
+        edits = DocumentDiff.compare(parse(""), newDocument);
+        assertEquals(edits.size(), 1);
+        assertEquals(edits.get(0).getType(), DocumentDiff.Edit.INSERT);
+    }
+}
@@ -0,0 +1,101 @@
+package de.dbsystems.simplescrape;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestDocumentEditor {
+
+    @Test
+    public void testRandomEdits() {
+        List<AbstractHTMLToken> expected = new ArrayList<AbstractHTMLToken>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(new TextToken("t" + i));
+        }
+        DocumentEditor editor = new DocumentEditor(expected);
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            int start = random.nextInt(expected.size() + 1);
+            int end = Math.min(expected.size(), start + random.nextInt(5));
+            List<AbstractHTMLToken> tokens = new ArrayList<AbstractHTMLToken>();
+            for (int j = random.nextInt(6); j > 0; j--) {
+                tokens.add(new TextToken("n" + i + "." + j));
+            }
+            editor.replace(start, end, tokens);
+            expected.subList(start, end).clear();
+            expected.addAll(start, tokens);
+            assertEquals(editor.size(), expected.size());
+        }
+        assertEquals(editor.getTokens(), expected);
+        assertEquals(editor.toDocument().getTokens(), expected);
+    }
+
+    @Test
+    public void testWriteTo() throws Exception {
+        ParsedDocument document = ParsedDocument.parse(new Tokenizer(new StringReader(
+                "<p>eins<script>alert(1)</script>zwei</p>")));
+        DocumentEditor editor = new DocumentEditor(document);
+        editor.remove(2, 5);
+        editor.insert(2, Arrays.<AbstractHTMLToken>asList(new HTMLTag("br"), new TextToken("-")));
+        StringWriter writer = new StringWriter();
+        editor.writeTo(writer);
+        assertEquals(writer.toString(), "<p>eins<br>-zwei</p>");
+        assertEquals(document.size(), 7);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRangeChecked() {
+        new DocumentEditor(Arrays.<AbstractHTMLToken>asList(new TextToken("a"))).remove(0, 2);
+    }
+
+    @Test
+    public void testScraperPositions() throws Exception {
+        ParsedDocument document = ParsedDocument.parse(new Tokenizer(new StringReader(
+                "<ul><li>a</li><li>b</li><li>c</li></ul>")));
+        Scraper scraper = document.newScraper();
+        scraper.indexOf(new HTMLTag("li"), new ScrapeOptions());
+        scraper.advance(3);
+        assertEquals(scraper.get(scraper.getPosition()).toString(), "<li>");
+
+        // before the position: the position moves along
+        scraper.remove(1, 4);
+        assertEquals(scraper.getPosition(), 1);
+        scraper.insert(0, Arrays.<AbstractHTMLToken>asList(new HTMLTag("div"), new HTMLTag("/div")));
+        assertEquals(scraper.getPosition(), 3);
+        assertEquals(scraper.getNextText(false).getText(), "b");
+
+        // after the position: nothing changes
+        scraper.replace(scraper.size() - 1, scraper.size(), Arrays.<AbstractHTMLToken>asList(new HTMLTag("/ol")));
+        assertEquals(scraper.getPosition(), 5);
+
+        scraper.reset();
+        scraper.remove();
+        assertEquals(scraper.getDocument().size(), 9);
+        assertEquals(scraper.get(0).toString(), "</div>");
+        assertEquals(scraper.get(scraper.size() - 1).toString(), "</ol>");
+        assertEquals(document.size(), 11);
+    }
+}
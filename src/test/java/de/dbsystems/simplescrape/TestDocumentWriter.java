@@ -0,0 +1,101 @@
+package de.dbsystems.simplescrape;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestDocumentWriter {
+    private final static String PAGE = "<P  CLASS='x'>eins<br/><!-- c -->zwei</P>";
+
+    @Test
+    public void testVerbatim() throws Exception {
+        ParsedDocument document = ParsedDocument.parse(new Tokenizer(new StringReader(PAGE)), true);
+        StringWriter out = new StringWriter();
+        new DocumentWriter(out).write(document);
+        assertEquals(out.toString(), PAGE);
+
+        // without the source, the tokens are rebuilt
+        out = new StringWriter();
+        new DocumentWriter(out).write(new ParsedDocument(document.getTokens()));
+        assertFalse(out.toString().equals(PAGE));
+    }
+
+    @Test
+    public void testEditedDocument() throws Exception {
+        Scraper scraper = ParsedDocument.parse(new Tokenizer(new StringReader(PAGE)), true).newScraper();
+        scraper.replace(2, 4, Arrays.<AbstractHTMLToken>asList(new TextToken(" - ")));
+        StringWriter out = new StringWriter();
+        scraper.writeTo(new DocumentWriter(out));
+        assertEquals(out.toString(), "<P  CLASS='x'>eins - zwei</P>");
+    }
+
+    @Test
+    public void testScraperKeepingSource() throws Exception {
+        byte[] content = PAGE.getBytes("UTF-8");
+        for (boolean lazy : new boolean[] { false, true }) {
+            Scraper scraper = new Scraper(new ByteArrayInputStream(content), lazy, true);
+            StringWriter out = new StringWriter();
+            scraper.writeTo(new DocumentWriter(out));
+            assertEquals(out.toString(), PAGE);
+        }
+
+        // by default, the tokens are rebuilt
+        StringWriter out = new StringWriter();
+        new Scraper(new ByteArrayInputStream(content)).writeTo(new DocumentWriter(out));
+        assertFalse(out.toString().equals(PAGE));
+    }
+
+    @Test
+    public void testStreamsAndFiles() throws Exception {
+        InputStream responseStream = getClass().getClassLoader().getResourceAsStream(TestScraper.INPUT_FILE);
+        ParsedDocument document = ParsedDocument.parse(responseStream, true);
+        responseStream.close();
+        Charset utf8 = Charset.forName("UTF-8");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DocumentWriter writer = new DocumentWriter(bytes, utf8);
+        writer.write(document);
+        writer.flush();
+        assertTrue(Arrays.equals(bytes.toByteArray(), document.getSource().getBytes(utf8)));
+
+        File file = File.createTempFile("documentwriter", ".html");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            writer = new DocumentWriter(out.getChannel(), utf8);
+            writer.write(document);
+            writer.close();
+            assertEquals(file.length(), bytes.size());
+
+            new Scraper(document).printToFile(file.getPath(), utf8);
+            assertEquals(file.length(), bytes.size());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package de.dbsystems.simplescrape;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestFetchScheduler {
+
+    /**
+     * A stand-in server answering after a delay and counting its concurrent requests.
+     * While a gate is set, requests wait for it to open.
+     */
+    private static class Server {
+        final HttpServer server;
+        final String url;
+        final AtomicInteger current = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final AtomicInteger requests = new AtomicInteger();
+        volatile CountDownLatch gate;
+
+        Server(final long delay, final int status) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/", new HttpHandler() {
+                public void handle(HttpExchange exchange) throws IOException {
+                    requests.incrementAndGet();
+                    int now = current.incrementAndGet();
+                    synchronized (maxConcurrent) {
+                        maxConcurrent.set(Math.max(maxConcurrent.get(), now));
+                    }
+                    try {
+                        if (gate != null) {
+                            gate.await();
+                        }
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    current.decrementAndGet();
+                    byte[] body = ("<p>" + exchange.getRequestURI().getPath() + "</p>").getBytes(StandardCharsets.UTF_8);
+                    exchange.sendResponseHeaders(status, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                }
+            });
+            server.start();
+            url = "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+    }
+
+    private final List<Server> servers = new ArrayList<Server>();
+
+    private Server server(long delay, int status) throws IOException {
+        Server server = new Server(delay, status);
+        servers.add(server);
+        return server;
+    }
+
+    @After
+    public void stopServers() {
+        for (Server server : servers) {
+            server.server.stop(0);
+        }
+    }
+
+    private static List<CompletableFuture<byte[]>> fetch(FetchScheduler scheduler, Server server, int count) {
+        List<CompletableFuture<byte[]>> futures = new ArrayList<CompletableFuture<byte[]>>();
+        for (int i = 0; i < count; i++) {
+            futures.add(scheduler.getWebpageContent(server.url + "/" + i));
+        }
+        return futures;
+    }
+
+    @Test
+    public void testLimitsAndFairness() throws Exception {
+        Server slow = server(150, 200);
+        Server fast = server(0, 200);
+        FetchScheduler scheduler = new FetchScheduler(new HTTPHelper());
+        scheduler.setMaxRequestsPerHost(2);
+
+        slow.gate = new CountDownLatch(1);
+        List<CompletableFuture<byte[]>> slowPages = fetch(scheduler, slow, 12);
+        List<CompletableFuture<byte[]>> fastPages = fetch(scheduler, fast, 12);
+        for (int i = 0; i < 12; i++) {
+            assertEquals(new String(fastPages.get(i).get(), StandardCharsets.UTF_8), "<p>/" + i + "</p>");
+        }
+        // the fast host didn't have to wait for the slow one, which is still held up
+        assertTrue(slow.requests.get() <= 2);
+        assertEquals(scheduler.getQueuedCount(), 10);
+        slow.gate.countDown();
+        for (int i = 0; i < 12; i++) {
+            assertEquals(new String(slowPages.get(i).get(), StandardCharsets.UTF_8), "<p>/" + i + "</p>");
+        }
+        assertTrue(slow.maxConcurrent.get() <= 2);
+        assertTrue(fast.maxConcurrent.get() <= 2);
+        assertEquals(scheduler.getRunningCount(), 0);
+        assertEquals(scheduler.getStatistics().size(), 2);
+        assertEquals(scheduler.getStatistics().get(0).getCompletedCount(), 12);
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        Server server = server(0, 200);
+        FetchScheduler scheduler = new FetchScheduler(new HTTPHelper());
+        scheduler.setRequestsPerSecond(1, 1);
+        List<CompletableFuture<byte[]>> pages = fetch(scheduler, server, 3);
+        scheduler.shutdown();
+        // the first request had been started, the others were waiting for the rate limit
+        assertEquals(new String(pages.get(0).get(), StandardCharsets.UTF_8), "<p>/0</p>");
+        for (int i = 1; i < 3; i++) {
+            try {
+                pages.get(i).get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+        }
+        try {
+            scheduler.getWebpageContent(server.url + "/later").get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(server.requests.get(), 1);
+    }
+
+    @Test
+    public void testRate() throws Exception {
+        Server server = server(0, 200);
+        FetchScheduler scheduler = new FetchScheduler(new HTTPHelper());
+        scheduler.setRequestsPerSecond(20, 2);
+        long start = System.nanoTime();
+        List<CompletableFuture<byte[]>> pages = fetch(scheduler, server, 8);
+        for (CompletableFuture<byte[]> page : pages) {
+            page.get();
+        }
+        // two at once, then one every 50 milliseconds
+        assertTrue(System.nanoTime() - start >= 290000000L);
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testFailures() throws Exception {
+        Server overloaded = server(0, 503);
+        Server missing = server(0, 404);
+        FetchScheduler scheduler = new FetchScheduler(new HTTPHelper());
+        scheduler.setMaxRequestsPerHost(4);
+
+        List<CompletableFuture<byte[]>> pages = fetch(scheduler, missing, 3);
+        pages.addAll(fetch(scheduler, overloaded, 3));
+        for (CompletableFuture<byte[]> page : pages) {
+            try {
+                page.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof HTTPStatusException);
+            }
+        }
+        for (FetchScheduler.HostStatistics statistics : scheduler.getStatistics()) {
+            assertEquals(statistics.getFailedCount(), 3);
+            // only an overloaded host gets fewer requests
+            assertEquals(statistics.getConcurrencyLimit(), statistics.getHost().equals(missing.url) ? 4 : 1);
+        }
+
+        try {
+            scheduler.getWebpageContent("no url at all").get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testIdleHostsAreBounded() throws Exception {
+        FetchScheduler scheduler = new FetchScheduler(new HTTPHelper());
+        scheduler.setMaxIdleHosts(2);
+        List<Server> used = new ArrayList<Server>();
+        for (int i = 0; i < 4; i++) {
+            Server server = server(0, 200);
+            used.add(server);
+            fetch(scheduler, server, 1).get(0).get();
+        }
+        // only the two hosts used last are kept
+        List<FetchScheduler.HostStatistics> statistics = scheduler.getStatistics();
+        assertEquals(statistics.size(), 2);
+        assertEquals(statistics.get(0).getHost(), used.get(2).url);
+        assertEquals(statistics.get(1).getHost(), used.get(3).url);
+
+        scheduler.setMaxIdleHosts(0);
+        assertEquals(scheduler.getStatistics().size(), 0);
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,93 @@
+package de.dbsystems.simplescrape;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestHTMLForm {
+    private final static String PAGE = "<html><body>"
+            + "<input name=\"outside\">"
+            + "<FORM ACTION=\"/login\" Method=\"POST\" id=\"login\">"
+            + "<input name=\"user\" value=\"gast\">"
+            + "<input type=\"password\" name=\"pw\">"
+            + "<input type=\"checkbox\" name=\"keep\" checked>"
+            + "<select name=\"lang\"><option value=\"de\">Deutsch<option value=\"en\" selected>English</select>"
+            + "<textarea name=\"note\">Hallo\nWelt</textarea>"
+            + "<button name=\"go\">  Anmelden </button>"
+            + "</form>"
+            + "<form><select name=\"q\"><option>eins</option><option>zwei</option></select></form>"
+            + "</body></html>";
+
+    private static Scraper scraper() throws Exception {
+        return ParsedDocument.parse(new Tokenizer(new StringReader(PAGE))).newScraper();
+    }
+
+    private static void assertLoginForm(HTMLForm form) {
+        assertEquals(form.getAction(), "/login");
+        assertEquals(form.getMethod(), "post");
+        assertEquals(form.getId(), "login");
+        List<HTMLForm.Field> fields = form.getFields();
+        assertEquals(fields.size(), 6);
+        assertEquals(fields.get(0).getType(), "text");
+        assertEquals(fields.get(0).getValue(), "gast");
+        assertEquals(form.getField("pw").getType(), "password");
+        assertNull(form.getField("pw").getValue());
+        assertTrue(form.getField("keep").isChecked());
+        assertFalse(form.getField("user").isChecked());
+
+        HTMLForm.Field select = form.getField("lang");
+        assertEquals(select.getType(), "select");
+        assertEquals(select.getOptions().size(), 2);
+        assertEquals(select.getOptions().get(0).getLabel(), "Deutsch");
+        assertEquals(select.getValue(), "en");
+
+        assertEquals(form.getField("note").getValue(), "Hallo\nWelt");
+        assertEquals(form.getField("go").getType(), "submit");
+        assertEquals(form.getField("go").getLabel(), "Anmelden");
+        assertNull(form.getField("outside"));
+    }
+
+    @Test
+    public void testExtractForms() throws Exception {
+        Scraper scraper = scraper();
+        List<HTMLForm> forms = scraper.extractForms();
+        assertEquals(forms.size(), 2);
+        assertLoginForm(forms.get(0));
+        assertEquals(forms.get(1).getMethod(), "get");
+        assertEquals(forms.get(1).getAction(), "");
+        assertEquals(forms.get(1).getField("q").getValue(), "eins");
+        assertEquals(scraper.getPosition(), 0);
+    }
+
+    @Test
+    public void testWithoutIndex() throws Exception {
+        // an edited document has no tag index
+        Scraper scraper = scraper();
+        scraper.insert(0, Arrays.<AbstractHTMLToken>asList(new HTMLTag("p")));
+        List<HTMLForm> forms = scraper.extractForms();
+        assertEquals(forms.size(), 2);
+        assertLoginForm(forms.get(0));
+        assertEquals(forms.get(0).getPosition(), 4);
+        assertEquals(scraper.getForms().toString(), scraper().getForms().toString());
+    }
+}
@@ -124,4 +124,33 @@ public class TestHTMLTagAttributes {
 		assertEquals(attrs.getSize(), 1);
 	}
 
+    @Test
+    public void testDuplicatesAndCase() {
+        HTMLTagAttributes attrs = new HTMLTagAttributes("A=1 hidden href=\"2\" HREF=3 'q'=x");
+        assertEquals(attrs.getSize(), 4);
+        assertEquals(attrs.get("href"), "3");
+        assertEquals(attrs.get("a"), "1");
+        assertEquals(attrs.get("Q"), "x");
+        assertNull(attrs.get("id"));
+        assertFalse(attrs.exists("hid"));
+        Enumeration<String> names = attrs.getAttributeNames();
+        assertEquals(names.nextElement(), "a");
+        assertEquals(names.nextElement(), "hidden");
+    }
+
+    @Test
+    public void testPartOfString() {
+        String tag = "img  src=x.png alt='A B' ";
+        HTMLTagAttributes attrs = new HTMLTagAttributes(tag, 3, tag.length());
+        assertEquals(attrs.toString(), "src=x.png alt='A B'");
+        assertEquals(attrs.get("alt"), "A B");
+
+        ScrapeOptions options = new ScrapeOptions();
+        options.ignoreCase = false;
+        assertTrue(attrs.match(new HTMLTagAttributes("ALT=\"A B\""), options));
+        assertFalse(attrs.match(new HTMLTagAttributes("alt=\"a b\""), options));
+        assertFalse(attrs.match(new HTMLTagAttributes("title"), options));
+        options.ignoreCase = true;
+        assertTrue(attrs.match(new HTMLTagAttributes("alt=\"a b\""), options));
+    }
 }
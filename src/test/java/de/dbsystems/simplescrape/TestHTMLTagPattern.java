@@ -0,0 +1,77 @@
+package de.dbsystems.simplescrape;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Vector;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestHTMLTagPattern {
+
+    @Test
+    public void testPredicates() {
+        HTMLTagAttributes attrs = new HTMLTagAttributes("class=\"item  Result big\" href='/detail/42.html' hidden");
+        assertTrue(AttributePredicate.exists("HIDDEN").test(attrs, false));
+        assertFalse(AttributePredicate.exists("id").test(attrs, false));
+        assertFalse(AttributePredicate.exists("id").test(null, false));
+        assertTrue(AttributePredicate.equalTo("hidden", "").test(attrs, false));
+        assertTrue(AttributePredicate.startsWith("href", "/detail/").test(attrs, false));
+        assertFalse(AttributePredicate.startsWith("href", "/Detail/").test(attrs, false));
+        assertTrue(AttributePredicate.startsWith("href", "/Detail/").test(attrs, true));
+        assertTrue(AttributePredicate.endsWith("href", ".html").test(attrs, false));
+        assertFalse(AttributePredicate.endsWith("hidden", ".html").test(attrs, false));
+        assertTrue(AttributePredicate.contains("href", "/42").test(attrs, false));
+        assertFalse(AttributePredicate.contains("class", "results").test(attrs, true));
+        assertTrue(AttributePredicate.hasToken("class", "big").test(attrs, false));
+        assertTrue(AttributePredicate.hasToken("class", "result").test(attrs, true));
+        assertFalse(AttributePredicate.hasToken("class", "result").test(attrs, false));
+        assertFalse(AttributePredicate.hasToken("class", "item Result").test(attrs, false));
+        assertTrue(AttributePredicate.matches("href", "/detail/\\d+\\.html").test(attrs, false));
+        assertFalse(AttributePredicate.matches("href", "\\d+").test(attrs, false));
+        assertTrue(AttributePredicate.matches("class", Pattern.compile(".*RESULT.*", Pattern.CASE_INSENSITIVE))
+                .test(attrs, false));
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        String page = "<ul><li class=\"item\"><a href=\"/about\">About</a></li>"
+                + "<li class=\"item result\"><a href=\"/detail/1\">One</a></li>"
+                + "<li class=\"result\"><a href=\"/detail/2\">Two</a></li></ul>";
+        Scraper scraper = ParsedDocument.parse(new Tokenizer(new StringReader(page))).newScraper();
+        ScrapeOptions options = new ScrapeOptions();
+
+        HTMLTagPattern result = new HTMLTagPattern("li", AttributePredicate.hasToken("class", "result"));
+        assertEquals(scraper.indexOf(result, options), 6);
+        assertEquals(scraper.indexOf(7, result, options), 11);
+
+        Vector<AbstractHTMLToken> pattern = new Vector<AbstractHTMLToken>(Arrays.<AbstractHTMLToken>asList(
+                new HTMLTagPattern("li").where(AttributePredicate.exists("class")),
+                new HTMLTagPattern("a", AttributePredicate.startsWith("href", "/detail/"),
+                        AttributePredicate.endsWith("href", "2"))));
+        options.elementOrder = ScrapeOptions.ELEMENT_ORDER_STRICT;
+        assertEquals(scraper.searchTokens(0, pattern, options), 13);
+
+        // the attributes in the tag content count, too
+        assertEquals(scraper.indexOf(0, new HTMLTagPattern("a href=/about", AttributePredicate.exists("href")), options), 2);
+        assertEquals(scraper.indexOf(0, new HTMLTagPattern("a href=/about", AttributePredicate.exists("title")), options), -1);
+    }
+}
@@ -0,0 +1,259 @@
+package de.dbsystems.simplescrape;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestHTTPHelper {
+    private HttpServer server;
+    private String url;
+
+    /** The number of bytes of /big sent, once the handler has finished */
+    private final CompletableFuture<Long> bigSent = new CompletableFuture<Long>();
+
+    /** The client ports of the requests for /missing */
+    private final List<Integer> clientPorts = new java.util.concurrent.CopyOnWriteArrayList<Integer>();
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/page", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String body = new String(ScrapeSource.readFully(exchange.getRequestBody()), StandardCharsets.UTF_8);
+                String referer = exchange.getRequestHeaders().getFirst("Referer");
+                respond(exchange, 200, "<html><p>" + exchange.getRequestMethod() + "</p><p>" + body + "</p><p>"
+                        + referer + "</p><p>" + exchange.getRequestURI().getQuery() + "</p></html>");
+            }
+        });
+        server.createContext("/missing", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                respond(exchange, 404, "not found");
+            }
+        });
+        server.createContext("/compressed", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                String encoding = exchange.getRequestURI().getQuery();
+                byte[] page = ("<p>" + encoding + "</p>").getBytes(StandardCharsets.UTF_8);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                OutputStream out = encoding.equals("gzip") ? new GZIPOutputStream(bytes)
+                        : new DeflaterOutputStream(bytes, new Deflater(Deflater.DEFAULT_COMPRESSION, encoding.equals("raw")));
+                out.write(page);
+                out.close();
+                if (accepted == null || accepted.indexOf(encoding.equals("gzip") ? "gzip" : "deflate") < 0) {
+                    respond(exchange, 406, "not acceptable");
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Encoding", encoding.equals("gzip") ? "gzip" : "deflate");
+                exchange.sendResponseHeaders(200, bytes.size());
+                out = exchange.getResponseBody();
+                bytes.writeTo(out);
+                out.close();
+            }
+        });
+        server.createContext("/big", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                // 20 MB, so that it doesn't fit into the socket buffers
+                byte[] head = "<html><head><title>Big</title></head><body>".getBytes(StandardCharsets.UTF_8);
+                byte[] item = "<p>item</p>\n".getBytes(StandardCharsets.UTF_8);
+                int items = (20 << 20) / item.length;
+                long sent = 0;
+                try {
+                    exchange.sendResponseHeaders(200, head.length + (long) items * item.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(head);
+                    sent += head.length;
+                    for (int i = 0; i < items; i++) {
+                        out.write(item);
+                        sent += item.length;
+                    }
+                    out.close();
+                } catch (IOException e) {
+                    // the client went away
+                    exchange.close();
+                } finally {
+                    bigSent.complete(sent);
+                }
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    private static List<String> texts(Scraper scraper) {
+        List<String> texts = new ArrayList<String>();
+        for (int i = 0; i < scraper.size(); i++) {
+            if (scraper.get(i) instanceof TextToken) {
+                texts.add(scraper.get(i).toString());
+            }
+        }
+        return texts;
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        HTTPHelper helper = new HTTPHelper();
+        helper.setRequestTimeout(Duration.ofSeconds(10));
+
+        List<CompletableFuture<Scraper>> futures = new ArrayList<CompletableFuture<Scraper>>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(helper.getWebpageForScrapingAsync(url + "/page?n=" + i));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals(texts(futures.get(i).get()).toString(), "[GET, null, n=" + i + "]");
+        }
+
+        Scraper scraper = helper.getWebpageForScrapingAsync(url + "/page", "a=1&b=2", "http://referer/").get();
+        assertEquals(texts(scraper).toString(), "[POST, a=1&b=2, http://referer/, null]");
+    }
+
+    @Test
+    public void testAsyncFailures() throws Exception {
+        HTTPHelper helper = new HTTPHelper();
+        try {
+            helper.getWebpageContentAsync(url + "/missing").get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertTrue(e.getCause().getMessage().indexOf("404") > 0);
+        }
+        try {
+            helper.getWebpageForScrapingAsync("no url at all").get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testSync() throws Exception {
+        HTTPHelper helper = new HTTPHelper();
+        assertEquals(texts(helper.getWebpageForScraping(url + "/page?x")).toString(), "[GET, null, x]");
+        assertNull(helper.getWebpageForScraping(url + "/missing"));
+    }
+
+    @Test
+    public void testErrorsKeepConnection() throws Exception {
+        HTTPHelper helper = new HTTPHelper();
+        for (int i = 0; i < 3; i++) {
+            assertNull(helper.getWebpageForScraping(url + "/missing"));
+            try {
+                helper.getWebpageContent(url + "/missing");
+                fail();
+            } catch (HTTPStatusException e) {
+                assertEquals(e.getStatusCode(), 404);
+            }
+        }
+        // the error pages have been read, so all requests went over one connection
+        assertEquals(clientPorts.size(), 6);
+        assertEquals(new java.util.HashSet<Integer>(clientPorts).size(), 1);
+    }
+
+    @Test
+    public void testKeepSource() throws Exception {
+        HTTPHelper helper = new HTTPHelper();
+        assertNull(helper.getWebpageForScraping(url + "/page?x").getDocument().getSource());
+        helper.setKeepSource(true);
+        String page = new String(helper.getWebpageContent(url + "/page?x"), StandardCharsets.UTF_8);
+        assertEquals(helper.getWebpageForScraping(url + "/page?x").getDocument().getSource(), page);
+        assertEquals(helper.getWebpageForScrapingAsync(url + "/page?x").get().getDocument().getSource(), page);
+        assertEquals(helper.getWebpageForScrapingAsync(url + "/page?x", null, 10).get().getDocument().getSource(),
+                page.substring(0, 10));
+    }
+
+    @Test
+    public void testCompression() throws Exception {
+        HTTPHelper helper = new HTTPHelper();
+        for (String encoding : new String[] { "gzip", "zlib", "raw" }) {
+            String page = url + "/compressed?" + encoding;
+            assertEquals(texts(helper.getWebpageForScrapingAsync(page).get()).toString(), "[" + encoding + "]");
+            assertEquals(new String(helper.getWebpageContentAsync(page).get(), StandardCharsets.UTF_8),
+                    "<p>" + encoding + "</p>");
+            assertEquals(texts(helper.getWebpageForScraping(page)).toString(), "[" + encoding + "]");
+            assertEquals(new String(helper.getWebpageContent(page), StandardCharsets.UTF_8), "<p>" + encoding + "</p>");
+        }
+    }
+
+    @Test
+    public void testEarlyAbort() throws Exception {
+        HTTPHelper helper = new HTTPHelper();
+        Scraper scraper = helper.getWebpageForScrapingAsync(url + "/big",
+                StopCondition.afterToken(new HTMLTag("/title"), new ScrapeOptions()), -1).get();
+        assertEquals(scraper.size(), 5);
+        assertEquals(scraper.getNextContent("title"), "Big");
+        // the server couldn't send the rest
+        assertTrue(bigSent.get(10, java.util.concurrent.TimeUnit.SECONDS) < 10 << 20);
+
+        scraper = helper.getWebpageForScrapingAsync(url + "/big", null, 100).get();
+        assertTrue(scraper.size() > 10);
+        // 12 bytes and 4 tokens per item
+        assertTrue(scraper.size() < 40);
+
+        Vector<AbstractHTMLToken> pattern = new Vector<AbstractHTMLToken>();
+        pattern.add(new HTMLTag("p"));
+        pattern.add(new TextToken("item"));
+        scraper = helper.getWebpageForScrapingAsync(url + "/big",
+                StopCondition.any(StopCondition.afterMatch(pattern, new ScrapeOptions()),
+                        StopCondition.afterTokens(1000)), -1).get();
+        assertEquals(scraper.size(), 9);
+        scraper = helper.getWebpageForScrapingAsync(url + "/big", StopCondition.afterTokens(3), -1).get();
+        assertEquals(scraper.size(), 3);
+
+        // cut off compressed content
+        scraper = helper.getWebpageForScrapingAsync(url + "/compressed?gzip", null, 25).get();
+        assertTrue(scraper.size() < 3);
+        assertEquals(texts(helper.getWebpageForScrapingAsync(url + "/compressed?gzip", null, -1).get()).toString(),
+                "[gzip]");
+    }
+}
@@ -0,0 +1,85 @@
+package de.dbsystems.simplescrape;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestLinkExtractor {
+    private final static String BASE = "http://www.example.com/a/b/c.html?x=1#top";
+
+    @Test
+    public void testResolve() {
+        assertEquals(LinkExtractor.resolve(BASE, "d.html"), "http://www.example.com/a/b/d.html");
+        assertEquals(LinkExtractor.resolve(BASE, "../d"), "http://www.example.com/a/d");
+        assertEquals(LinkExtractor.resolve(BASE, "../../../d"), "http://www.example.com/d");
+        assertEquals(LinkExtractor.resolve(BASE, "./"), "http://www.example.com/a/b/");
+        assertEquals(LinkExtractor.resolve(BASE, ".."), "http://www.example.com/a/");
+        assertEquals(LinkExtractor.resolve(BASE, "/d?y=2"), "http://www.example.com/d?y=2");
+        assertEquals(LinkExtractor.resolve(BASE, "//other.org"), "http://other.org/");
+        assertEquals(LinkExtractor.resolve(BASE, "?y=2"), "http://www.example.com/a/b/c.html?y=2");
+        assertEquals(LinkExtractor.resolve(BASE, "#more"), "http://www.example.com/a/b/c.html?x=1");
+        assertEquals(LinkExtractor.resolve(BASE, ""), "http://www.example.com/a/b/c.html?x=1");
+        assertEquals(LinkExtractor.resolve(BASE, " my page.html\n"), "http://www.example.com/a/b/my%20page.html");
+        assertEquals(LinkExtractor.resolve("http://host", "x"), "http://host/x");
+        assertEquals(LinkExtractor.resolve(null, "x"), null);
+        assertEquals(LinkExtractor.resolve(null, "mailto:Info@Example.com"), "mailto:Info@Example.com");
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals(LinkExtractor.normalize("HTTP://User@WWW.Example.COM:80"), "http://User@www.example.com/");
+        assertEquals(LinkExtractor.normalize("https://h:443/a/./b/../C#x"), "https://h/a/C");
+        assertEquals(LinkExtractor.normalize("https://h:8443/"), "https://h:8443/");
+        assertEquals(LinkExtractor.normalize("http://[::1]/"), "http://[::1]/");
+        assertEquals(LinkExtractor.normalize("JavaScript:void(0)"), "javascript:void(0)");
+        assertNull(LinkExtractor.normalize("relative/path"));
+    }
+
+    @Test
+    public void testExtract() throws Exception {
+        String page = "<html><head><link rel=stylesheet href=\"/s.css\">"
+                + "<BASE HREF=\"/docs/\"><script src='x.js'></script></head>"
+                + "<body><a name=top>Anchor</a><A class=\"nav\" HREF=\"../index.html\">Home</A>"
+                + "<img alt=\"\" src=\"img/p.png\"><form action=\"\"></form>"
+                + "<a href=\"http://Other.org:80/\">other</a></body></html>";
+        ParsedDocument document = ParsedDocument.parse(new Tokenizer(new StringReader(page)));
+        List<LinkExtractor.Link> links = LinkExtractor.extract(document, "http://example.com/start.html");
+        assertEquals(links.toString(), Arrays.asList(
+                "http://example.com/s.css",
+                "http://example.com/docs/x.js",
+                "http://example.com/index.html",
+                "http://example.com/docs/img/p.png",
+                "http://example.com/docs/",
+                "http://other.org/").toString());
+        assertEquals(links.get(2).getValue(), "../index.html");
+        assertEquals(links.get(2).getTag().getName(), "A");
+
+        // the same without the index
+        Scraper scraper = document.newScraper();
+        scraper.insert(0, Arrays.<AbstractHTMLToken>asList(new HTMLTag("a href=first")));
+        links = scraper.extractLinks("http://example.com/start.html");
+        assertEquals(links.size(), 7);
+        assertEquals(links.get(0).getURL(), "http://example.com/docs/first");
+        assertEquals(links.get(3).getPosition(), 12);
+    }
+}
@@ -0,0 +1,178 @@
+package de.dbsystems.simplescrape;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestMetrics {
+    private final static String PAGE = "<html><p>one</p><p>two</p></html>";
+
+    private HttpServer server;
+    private String url;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/page", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] bytes = PAGE.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(bytes);
+                out.close();
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort();
+        Metrics.reset();
+        Metrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+        server.stop(0);
+    }
+
+    @Test
+    public void testParseAndSearch() throws Exception {
+        Scraper scraper = new Scraper(new ByteArrayInputStream(PAGE.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(scraper.indexOf(0, new HTMLTag("p"), new ScrapeOptions()), 1);
+        Vector<AbstractHTMLToken> searchElements = new Vector<AbstractHTMLToken>();
+        searchElements.add(new HTMLTag("p"));
+        searchElements.add(new TextToken("one"));
+        assertEquals(scraper.searchTokens(0, searchElements, new ScrapeOptions()), 3);
+
+        assertEquals(Metrics.histogram("parse.time").getCount(), 1);
+        assertEquals(Metrics.histogram("scraper.searchTime").getCount(), 2);
+        assertEquals(Metrics.histogram("tokenizer.tokensPerDocument").getMax(), scraper.size());
+        assertEquals(Metrics.counter("tokenizer.characters").get(), PAGE.length());
+
+        // nothing is recorded while the metrics are off
+        Metrics.setEnabled(false);
+        scraper.indexOf(0, new HTMLTag("p"), new ScrapeOptions());
+        assertEquals(Metrics.histogram("scraper.searchTime").getCount(), 2);
+    }
+
+    @Test
+    public void testFetch() throws Exception {
+        HTTPHelper helper = new HTTPHelper();
+        assertNotNull(helper.getWebpageForScraping(url + "/page"));
+        helper.getWebpageContentAsync(url + "/page").get();
+        helper.getWebpageForScrapingAsync(url + "/page").get();
+        try {
+            helper.getWebpageContent(url + "/missing");
+            fail();
+        } catch (HTTPStatusException e) {
+            // expected
+        }
+
+        assertEquals(Metrics.histogram("http.fetchTime").getCount(), 4);
+        assertEquals(Metrics.counter("http.failures").get(), 1);
+        assertEquals(Metrics.counter("http.receivedBytes").get(), 3 * PAGE.length());
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        Metrics.registerMBean();
+        Metrics.registerMBean();
+        new Scraper(new ByteArrayInputStream(PAGE.getBytes(StandardCharsets.UTF_8)));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.MBEAN_NAME);
+        assertEquals(server.getAttribute(name, "parse.time.count"), Long.valueOf(1));
+        assertEquals(server.getAttribute(name, "tokenizer.characters"), Long.valueOf(PAGE.length()));
+        try {
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            fail();
+        } catch (ReflectionException e) {
+            assertTrue(e.getTargetException() instanceof NoSuchMethodException);
+        }
+    }
+
+    @Test
+    public void testListener() {
+        final AtomicLong counted = new AtomicLong();
+        final AtomicLong recorded = new AtomicLong();
+        Metrics.Listener listener = new Metrics.Listener() {
+            public void counted(Metrics.Counter counter, long amount) {
+                if (counter.getName().equals("test.counter")) {
+                    counted.addAndGet(amount);
+                }
+            }
+
+            public void recorded(Metrics.Histogram histogram, long value) {
+                if (histogram.getName().equals("test.histogram")) {
+                    recorded.addAndGet(value);
+                }
+            }
+        };
+        Metrics.addListener(listener);
+        try {
+            Metrics.counter("test.counter").add(5);
+            Metrics.counter("test.counter").increment();
+            Metrics.histogram("test.histogram").record(7);
+            assertEquals(counted.get(), 6);
+            assertEquals(recorded.get(), 7);
+        } finally {
+            Metrics.removeListener(listener);
+        }
+        Metrics.counter("test.counter").increment();
+        assertEquals(counted.get(), 6);
+        assertEquals(Metrics.counter("test.counter").get(), 7);
+    }
+
+    @Test
+    public void testHistogram() {
+        Metrics.Histogram histogram = Metrics.histogram("test.histogram");
+        assertEquals(histogram.getPercentile(50), 0);
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(histogram.getCount(), 100);
+        assertEquals(histogram.getSum(), 5050);
+        assertEquals(histogram.getMax(), 100);
+        assertEquals(histogram.getMean(), 50.5, 0);
+        // exact within a factor of two
+        long median = histogram.getPercentile(50);
+        assertTrue(median >= 50 && median < 100);
+        assertEquals(histogram.getPercentile(100), 100);
+        assertSame(Metrics.getHistograms().get("test.histogram"), histogram);
+    }
+}
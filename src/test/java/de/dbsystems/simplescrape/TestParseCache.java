@@ -0,0 +1,118 @@
+package de.dbsystems.simplescrape;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestParseCache {
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        ParseCache cache = new ParseCache(1000);
+        Scraper first = cache.getScraper("<p>same</p>".getBytes());
+        Scraper second = cache.getScraper(new String("<p>same</p>").getBytes());
+        Scraper third = cache.getScraper("<p>other</p>".getBytes());
+        assertSame(first.getDocument(), second.getDocument());
+        assertNotSame(first.getDocument(), third.getDocument());
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 2);
+        assertEquals(cache.size(), 2);
+        // the contents plus three tokens each
+        assertEquals(cache.getWeight(), 23 + 6 * ParseCache.TOKEN_WEIGHT);
+
+        first.advance(1);
+        assertEquals(second.getPosition(), 0);
+        assertEquals(second.getNextText(false).getText(), "same");
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        // room for one document of 17 bytes and three tokens
+        ParseCache cache = new ParseCache(25 + 3 * ParseCache.TOKEN_WEIGHT);
+        byte[] a = "<p>aaaaaaaaaa</p>".getBytes();
+        byte[] b = "<p>bbbbbbbbbb</p>".getBytes();
+        ParsedDocument documentA = cache.getDocument(a);
+        cache.getDocument(b);
+        assertEquals(cache.getEvictionCount(), 1);
+        assertEquals(cache.size(), 1);
+        assertEquals(cache.getWeight(), 17 + 3 * ParseCache.TOKEN_WEIGHT);
+
+        // a has been dropped and is parsed again
+        assertNotSame(cache.getDocument(a), documentA);
+        assertEquals(cache.getMissCount(), 3);
+
+        cache.clear();
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getWeight(), 0);
+    }
+
+    @Test
+    public void testConcurrentRequestsParseOnce() throws Exception {
+        final ParseCache cache = new ParseCache(1 << 20);
+        StringBuilder page = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            page.append("<tr><td>").append(i).append("</td></tr>");
+        }
+        final byte[] content = page.toString().getBytes();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<ParsedDocument>> results = new ArrayList<Future<ParsedDocument>>();
+        for (int i = 0; i < 32; i++) {
+            results.add(executor.submit(new Callable<ParsedDocument>() {
+                public ParsedDocument call() throws Exception {
+                    return cache.getDocument(content.clone());
+                }
+            }));
+        }
+        ParsedDocument document = results.get(0).get();
+        for (Future<ParsedDocument> result : results) {
+            assertSame(result.get(), document);
+        }
+        executor.shutdown();
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(cache.getHitCount(), 31);
+    }
+
+    @Test
+    public void testHashCollision() throws Exception {
+        ParseCache cache = new ParseCache(1 << 20) {
+            long hash(byte[] content) {
+                return 42;
+            }
+        };
+        ParsedDocument first = cache.getDocument("<p>first</p>".getBytes());
+        // same length and hash, but another page
+        ParsedDocument forged = cache.getDocument("<b>fakes</b>".getBytes());
+        assertNotSame(forged, first);
+        assertEquals(forged.get(0).toString(), "<b>");
+        assertEquals(forged.get(1).toString(), "fakes");
+
+        // the cached document is kept
+        assertSame(cache.getDocument("<p>first</p>".getBytes()), first);
+        assertEquals(cache.size(), 1);
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 2);
+    }
+}
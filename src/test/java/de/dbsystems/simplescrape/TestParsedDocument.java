@@ -0,0 +1,187 @@
+package de.dbsystems.simplescrape;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestParsedDocument {
+    private ParsedDocument document = null;
+
+    @Before
+    public void setUp() throws Exception {
+        InputStream responseStream = getClass().getClassLoader().getResourceAsStream(TestScraper.INPUT_FILE);
+        document = ParsedDocument.parse(responseStream, true);
+        responseStream.close();
+    }
+
+    @Test
+    public void testIndependentScrapers() {
+        Scraper first = document.newScraper();
+        Scraper second = document.newScraper();
+        ScrapeOptions options = new ScrapeOptions();
+        int position = first.indexOf(new HTMLTag("form"), options);
+        assertTrue(position > 0);
+        assertEquals(first.getPosition(), position);
+        assertEquals(second.getPosition(), 0);
+        assertEquals(first.size(), document.size());
+        assertSame(first.get(position), second.get(position));
+    }
+
+    @Test
+    public void testRemoveDoesNotChangeDocument() {
+        Scraper first = document.newScraper();
+        Scraper second = document.newScraper();
+        AbstractHTMLToken removed = first.get(0);
+        first.remove();
+        assertEquals(first.size(), document.size() - 1);
+        assertEquals(second.size(), document.size());
+        assertSame(second.get(0), removed);
+        assertSame(first.get(0), document.get(1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testTokensAreReadOnly() {
+        document.getTokens().remove(0);
+    }
+
+    @Test
+    public void testConcurrentSearches() throws Exception {
+        final Vector<AbstractHTMLToken> searchElements = new Vector<AbstractHTMLToken>();
+        searchElements.add(new HTMLTag("label for=\"time\""));
+        searchElements.add(new TextToken("uhrzeit"));
+        final int expected = document.newScraper().searchTokens(searchElements, new ScrapeOptions());
+        assertTrue(expected > 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < 200; i++) {
+            results.add(executor.submit(new Callable<Integer>() {
+                public Integer call() {
+                    Scraper scraper = document.newScraper();
+                    scraper.indexOf(new HTMLTag("meta name=\"content-language\""), new ScrapeOptions());
+                    return scraper.searchTokens(searchElements, new ScrapeOptions());
+                }
+            }));
+        }
+        for (Future<Integer> result : results) {
+            assertEquals(result.get().intValue(), expected);
+        }
+        executor.shutdown();
+    }
+
+    private void assertSameAsParsed(ParsedDocument updated, String newSource) throws Exception {
+        ParsedDocument parsed = ParsedDocument.parse(new Tokenizer(new StringReader(newSource)), true);
+        assertEquals(updated.getSource(), newSource);
+        assertEquals(updated.size(), parsed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            assertEquals(updated.get(i).getClass(), parsed.get(i).getClass());
+            assertEquals(updated.get(i).toString(), parsed.get(i).toString());
+            assertEquals(updated.getOffset(i), parsed.getOffset(i));
+        }
+        assertEquals(updated.getOffset(updated.size()), newSource.length());
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+        String source = document.getSource();
+        String newSource = source.replace("Uhrzeit", "Abfahrtszeit");
+        ParsedDocument updated = document.update(newSource);
+        assertSameAsParsed(updated, newSource);
+        // tokens before and after the change are taken over
+        assertSame(updated.get(0), document.get(0));
+        assertSame(updated.get(updated.size() - 1), document.get(document.size() - 1));
+
+        assertSame(document.update(source), document);
+
+        Scraper scraper = document.newScraper();
+        scraper.update(newSource.getBytes());
+        assertNotNull(scraper.getNextContent("label"));
+    }
+
+    @Test
+    public void testScraperUpdate() throws Exception {
+        String source = document.getSource();
+        String newSource = source.replace("Uhrzeit", "Abfahrtszeit");
+        byte[] content = source.getBytes();
+
+        // without the source, the first update parses completely, the next ones don't
+        Scraper scraper = new Scraper(new ByteArrayInputStream(content));
+        AbstractHTMLToken first = scraper.get(0);
+        scraper.update(newSource.getBytes());
+        assertNotSame(scraper.get(0), first);
+        first = scraper.get(0);
+        scraper.update(source.getBytes());
+        assertSame(scraper.get(0), first);
+
+        // a partial lazy parse with its source is taken over from
+        scraper = new Scraper(new ByteArrayInputStream(content), true, true);
+        first = scraper.get(0);
+        assertNotNull(scraper.get(20));
+        scraper.update(newSource.getBytes());
+        assertSame(scraper.get(0), first);
+        assertSameAsParsed(scraper.getDocument(), newSource);
+    }
+
+    @Test
+    public void testSourceIsOptional() throws Exception {
+        String source = document.getSource();
+        ParsedDocument parsed = ParsedDocument.parse(new Tokenizer(new StringReader(source)));
+        assertNull(parsed.getSource());
+        assertEquals(parsed.getOffset(0), -1);
+        assertEquals(parsed.size(), document.size());
+
+        // the first update parses completely and keeps the source from then on
+        String newSource = source.replace("Uhrzeit", "Abfahrtszeit");
+        assertSameAsParsed(parsed.update(newSource), newSource);
+    }
+
+    @Test
+    public void testUpdateRandomEdits() throws Exception {
+        String alphabet = "<>!-/ a=\"x\n";
+        Random random = new Random(4711);
+        String source = document.getSource();
+        for (int i = 0; i < 500; i++) {
+            StringBuilder edited = new StringBuilder(source);
+            int start = random.nextInt(source.length());
+            int end = Math.min(source.length(), start + random.nextInt(8));
+            StringBuilder insert = new StringBuilder();
+            for (int j = random.nextInt(6); j > 0; j--) {
+                insert.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            edited.replace(start, end, insert.toString());
+            assertSameAsParsed(document.update(edited.toString()), edited.toString());
+        }
+        assertSameAsParsed(document.update(""), "");
+        assertSameAsParsed(document.update(source + "<p>more"), source + "<p>more");
+        assertSameAsParsed(new ParsedDocument(new ArrayList<AbstractHTMLToken>()).update(source), source);
+    }
+}
@@ -0,0 +1,166 @@
+package de.dbsystems.simplescrape;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestResponseCache {
+    private final static String LAST_MODIFIED = "Mon, 19 Oct 2026 08:00:00 GMT";
+
+    private HttpServer server;
+    private String url;
+    private File directory;
+
+    /** The number of responses with a body */
+    private final AtomicInteger transfers = new AtomicInteger();
+
+    /** The version of the pages; changing it changes their content */
+    private volatile int version = 1;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("simplescrape").toFile();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/etag", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String etag = "\"v" + version + "\"";
+                exchange.getResponseHeaders().set("ETag", etag);
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                respond(exchange, "<p>etag " + version + "</p>");
+            }
+        });
+        server.createContext("/modified", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+                if (LAST_MODIFIED.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                respond(exchange, "<p>modified</p>");
+            }
+        });
+        server.createContext("/plain", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, "<p>plain</p>");
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        File[] files = directory.listFiles();
+        for (File file : files) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        transfers.incrementAndGet();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    private static String text(Scraper scraper) {
+        return scraper.get(1).toString();
+    }
+
+    @Test
+    public void testRevalidation() throws Exception {
+        HTTPHelper helper = new HTTPHelper();
+        ResponseCache cache = new ResponseCache(directory, 1 << 20, true);
+        helper.setResponseCache(cache);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(text(helper.getWebpageForScraping(url + "/etag")), "etag 1");
+            assertEquals(text(helper.getWebpageForScrapingAsync(url + "/modified").get()), "modified");
+            assertEquals(new String(helper.getWebpageContentAsync(url + "/plain").get(), StandardCharsets.UTF_8),
+                    "<p>plain</p>");
+        }
+        // the pages with validators are transferred once, the other one every time
+        assertEquals(transfers.get(), 5);
+        assertEquals(cache.size(), 2);
+        assertEquals(cache.getHitCount(), 4);
+        assertEquals(cache.getMissCount(), 5);
+
+        version = 2;
+        assertEquals(new String(helper.getWebpageContent(url + "/etag"), StandardCharsets.UTF_8), "<p>etag 2</p>");
+        assertEquals(text(helper.getWebpageForScrapingAsync(url + "/etag").get()), "etag 2");
+        assertEquals(transfers.get(), 6);
+
+        // the cache is kept on disk
+        HTTPHelper other = new HTTPHelper();
+        other.setResponseCache(new ResponseCache(directory, 1 << 20, false));
+        assertEquals(other.getResponseCache().size(), 2);
+        assertEquals(text(other.getWebpageForScraping(url + "/modified")), "modified");
+        assertEquals(new String(other.getWebpageContentAsync(url + "/etag").get(), StandardCharsets.UTF_8),
+                "<p>etag 2</p>");
+        assertEquals(transfers.get(), 6);
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        HTTPHelper helper = new HTTPHelper();
+        helper.setResponseCache(new ResponseCache(directory, 1 << 20, false));
+        helper.getWebpageContent(url + "/etag");
+        long size = helper.getResponseCache().getSize();
+        assertTrue(size > 0);
+
+        // room for one page only
+        ResponseCache cache = new ResponseCache(directory, size * 3 / 2, false);
+        helper.setResponseCache(cache);
+        assertEquals(cache.size(), 1);
+        helper.getWebpageContent(url + "/modified");
+        assertEquals(cache.size(), 1);
+        assertEquals(cache.getEvictionCount(), 1);
+        helper.getWebpageContent(url + "/modified");
+        helper.getWebpageContent(url + "/etag");
+        assertEquals(transfers.get(), 3);
+
+        cache.clear();
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getSize(), 0);
+        assertEquals(java.util.Arrays.toString(directory.list()), "[]");
+    }
+}
@@ -0,0 +1,230 @@
+package de.dbsystems.simplescrape;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestScrapePipeline {
+
+    private static List<Integer> numbers(int count) {
+        List<Integer> numbers = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) {
+            numbers.add(i);
+        }
+        return numbers;
+    }
+
+    @Test
+    public void testPages() throws Exception {
+        List<ScrapeSource> sources = new ArrayList<ScrapeSource>();
+        for (int i = 0; i < 30; i++) {
+            String page = "<html><head><title>page " + i + "</title></head></html>";
+            sources.add(ScrapeSource.forStream(new ByteArrayInputStream(page.getBytes())));
+        }
+        sources.add(new ScrapeSource() {
+            public byte[] read() throws IOException {
+                throw new IOException("unreachable");
+            }
+        });
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+
+        ScrapePipeline<ScrapeSource, String> pipeline = ScrapePipeline.<ScrapeSource>create()
+                .then("fetch", 8, ScrapePipeline.fetch())
+                .then("tokenize", 2, ScrapePipeline.tokenize())
+                .then("extract", 2, new ScrapePipeline.Step<ScrapePipeline.Page, String>() {
+                    public String apply(ScrapePipeline.Page page) {
+                        assertNull(page.getContent());
+                        return page.getScraper().getNextContent("title");
+                    }
+                })
+                .filter("odd", 1, new java.util.function.Predicate<String>() {
+                    public boolean test(String title) {
+                        return Integer.parseInt(title.substring(5)) % 2 == 1;
+                    }
+                });
+        pipeline.setErrorListener(new ScrapePipeline.ErrorListener() {
+            public void failed(String stage, Object item, Throwable error) {
+                errors.add(stage + ": " + error.getMessage());
+            }
+        });
+        Set<String> titles = new HashSet<String>(pipeline.runAndWait(sources));
+
+        assertEquals(titles.size(), 15);
+        assertTrue(titles.contains("page 29"));
+        assertFalse(titles.contains("page 28"));
+        assertEquals(errors.toString(), "[fetch: unreachable]");
+
+        List<ScrapePipeline.Stage<?, ?>> stages = pipeline.getStages();
+        assertEquals(stages.size(), 4);
+        assertEquals(stages.get(0).getReceivedCount(), 31);
+        assertEquals(stages.get(0).getEmittedCount(), 30);
+        assertEquals(stages.get(0).getFailedCount(), 1);
+        assertEquals(stages.get(2).getEmittedCount(), 30);
+        assertEquals(stages.get(3).getName(), "odd");
+        assertEquals(stages.get(3).getDroppedCount(), 15);
+        assertEquals(stages.get(3).getEmittedCount(), 15);
+        assertTrue(stages.get(1).getAverageLatency() > 0);
+        assertTrue(stages.get(1).getMaxLatency() >= stages.get(1).getAverageLatency());
+    }
+
+    @Test
+    public void testParallelism() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        ScrapePipeline<Integer, Integer> pipeline = ScrapePipeline.<Integer>create()
+                .then("slow", 3, new ScrapePipeline.Step<Integer, Integer>() {
+                    public Integer apply(Integer item) throws InterruptedException {
+                        int now = running.incrementAndGet();
+                        synchronized (maxRunning) {
+                            maxRunning.set(Math.max(maxRunning.get(), now));
+                        }
+                        Thread.sleep(5);
+                        running.decrementAndGet();
+                        return item;
+                    }
+                });
+        List<Integer> results = pipeline.runAndWait(numbers(40));
+        Collections.sort(results);
+        assertEquals(results, numbers(40));
+        assertTrue(maxRunning.get() <= 3);
+        assertTrue(maxRunning.get() > 1);
+        assertTrue(pipeline.getStages().get(0).getThroughput() > 0);
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        final AtomicInteger taken = new AtomicInteger();
+        Iterable<Integer> items = new Iterable<Integer>() {
+            public Iterator<Integer> iterator() {
+                return new Iterator<Integer>() {
+                    public boolean hasNext() {
+                        return taken.get() < 1000;
+                    }
+
+                    public Integer next() {
+                        return taken.incrementAndGet();
+                    }
+                };
+            }
+        };
+        ScrapePipeline<Integer, Integer> pipeline = ScrapePipeline.<Integer>create(2)
+                .then("first", 2, new ScrapePipeline.Step<Integer, Integer>() {
+                    public Integer apply(Integer item) {
+                        return item;
+                    }
+                })
+                .then("second", 2, new ScrapePipeline.Step<Integer, Integer>() {
+                    public Integer apply(Integer item) {
+                        return item;
+                    }
+                });
+
+        final CountDownLatch received = new CountDownLatch(5);
+        final CountDownLatch completed = new CountDownLatch(1);
+        final Flow.Subscription[] subscription = new Flow.Subscription[1];
+        pipeline.run(items, new Flow.Subscriber<Integer>() {
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+                s.request(5);
+            }
+
+            public void onNext(Integer item) {
+                received.countDown();
+            }
+
+            public void onError(Throwable error) {
+            }
+
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        // only the buffers and the busy threads hold items, the source is not drained
+        assertTrue(taken.get() < 50);
+
+        subscription[0].request(Long.MAX_VALUE);
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(taken.get(), 1000);
+        assertEquals(pipeline.getStages().get(1).getEmittedCount(), 1000);
+    }
+
+    @Test
+    public void testDeliveryThreadsAreShared() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            ScrapePipeline<Integer, Integer> pipeline = ScrapePipeline.<Integer>create()
+                    .then("copy", 1, new ScrapePipeline.Step<Integer, Integer>() {
+                        public Integer apply(Integer item) {
+                            return item;
+                        }
+                    });
+            assertEquals(pipeline.runAndWait(numbers(10)).size(), 10);
+        }
+        // pipelines that are done leave no idle threads of their own behind
+        int threads = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("scrape-pipeline-") && !thread.getName().contains("feeder")) {
+                threads++;
+            }
+        }
+        assertTrue(threads < 20);
+    }
+
+    @Test
+    public void testSourceFailure() throws Exception {
+        ScrapePipeline<Integer, Integer> pipeline = ScrapePipeline.<Integer>create()
+                .then("copy", 2, new ScrapePipeline.Step<Integer, Integer>() {
+                    public Integer apply(Integer item) {
+                        return item;
+                    }
+                });
+        Iterable<Integer> items = new Iterable<Integer>() {
+            public Iterator<Integer> iterator() {
+                throw new IllegalStateException("no items");
+            }
+        };
+        try {
+            pipeline.runAndWait(items);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(e.getCause().getMessage(), "no items");
+        }
+        try {
+            pipeline.runAndWait(numbers(1));
+            fail();
+        } catch (IllegalStateException e) {
+            // a pipeline runs once
+        }
+    }
+}
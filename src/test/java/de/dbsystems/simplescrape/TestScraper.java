@@ -1,10 +1,12 @@
 package de.dbsystems.simplescrape;
 
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.FileInputStream;
 import java.net.URISyntaxException;
+import java.util.Arrays;
 import java.util.Vector;
 
 import static org.junit.Assert.*;
@@ -145,6 +147,92 @@ public class TestScraper {
 
     }
 
+    @Test
+    public void testSearchTokensStrict() throws Exception {
+        options.elementOrder = ScrapeOptions.ELEMENT_ORDER_STRICT;
+        Vector<AbstractHTMLToken> searchElements = new Vector<AbstractHTMLToken>();
+        searchElements.add(new HTMLTag("LABEL for=\"time\""));
+        searchElements.add(new TextToken(" uhrzeit "));
+        searchElements.add(new HTMLTag("/label"));
+        int position = scraper.searchTokens(searchElements, options);
+        assertTrue(position >= 0);
+        assertEquals(((TextToken)scraper.get(position - 2)).getText(), "Uhrzeit");
+        assertEquals(scraper.getPosition(), position);
+
+        // case and surrounding whitespace matter, if requested
+        options.ignoreCase = false;
+        assertTrue(scraper.searchTokens(0, searchElements, options) < 0);
+        options.ignoreCase = true;
+        options.trimText = false;
+        assertTrue(scraper.searchTokens(0, searchElements, options) < 0);
+        options.trimText = true;
+
+        // the tag name fits, but the attribute doesn't
+        searchElements.set(0, new HTMLTag("label for=\"date\""));
+        assertTrue(scraper.searchTokens(0, searchElements, options) < 0);
+
+        // overlapping candidates
+        Scraper small = new ParsedDocument(Arrays.<AbstractHTMLToken>asList(
+                new TextToken("a"), new TextToken("a"), new TextToken("a"), new TextToken("b"))).newScraper();
+        searchElements.clear();
+        searchElements.add(new TextToken("a"));
+        searchElements.add(new TextToken("a"));
+        searchElements.add(new TextToken("b"));
+        assertEquals(small.searchTokens(searchElements, options), 4);
+    }
+
+    @Test
+    public void testLazyParsing() throws Exception {
+        StringBuilder page = new StringBuilder("<html><body><h1>Verbindungen</h1><table>");
+        for (int i = 0; i < 5000; i++) {
+            page.append("<tr><td>").append(i).append("</td></tr>\n");
+        }
+        page.append("</table></body></html>");
+        final byte[] content = page.toString().getBytes();
+        final int[] consumed = new int[1];
+        final boolean[] closed = new boolean[1];
+        InputStream input = new ByteArrayInputStream(content) {
+            public synchronized int read(byte[] b, int off, int len) {
+                int count = super.read(b, off, len);
+                consumed[0] += Math.max(count, 0);
+                return count;
+            }
+
+            public void close() {
+                closed[0] = true;
+            }
+        };
+
+        Scraper lazy = new Scraper(input, true);
+        assertEquals(lazy.getNextContent("h1"), "Verbindungen");
+        assertTrue(lazy.hasNext());
+        assertEquals(lazy.get(9).toString(), "</td>");
+        assertTrue(consumed[0] < content.length / 2);
+
+        Scraper eager = new Scraper(new ByteArrayInputStream(content));
+        Vector<AbstractHTMLToken> searchElements = new Vector<AbstractHTMLToken>();
+        searchElements.add(new TextToken("4711"));
+        searchElements.add(new HTMLTag("/td"));
+        assertEquals(lazy.searchTokens(searchElements, options), eager.searchTokens(searchElements, options));
+        assertEquals(lazy.size(), eager.size());
+        assertEquals(consumed[0], content.length);
+        assertNull(lazy.getDocument().getSource());
+        assertNull(lazy.get(lazy.size()));
+
+        // closing early keeps what has been parsed so far
+        closed[0] = false;
+        lazy = new Scraper(new ByteArrayInputStream(content) {
+            public void close() {
+                closed[0] = true;
+            }
+        }, true);
+        lazy.indexOf(new HTMLTag("table"), options);
+        lazy.close();
+        assertTrue(closed[0]);
+        assertTrue(lazy.size() < eager.size());
+        assertEquals(lazy.get(lazy.getPosition()).toString(), "<table>");
+    }
+
     /** Hier nur kurzer Test, ob gezieltes Positionssetzen funktioniert.
      * Sonstige Tests werden in testSearchTokenChainVectorOfElementScrapeOptions
      * gemacht.
@@ -0,0 +1,108 @@
+package de.dbsystems.simplescrape;
+
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestSimpleXPath {
+    private Scraper scraper = null;
+
+    @Before
+    public void setUp() throws Exception {
+        InputStream responseStream = getClass().getClassLoader().getResourceAsStream(TestScraper.INPUT_FILE);
+        scraper = new Scraper(responseStream);
+        responseStream.close();
+    }
+
+    @Test
+    public void testChildAxis() {
+        List<AbstractHTMLToken> result = SimpleXPath.compile("/html/head/title/text()").select(scraper);
+        assertEquals(result.size(), 1);
+        assertEquals(((TextToken)result.get(0)).getText(), "Testpage");
+
+        result = SimpleXPath.compile("/html/head/meta").select(scraper);
+        assertEquals(result.size(), 2);
+        result = SimpleXPath.compile("/html/title").select(scraper);
+        assertEquals(result.size(), 0);
+    }
+
+    @Test
+    public void testDescendantAxis() {
+        List<AbstractHTMLToken> result = SimpleXPath.compile("//form//label/text()").select(scraper);
+        assertEquals(result.size(), 1);
+        assertEquals(((TextToken)result.get(0)).getText(), "Uhrzeit");
+
+        result = SimpleXPath.compile("//DIV[@id='header']//td").select(scraper);
+        assertEquals(result.size(), 1);
+        assertEquals(result.get(0).toString(), "<td rowspan=\"2\">");
+    }
+
+    @Test
+    public void testPredicates() {
+        List<AbstractHTMLToken> result = SimpleXPath.compile("//meta[@name]").select(scraper);
+        assertEquals(result.size(), 1);
+        result = SimpleXPath.compile("//meta[@name=\"content-language\"][@content='de']").select(scraper);
+        assertEquals(result.size(), 1);
+        result = SimpleXPath.compile("//meta[@name='content']").select(scraper);
+        assertEquals(result.size(), 0);
+        result = SimpleXPath.compile("/html/head/meta[2]").select(scraper);
+        assertEquals(result.size(), 1);
+        assertEquals(((HTMLTag)result.get(0)).getAttributes().get("name"), "content-language");
+        result = SimpleXPath.compile("/html/body/*[@class][1]").select(scraper);
+        assertEquals(result.size(), 1);
+        assertEquals(((HTMLTag)result.get(0)).getAttributes().get("class"), "hddSkipLink");
+    }
+
+    @Test
+    public void testTagSoup() throws Exception {
+        String html = "<ul><li>one<li>two<br><li>three</b></ul><p>x<p>y";
+        assertEquals(SimpleXPath.compile("/ul/li").select(new Tokenizer(html)).size(), 3);
+        assertEquals(SimpleXPath.compile("/ul/li[3]/text()").select(new Tokenizer(html)).get(0).toString(), "three");
+        assertEquals(SimpleXPath.compile("/p").select(new Tokenizer(html)).size(), 2);
+        assertEquals(SimpleXPath.compile("//li/br").select(new Tokenizer(html)).size(), 1);
+    }
+
+    @Test
+    public void testSelectPositionsAndFirst() throws Exception {
+        List<Integer> positions = SimpleXPath.compile("//label").selectPositions(scraper);
+        assertEquals(positions.size(), 1);
+        assertEquals(((TextToken)scraper.get(positions.get(0) + 1)).getText(), "Uhrzeit");
+        assertEquals(scraper.getPosition(), 0);
+
+        AbstractHTMLToken first = SimpleXPath.compile("//b/text()").selectFirst(new Tokenizer("<a>1</a><b>2</b><b>3</b>"));
+        assertEquals(first.toString(), "2");
+    }
+
+    @Test
+    public void testCompileErrors() {
+        String[] invalid = { "", "//", "/a[", "/a[last()]", "/a/text()/b", "/a[@b=c]", "/a[0]" };
+        for (String expression : invalid) {
+            try {
+                SimpleXPath.compile(expression);
+                fail("accepted: " + expression);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package de.dbsystems.simplescrape;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestSiteTemplate {
+    private final static String HEADER = "<html><body><div id=\"header\"><h1>Fahrplan</h1>"
+            + "<ul><li><a href=\"/\">Start</a></li><li><a href=\"/news\">News</a></li></ul></div>";
+
+    private final static String FOOTER = "<div id=\"footer\"><p>Impressum</p><p>Kontakt</p>"
+            + "<a href=\"/\">Start</a></div></body></html>";
+
+    private static ParsedDocument page(String header, String content, String footer) throws Exception {
+        return ParsedDocument.parse(new Tokenizer(new StringReader(header + content + footer)));
+    }
+
+    private static SiteTemplate learnTemplate() throws Exception {
+        List<ParsedDocument> samples = new ArrayList<ParsedDocument>();
+        samples.add(page(HEADER, "<table><tr><td>ICE 1</td><td>08:00</td></tr></table>", FOOTER));
+        samples.add(page(HEADER, "<p>Keine Verbindung</p>", FOOTER));
+        samples.add(page(HEADER, "<table><tr><td>IC 2</td><td>09:30</td></tr><tr><td>RE 3</td></tr></table>", FOOTER));
+        return SiteTemplate.learn(samples);
+    }
+
+    @Test
+    public void testLearnAndMark() throws Exception {
+        SiteTemplate template = learnTemplate();
+        assertEquals(template.getRegionCount(), 2);
+
+        ParsedDocument document = page(HEADER, "<p><a href=\"/\">Start</a> der Fahrt</p>", FOOTER);
+        SiteTemplate.Marking marking = template.mark(document);
+        assertTrue(template.matches(document));
+        assertEquals(marking.getRegionCount(), 2);
+        assertEquals(marking.getRegionStart(0), 0);
+        assertTrue(marking.isBoilerplate(3));
+        int content = marking.getRegionEnd(0);
+        assertFalse(marking.isBoilerplate(content));
+        assertEquals(document.get(content).toString(), "<p>");
+        assertEquals(marking.getRegionEnd(1), document.size());
+        assertEquals(marking.skip(2), content);
+        assertEquals(marking.skip(content), content);
+    }
+
+    @Test
+    public void testSearchesSkipBoilerplate() throws Exception {
+        Scraper scraper = page(HEADER, "<p><a href=\"/\">Start</a> der Fahrt</p>", FOOTER).newScraper();
+        ScrapeOptions options = new ScrapeOptions();
+        int inHeader = scraper.indexOf(new HTMLTag("a"), options);
+
+        scraper.setTemplate(learnTemplate());
+        assertNotNull(scraper.getBoilerplate());
+        scraper.reset();
+        int inContent = scraper.indexOf(new HTMLTag("a"), options);
+        assertTrue(inContent > inHeader);
+        assertFalse(scraper.getBoilerplate().isBoilerplate(inContent));
+
+        Vector<AbstractHTMLToken> searchElements = new Vector<AbstractHTMLToken>();
+        searchElements.add(new HTMLTag("a"));
+        searchElements.add(new TextToken("Start"));
+        options.elementOrder = ScrapeOptions.ELEMENT_ORDER_STRICT;
+        assertEquals(scraper.searchTokens(0, searchElements, options), inContent + 2);
+        options.elementOrder = ScrapeOptions.ELEMENT_ORDER_ELEMENTS_ALLOWED;
+        assertEquals(scraper.searchTokens(0, searchElements, options), inContent + 2);
+
+        // the footer is skipped as well
+        options.elementOrder = ScrapeOptions.ELEMENT_ORDER_STRICT;
+        assertEquals(scraper.searchTokens(inContent + 1, searchElements, options), -1);
+
+        options.skipBoilerplate = false;
+        assertEquals(scraper.indexOf(0, new HTMLTag("a"), options), inHeader);
+
+        scraper.reset();
+        scraper.skipBoilerplate();
+        assertEquals(scraper.get(scraper.getPosition()).toString(), "<p>");
+    }
+
+    @Test
+    public void testChangedLayout() throws Exception {
+        SiteTemplate template = learnTemplate();
+        ParsedDocument relaunched = page("<html><body><nav><a href=\"/\">Home</a></nav>",
+                "<p><a href=\"/\">Start</a></p>", "</body></html>");
+        assertFalse(template.matches(relaunched));
+        Scraper scraper = relaunched.newScraper();
+        scraper.setTemplate(template);
+        assertNull(scraper.getBoilerplate());
+        assertEquals(scraper.indexOf(new HTMLTag("a"), new ScrapeOptions()), 3);
+    }
+
+    @Test
+    public void testTouchingRegions() throws Exception {
+        // the banner in one sample splits the header into two regions without a gap
+        String banner = "<html><body><div id=\"header\"><h1>Fahrplan</h1><span>Neu!</span><em>Jetzt buchen</em>"
+                + "<ul><li><a href=\"/\">Start</a></li><li><a href=\"/news\">News</a></li></ul></div>";
+        List<ParsedDocument> samples = new ArrayList<ParsedDocument>();
+        samples.add(page(HEADER, "<table><tr><td>ICE 1</td><td>08:00</td></tr></table>", FOOTER));
+        samples.add(page(banner, "<p>Keine Verbindung</p>", FOOTER));
+        samples.add(page(HEADER, "<table><tr><td>IC 2</td><td>09:30</td></tr></table>", FOOTER));
+        SiteTemplate template = SiteTemplate.learn(samples, 4, SiteTemplate.DEFAULT_MIN_COVERAGE);
+
+        Scraper scraper = page(HEADER, "<p><a href=\"/\">Start</a> der Fahrt</p>", FOOTER).newScraper();
+        scraper.setTemplate(template);
+        SiteTemplate.Marking marking = scraper.getBoilerplate();
+        assertNotNull(marking);
+        assertEquals(marking.getRegionEnd(0), marking.getRegionStart(1));
+        assertEquals(marking.skip(0), marking.getRegionEnd(1));
+
+        ScrapeOptions options = new ScrapeOptions();
+        int inContent = scraper.indexOf(0, new HTMLTag("a"), options);
+        assertEquals(inContent, marking.getRegionEnd(1) + 1);
+        Vector<AbstractHTMLToken> searchElements = new Vector<AbstractHTMLToken>();
+        searchElements.add(new HTMLTag("a"));
+        for (int order : new int[] { ScrapeOptions.ELEMENT_ORDER_STRICT,
+                ScrapeOptions.ELEMENT_ORDER_ELEMENTS_ALLOWED, ScrapeOptions.ELEMENT_ORDER_COMMENTS_ALLOWED }) {
+            options.elementOrder = order;
+            assertEquals(scraper.searchTokens(0, searchElements, options), inContent + 1);
+        }
+    }
+}
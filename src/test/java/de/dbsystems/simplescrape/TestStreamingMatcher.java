@@ -0,0 +1,116 @@
+package de.dbsystems.simplescrape;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/* This software is provided "AS IS," without a warranty of any kind.
+ *
+ * ALL EXPRESS OR IMPLIED CONDITIONS, REPRESENTATIONS AND WARRANTIES,
+ * INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE OR NON-INFRINGEMENT, ARE HEREBY EXCLUDED.
+ * DB Systems GmbH AND ITS LICENSORS SHALL NOT BE LIABLE FOR ANY
+ * DAMAGES SUFFERED BY LICENSEE AS A RESULT OF USING, MODIFYING
+ * OR DISTRIBUTING THIS SOFTWARE OR ITS DERIVATIVES.
+ *
+ * IN NO EVENT WILL DB Systems GmbH OR ITS LICENSORS BE LIABLE FOR
+ * ANY LOST REVENUE, PROFIT OR DATA, OR FOR DIRECT, INDIRECT, SPECIAL,
+ * CONSEQUENTIAL, INCIDENTAL OR PUNITIVE DAMAGES, HOWEVER CAUSED
+ * AND REGARDLESS OF THE THEORY OF LIABILITY, ARISING OUT OF THE USE
+ * OF OR INABILITY TO USE THIS SOFTWARE, EVEN IF DB Systems GmbH HAS
+ * BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGES.
+ */
+
+public class TestStreamingMatcher {
+
+    private static class Collector implements StreamingMatcher.Listener {
+        final List<StreamingMatcher.Match> matches = new ArrayList<StreamingMatcher.Match>();
+
+        public void matched(StreamingMatcher.Match match) {
+            matches.add(match);
+        }
+    }
+
+    /**
+     * Finds all matches with the Scraper, each search continuing behind the previous match.
+     */
+    private static List<Integer> searchAll(Scraper scraper, Vector<AbstractHTMLToken> pattern, ScrapeOptions options) {
+        List<Integer> result = new ArrayList<Integer>();
+        scraper.reset();
+        int position = scraper.searchTokens(pattern, options);
+        while (position >= 0) {
+            result.add(position);
+            position = scraper.searchTokens(pattern, options);
+        }
+        return result;
+    }
+
+    @Test
+    public void testSameMatchesAsScraper() throws Exception {
+        InputStream responseStream = getClass().getClassLoader().getResourceAsStream(TestScraper.INPUT_FILE);
+        ParsedDocument document = ParsedDocument.parse(responseStream, true);
+        responseStream.close();
+
+        Vector<AbstractHTMLToken> divs = new Vector<AbstractHTMLToken>();
+        divs.add(new HTMLTag("div"));
+        divs.add(new HTMLTag("div"));
+        Vector<AbstractHTMLToken> label = new Vector<AbstractHTMLToken>();
+        label.add(new HTMLTag("label"));
+        label.add(new RegExTextToken("U[a-z]+"));
+        label.add(new HTMLTag("/label"));
+
+        int[] orders = { ScrapeOptions.ELEMENT_ORDER_STRICT, ScrapeOptions.ELEMENT_ORDER_WHITESPACE_ALLOWED,
+                ScrapeOptions.ELEMENT_ORDER_COMMENTS_ALLOWED, ScrapeOptions.ELEMENT_ORDER_ELEMENTS_ALLOWED };
+        for (int order : orders) {
+            ScrapeOptions options = new ScrapeOptions();
+            options.elementOrder = order;
+            Collector divMatches = new Collector();
+            Collector labelMatches = new Collector();
+            StreamingMatcher matcher = new StreamingMatcher();
+            matcher.add(divs, options, divMatches).add(label, options, labelMatches);
+            matcher.run(new Tokenizer(new StringReader(document.getSource())));
+
+            List<Integer> expected = searchAll(document.newScraper(), divs, options);
+            assertEquals(divMatches.matches.size(), expected.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(divMatches.matches.get(i).getEndIndex(), expected.get(i).intValue());
+            }
+            assertEquals(labelMatches.matches.size(), 1);
+            assertEquals(labelMatches.matches.get(0).getText(), "Uhrzeit");
+            assertEquals(labelMatches.matches.get(0).getTokens().size(), 3);
+        }
+    }
+
+    @Test
+    public void testOffsetsAndStop() throws Exception {
+        String page = "<ul><li>a</li><li>b</li><li>c</li></ul>";
+        Vector<AbstractHTMLToken> item = new Vector<AbstractHTMLToken>();
+        item.add(new HTMLTag("li"));
+        item.add(new RegExTextToken(".*"));
+        final StreamingMatcher matcher = new StreamingMatcher();
+        final List<StreamingMatcher.Match> matches = new ArrayList<StreamingMatcher.Match>();
+        matcher.add(item, new ScrapeOptions(), new StreamingMatcher.Listener() {
+            public void matched(StreamingMatcher.Match match) {
+                matches.add(match);
+                if (match.getText().equals("b")) {
+                    matcher.stop();
+                }
+            }
+        });
+        matcher.run(new Tokenizer(new StringReader(page)));
+        assertEquals(matches.size(), 2);
+        assertEquals(matches.get(1).getStartIndex(), 4);
+        assertEquals(matches.get(1).getEndIndex(), 6);
+        assertEquals(matches.get(1).getOffset(), page.indexOf("<li>b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPattern() {
+        new StreamingMatcher().add(new Vector<AbstractHTMLToken>(), new ScrapeOptions(), new Collector());
+    }
+}